@@ -0,0 +1,36 @@
+package net.smackem.mavenfx.model;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line options. Unless
+ * specified otherwise, the allocation rate is measured with the GC profiler
+ * and the results are written to {@code jmh-result.json}, so that they can
+ * be compared between builds.
+ *
+ * @author pbo
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final CommandLineOptions commandLine = new CommandLineOptions(args);
+        final ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+        if (commandLine.getProfilers().isEmpty()) {
+            options.addProfiler(GCProfiler.class);
+        }
+
+        if (commandLine.getResultFormat().hasValue() == false) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,88 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures building a board from image pixels and collecting the
+ * neighbours of cells.
+ *
+ * @author pbo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BoardBenchmark {
+    private static final int NEIGHBOUR_QUERY_COUNT = 1024;
+
+    @Param({ "128", "512", "1024" })
+    public int size;
+
+    @Param({ "42" })
+    public long seed;
+
+    private int[] pixels;
+    private Board board;
+    private Cell[] cells;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final int[] weights = Terrain.GRADIENT.generate(this.size, this.size, 0.1, this.seed);
+
+        // grey ARGB pixels, dark for heavy cells, like an imported image
+        this.pixels = new int[weights.length];
+
+        for (int i = 0; i < weights.length; i++) {
+            final int channel = 255 - Math.min(weights[i], Board.OBSTACLE_WEIGHT) * 255 / Board.OBSTACLE_WEIGHT;
+            this.pixels[i] = 0xff000000 | channel << 16 | channel << 8 | channel;
+        }
+
+        this.board = fromPixels();
+        this.cells = new Cell[NEIGHBOUR_QUERY_COUNT];
+
+        final Random random = new Random(this.seed);
+
+        for (int i = 0; i < this.cells.length; i++) {
+            this.cells[i] = this.board.getCell(random.nextInt(this.size), random.nextInt(this.size));
+        }
+    }
+
+    @Benchmark
+    public Board fromBuffer() {
+        return fromPixels();
+    }
+
+    @Benchmark
+    public void collectNeighbours(Blackhole blackhole) {
+        for (final Cell cell : this.cells) {
+            blackhole.consume(this.board.collectNeighbours(cell));
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private Board fromPixels() {
+        return Board.fromBuffer(this.pixels, this.size, this.size, pixel -> {
+            // the brightness of the HSB model, as used by the GUI
+            final int max = Math.max((pixel >> 16) & 0xff, Math.max((pixel >> 8) & 0xff, pixel & 0xff));
+            return Board.OBSTACLE_WEIGHT - max * Board.OBSTACLE_WEIGHT / 255;
+        });
+    }
+}
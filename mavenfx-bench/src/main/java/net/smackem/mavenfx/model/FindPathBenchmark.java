@@ -0,0 +1,40 @@
+package net.smackem.mavenfx.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Board#findPath(Cell, Cell, SearchMode)}. Each invocation
+ * solves the next of the queries of the {@link TerrainState}.
+ *
+ * @author pbo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindPathBenchmark {
+    @Param({ "ASTAR", "JUMP_POINT", "HIERARCHICAL", "BIDIRECTIONAL", "LANDMARK",
+            "FIXED_POINT" })
+    public SearchMode mode;
+
+    private int next;
+
+    @Benchmark
+    public Path<Cell> findPath(TerrainState state) {
+        final int query = this.next++ % TerrainState.QUERY_COUNT;
+        return state.board.findPath(state.origins[query], state.destinations[query], this.mode);
+    }
+}
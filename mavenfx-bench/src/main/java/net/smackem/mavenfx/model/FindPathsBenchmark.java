@@ -0,0 +1,42 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Board#findPaths(Cell, Cell, int)}. The {@link PathCache}
+ * is cleared before each invocation, so that every query is searched.
+ *
+ * @author pbo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindPathsBenchmark {
+    @Param({ "1", "3", "5" })
+    public int pathCount;
+
+    private int next;
+
+    @Benchmark
+    public Collection<Path<Cell>> findPaths(TerrainState state) {
+        final int query = this.next++ % TerrainState.QUERY_COUNT;
+
+        state.board.getPathCache().clear();
+        return state.board.findPaths(state.origins[query], state.destinations[query], this.pathCount);
+    }
+}
@@ -0,0 +1,40 @@
+package net.smackem.mavenfx.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the generic {@link Path#findPath} with the cost functions of
+ * {@link Board}, for comparison with the specialized engines.
+ *
+ * @author pbo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenericPathBenchmark {
+    private int next;
+
+    @Benchmark
+    public Path<Cell> findPath(TerrainState state) {
+        final int query = this.next++ % TerrainState.QUERY_COUNT;
+        final Cell destination = state.destinations[query];
+
+        return Path.findPath(state.origins[query], destination,
+                Board::calculateEdgeWeight,
+                cell -> Board.calculateDistance(cell, destination),
+                state.board::collectNeighbours);
+    }
+}
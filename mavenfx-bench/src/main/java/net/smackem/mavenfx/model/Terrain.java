@@ -0,0 +1,169 @@
+package net.smackem.mavenfx.model;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+
+/**
+ * Generators for reproducible board weights. The same arguments always
+ * yield the same weights.
+ *
+ * @author pbo
+ */
+public enum Terrain {
+    /**
+     * Uncorrelated noise: each cell is an obstacle with the probability
+     * {@code obstacleDensity}, a quarter of the others gets a small random
+     * weight.
+     */
+    NOISE {
+        @Override
+        int[] generate(int width, int height, double obstacleDensity, long seed) {
+            final Random random = new Random(seed);
+            final int[] weights = new int[width * height];
+
+            for (int i = 0; i < weights.length; i++) {
+                if (random.nextDouble() < obstacleDensity) {
+                    weights[i] = Board.OBSTACLE_WEIGHT;
+                } else if (random.nextInt(4) == 0) {
+                    weights[i] = random.nextInt(50);
+                }
+            }
+
+            return weights;
+        }
+    },
+
+    /**
+     * A maze with one cell wide corridors. A perfect maze is carved first;
+     * then each of its walls between two corridors is kept only with the
+     * probability {@code obstacleDensity}, which opens loops and shortcuts.
+     * The cells at odd coordinates are always obstacles.
+     */
+    MAZE {
+        @Override
+        int[] generate(int width, int height, double obstacleDensity, long seed) {
+            final Random random = new Random(seed);
+            final int[] weights = new int[width * height];
+            final boolean[] visited = new boolean[width * height];
+            final Deque<Integer> stack = new ArrayDeque<>();
+            final int[] dx = { 2, -2, 0, 0 };
+            final int[] dy = { 0, 0, 2, -2 };
+
+            Arrays.fill(weights, Board.OBSTACLE_WEIGHT);
+            weights[0] = 0;
+            visited[0] = true;
+            stack.push(0);
+
+            // randomized depth-first search over the cells at even coordinates
+            while (stack.isEmpty() == false) {
+                final int current = stack.peek();
+                final int x = current % width;
+                final int y = current / width;
+                final int first = random.nextInt(4);
+                boolean carved = false;
+
+                for (int i = 0; i < 4 && carved == false; i++) {
+                    final int d = (first + i) % 4;
+                    final int nx = x + dx[d];
+                    final int ny = y + dy[d];
+
+                    if (nx < 0 || nx >= width || ny < 0 || ny >= height || visited[ny * width + nx]) {
+                        continue;
+                    }
+
+                    final int next = ny * width + nx;
+                    weights[(y + dy[d] / 2) * width + x + dx[d] / 2] = 0;
+                    weights[next] = 0;
+                    visited[next] = true;
+                    stack.push(next);
+                    carved = true;
+                }
+
+                if (carved == false) {
+                    stack.pop();
+                }
+            }
+
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    final int index = y * width + x;
+
+                    // walls separating two corridors have exactly one odd coordinate
+                    if (weights[index] != 0 && (x % 2) != (y % 2) && random.nextDouble() >= obstacleDensity) {
+                        weights[index] = 0;
+                    }
+                }
+            }
+
+            return weights;
+        }
+    },
+
+    /**
+     * Smooth hills like the brightness of an imported photo. The highest
+     * fraction {@code obstacleDensity} of the cells are obstacles, the
+     * others get weights between {@code 0} and
+     * {@link Board#OBSTACLE_WEIGHT} following the height.
+     */
+    GRADIENT {
+        @Override
+        int[] generate(int width, int height, double obstacleDensity, long seed) {
+            final Random random = new Random(seed);
+            final int hillCount = 8;
+            final double[] centerX = new double[hillCount];
+            final double[] centerY = new double[hillCount];
+            final double[] radius = new double[hillCount];
+            final double[] amplitude = new double[hillCount];
+
+            for (int i = 0; i < hillCount; i++) {
+                centerX[i] = random.nextDouble() * width;
+                centerY[i] = random.nextDouble() * height;
+                radius[i] = (0.05 + random.nextDouble() * 0.25) * Math.max(width, height);
+                amplitude[i] = random.nextDouble() * 2.0 - 0.5;
+            }
+
+            final double[] heights = new double[width * height];
+
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    double value = 0.0;
+
+                    for (int i = 0; i < hillCount; i++) {
+                        final double ddx = (x - centerX[i]) / radius[i];
+                        final double ddy = (y - centerY[i]) / radius[i];
+                        value += amplitude[i] * Math.exp(-(ddx * ddx + ddy * ddy));
+                    }
+
+                    heights[y * width + x] = value;
+                }
+            }
+
+            final double[] sorted = heights.clone();
+            Arrays.sort(sorted);
+
+            final double min = sorted[0];
+            final int thresholdIndex = (int) Math.round((1.0 - obstacleDensity) * (sorted.length - 1));
+            final double threshold = sorted[Math.max(thresholdIndex, 0)];
+            final int[] weights = new int[width * height];
+
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = heights[i] >= threshold && obstacleDensity > 0.0
+                        ? Board.OBSTACLE_WEIGHT
+                        : (int) ((heights[i] - min) / (threshold - min + 1e-9) * (Board.OBSTACLE_WEIGHT - 1));
+            }
+
+            return weights;
+        }
+    };
+
+    /**
+     * @return the weights of a {@code width} x {@code height} board, row by row.
+     */
+    abstract int[] generate(int width, int height, double obstacleDensity, long seed);
+
+    Board createBoard(int width, int height, double obstacleDensity, long seed) {
+        return Board.fromBuffer(generate(width, height, obstacleDensity, seed), width, height, value -> value);
+    }
+}
@@ -0,0 +1,73 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A square board generated from a {@link Terrain} together with a fixed set
+ * of queries between passable cells, shared by the path-finding benchmarks.
+ * <p>
+ * The benchmarks live in the package of the model so that they can measure
+ * package-private parts like {@link Board#collectNeighbours(Cell)}.
+ *
+ * @author pbo
+ */
+@State(Scope.Benchmark)
+public class TerrainState {
+    static final int QUERY_COUNT = 16;
+
+    @Param({ "128", "512" })
+    public int size;
+
+    @Param({ "NOISE", "MAZE", "GRADIENT" })
+    public Terrain terrain;
+
+    @Param({ "0.1", "0.3" })
+    public double obstacleDensity;
+
+    /**
+     * The distance between origin and destination of the queries, relative
+     * to the size of the board.
+     */
+    @Param({ "0.25", "0.75" })
+    public double distance;
+
+    @Param({ "42" })
+    public long seed;
+
+    Board board;
+    Cell[] origins;
+    Cell[] destinations;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.board = this.terrain.createBoard(this.size, this.size, this.obstacleDensity, this.seed);
+        this.origins = new Cell[QUERY_COUNT];
+        this.destinations = new Cell[QUERY_COUNT];
+
+        final Random random = new Random(this.seed);
+        final double length = this.distance * this.size;
+        int count = 0;
+
+        while (count < QUERY_COUNT) {
+            final Cell origin = this.board.getCell(random.nextInt(this.size), random.nextInt(this.size));
+            final double angle = random.nextDouble() * 2.0 * Math.PI;
+            final Cell destination = this.board.getCell(
+                    origin.getX() + (int) Math.round(Math.cos(angle) * length),
+                    origin.getY() + (int) Math.round(Math.sin(angle) * length));
+
+            if (destination != null
+                    && origin.getWeight() < Board.OBSTACLE_WEIGHT
+                    && destination.getWeight() < Board.OBSTACLE_WEIGHT) {
+                this.origins[count] = origin;
+                this.destinations[count] = destination;
+                count++;
+            }
+        }
+    }
+}
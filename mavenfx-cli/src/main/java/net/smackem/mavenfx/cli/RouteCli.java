@@ -0,0 +1,247 @@
+package net.smackem.mavenfx.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import net.smackem.mavenfx.model.Board;
+import net.smackem.mavenfx.model.BoardFile;
+import net.smackem.mavenfx.model.CostModel;
+import net.smackem.mavenfx.model.ImageImporter;
+import net.smackem.mavenfx.model.SearchMode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds the paths of a scenario file on a board without user interface and
+ * reports throughput, latencies and path costs.
+ * <p>
+ * Boards are opened from {@code .mfxb} files with {@link BoardFile} or
+ * imported from images with {@link ImageImporter}, which maps brightness to
+ * weights like the GUI does. The report is written to the standard output
+ * or a file; a one-line summary is logged in addition.
+ *
+ * @author pbo
+ */
+public final class RouteCli {
+    private static final Logger log = LoggerFactory.getLogger(RouteCli.class);
+
+    private static final String USAGE = String.join("\n",
+            "usage: mavenfx-cli [options] <board> <scenario>",
+            "",
+            "  <board>                  an .mfxb board file or an image",
+            "  <scenario>               a text file with one query per line:",
+            "                           originX originY destinationX destinationY",
+            "",
+            "options:",
+            "  --threads <n>            number of worker threads (default: number of processors)",
+            "  --mode <mode>            search mode (default: ASTAR), one of " + modeNames(),
+            "  --scale <n>              pixels per cell when importing images (default: "
+                    + ImageImporter.DEFAULT_SCALE + ")",
+            "  --warmup <n>             number of unreported runs of the scenario (default: 0)",
+            "  --diagonal-penalty <x>   additional cost of diagonal steps (default: "
+                    + CostModel.DEFAULT_DIAGONAL_PENALTY + ")",
+            "  --turn-penalty <x>       cost of changing direction (default: "
+                    + CostModel.DEFAULT_TURN_PENALTY + ")",
+            "  --four-connected         allow straight steps only",
+            "  --format <json|csv>      report format (default: json)",
+            "  --output <file>          report file (default: standard output)");
+
+    private RouteCli() {
+    }
+
+    public static void main(String[] args) {
+        final Options options;
+
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        try {
+            run(options);
+        } catch (IOException | RuntimeException e) {
+            log.error("Error running scenario", e);
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private static void run(Options options) throws IOException, InterruptedException {
+        final Scenario scenario = Scenario.read(options.scenarioFile);
+        final List<Board> boards = openBoards(options);
+        final ScenarioRunner runner = new ScenarioRunner(boards, options.mode);
+
+        log.info("{} queries on a {}x{} board", scenario.getQueries().size(),
+                boards.get(0).getWidth(), boards.get(0).getHeight());
+
+        for (int i = 0; i < options.warmupCount; i++) {
+            log.info("warmup: {}", runner.run(scenario));
+        }
+
+        final ScenarioReport report = runner.run(scenario);
+        log.info("{}", report);
+
+        try (final Writer writer = options.outputFile != null
+                ? Files.newBufferedWriter(options.outputFile.toPath(), StandardCharsets.UTF_8)
+                : new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) {
+            if (options.csv) {
+                report.writeCsv(writer);
+            } else {
+                report.writeJson(writer);
+            }
+        }
+    }
+
+    /**
+     * @return one board per worker thread: the opened board and snapshots of
+     *      it, which share its weights.
+     */
+    private static List<Board> openBoards(Options options) throws IOException {
+        final Board board = options.boardFile.getName().toLowerCase(Locale.ROOT).endsWith(".mfxb")
+                ? BoardFile.open(options.boardFile)
+                : new ImageImporter(options.scale).importBoard(options.boardFile);
+        board.setCostModel(options.costModel);
+
+        final List<Board> boards = new ArrayList<>();
+        boards.add(board);
+
+        while (boards.size() < options.threadCount) {
+            boards.add(board.snapshot());
+        }
+
+        return boards;
+    }
+
+    private static String modeNames() {
+        final List<String> names = new ArrayList<>();
+
+        for (final SearchMode mode : SearchMode.values()) {
+            names.add(mode.name());
+        }
+
+        return String.join(", ", names);
+    }
+
+    private static final class Options {
+        File boardFile;
+        File scenarioFile;
+        File outputFile;
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        int scale = ImageImporter.DEFAULT_SCALE;
+        int warmupCount;
+        SearchMode mode = SearchMode.ASTAR;
+        CostModel costModel = CostModel.DEFAULT;
+        boolean csv;
+
+        static Options parse(String[] args) {
+            final Options options = new Options();
+            final List<String> files = new ArrayList<>();
+
+            for (int i = 0; i < args.length; i++) {
+                final String arg = args[i];
+
+                switch (arg) {
+                    case "--threads":
+                        options.threadCount = parseInt(arg, value(args, ++i, arg), 1);
+                        break;
+                    case "--mode":
+                        try {
+                            options.mode = SearchMode.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT));
+                        } catch (IllegalArgumentException e) {
+                            throw new IllegalArgumentException("Unknown search mode: " + args[i]);
+                        }
+                        break;
+                    case "--scale":
+                        options.scale = parseInt(arg, value(args, ++i, arg), 1);
+                        if (options.scale > ImageImporter.MAX_SCALE)
+                            throw new IllegalArgumentException("Invalid scale: " + options.scale);
+                        break;
+                    case "--warmup":
+                        options.warmupCount = parseInt(arg, value(args, ++i, arg), 0);
+                        break;
+                    case "--diagonal-penalty":
+                        options.costModel = options.costModel.withDiagonalPenalty(
+                                parseDouble(arg, value(args, ++i, arg)));
+                        break;
+                    case "--turn-penalty":
+                        options.costModel = options.costModel.withTurnPenalty(
+                                parseDouble(arg, value(args, ++i, arg)));
+                        break;
+                    case "--four-connected":
+                        options.costModel = options.costModel.withConnectivity(CostModel.Connectivity.FOUR);
+                        break;
+                    case "--format":
+                        final String format = value(args, ++i, arg);
+                        if (format.equals("json") == false && format.equals("csv") == false)
+                            throw new IllegalArgumentException("Unknown format: " + format);
+                        options.csv = format.equals("csv");
+                        break;
+                    case "--output":
+                        options.outputFile = new File(value(args, ++i, arg));
+                        break;
+                    default:
+                        if (arg.startsWith("--"))
+                            throw new IllegalArgumentException("Unknown option: " + arg);
+                        files.add(arg);
+                        break;
+                }
+            }
+
+            if (files.size() != 2)
+                throw new IllegalArgumentException("Expected a board and a scenario file");
+            if (options.mode == SearchMode.JUMP_POINT
+                    && options.costModel.getConnectivity() != CostModel.Connectivity.EIGHT)
+                throw new IllegalArgumentException("JUMP_POINT cannot be combined with --four-connected");
+
+            options.boardFile = new File(files.get(0));
+            options.scenarioFile = new File(files.get(1));
+            return options;
+        }
+
+        private static String value(String[] args, int index, String option) {
+            if (index >= args.length)
+                throw new IllegalArgumentException("Missing value for " + option);
+
+            return args[index];
+        }
+
+        private static int parseInt(String option, String value, int minimum) {
+            final int result;
+
+            try {
+                result = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+            }
+
+            if (result < minimum)
+                throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+
+            return result;
+        }
+
+        private static double parseDouble(String option, String value) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+            }
+        }
+    }
+}
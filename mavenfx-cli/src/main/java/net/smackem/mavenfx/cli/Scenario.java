@@ -0,0 +1,109 @@
+package net.smackem.mavenfx.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A list of origin/destination pairs to find paths for.
+ * <p>
+ * Scenario files are text files with one query per line: the column and
+ * row of the origin followed by the column and row of the destination,
+ * separated by whitespace or commas. Empty lines and lines starting with
+ * {@code #} are ignored.
+ *
+ * @author pbo
+ */
+final class Scenario {
+    private final List<Query> queries;
+
+    /**
+     * A pair of cells given by column and row.
+     */
+    static final class Query {
+        private final int originX;
+        private final int originY;
+        private final int destinationX;
+        private final int destinationY;
+
+        Query(int originX, int originY, int destinationX, int destinationY) {
+            this.originX = originX;
+            this.originY = originY;
+            this.destinationX = destinationX;
+            this.destinationY = destinationY;
+        }
+
+        int getOriginX() {
+            return this.originX;
+        }
+
+        int getOriginY() {
+            return this.originY;
+        }
+
+        int getDestinationX() {
+            return this.destinationX;
+        }
+
+        int getDestinationY() {
+            return this.destinationY;
+        }
+    }
+
+    Scenario(List<Query> queries) {
+        this.queries = Collections.unmodifiableList(new ArrayList<>(queries));
+    }
+
+    List<Query> getQueries() {
+        return this.queries;
+    }
+
+    static Scenario read(File file) throws IOException {
+        Objects.requireNonNull(file);
+
+        try (final Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * @throws IOException
+     *      if a line is not made of four integers.
+     */
+    static Scenario read(Reader reader) throws IOException {
+        final BufferedReader lines = new BufferedReader(reader);
+        final List<Query> queries = new ArrayList<>();
+        int lineNumber = 0;
+
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            lineNumber++;
+            line = line.trim();
+
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            final String[] fields = line.split("[\\s,]+");
+
+            if (fields.length != 4)
+                throw new IOException("Line " + lineNumber + ": expected 4 numbers, found " + fields.length);
+
+            try {
+                queries.add(new Query(
+                        Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+                        Integer.parseInt(fields[2]), Integer.parseInt(fields[3])));
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+
+        return new Scenario(queries);
+    }
+}
@@ -0,0 +1,217 @@
+package net.smackem.mavenfx.cli;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import net.smackem.mavenfx.model.SearchMode;
+
+/**
+ * The outcome of a {@link ScenarioRunner} run: the throughput, the
+ * distribution of the latencies and the result of every query, written as
+ * JSON or CSV.
+ * <p>
+ * Latencies are the wall times of the single searches. Percentiles are
+ * nearest-rank percentiles of all latencies.
+ *
+ * @author pbo
+ */
+final class ScenarioReport {
+    private final Scenario scenario;
+    private final SearchMode mode;
+    private final int threadCount;
+    private final long wallTimeNanos;
+    private final Result[] results;
+    private final long[] sortedLatencies;
+
+    /**
+     * The outcome of a single query.
+     */
+    static final class Result {
+        private final double cost;
+        private final int length;
+        private final long expandedCount;
+        private final long latencyNanos;
+
+        /**
+         * @param cost
+         *      the total cost of the path or {@code NaN} if there is no path.
+         * @param length
+         *      the number of cells of the path, including origin and
+         *      destination.
+         */
+        Result(double cost, int length, long expandedCount, long latencyNanos) {
+            this.cost = cost;
+            this.length = length;
+            this.expandedCount = expandedCount;
+            this.latencyNanos = latencyNanos;
+        }
+
+        boolean isFound() {
+            return Double.isNaN(this.cost) == false;
+        }
+
+        double getCost() {
+            return this.cost;
+        }
+
+        int getLength() {
+            return this.length;
+        }
+
+        long getExpandedCount() {
+            return this.expandedCount;
+        }
+
+        long getLatencyNanos() {
+            return this.latencyNanos;
+        }
+    }
+
+    ScenarioReport(Scenario scenario, SearchMode mode, int threadCount, long wallTimeNanos, Result[] results) {
+        if (results.length != scenario.getQueries().size())
+            throw new IllegalArgumentException("Invalid result count");
+
+        this.scenario = scenario;
+        this.mode = Objects.requireNonNull(mode);
+        this.threadCount = threadCount;
+        this.wallTimeNanos = wallTimeNanos;
+        this.results = results.clone();
+        this.sortedLatencies = new long[results.length];
+
+        for (int i = 0; i < results.length; i++) {
+            this.sortedLatencies[i] = results[i].getLatencyNanos();
+        }
+
+        Arrays.sort(this.sortedLatencies);
+    }
+
+    List<Result> getResults() {
+        return Arrays.asList(this.results);
+    }
+
+    int getFoundCount() {
+        int count = 0;
+
+        for (final Result result : this.results) {
+            if (result.isFound()) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    long getWallTimeNanos() {
+        return this.wallTimeNanos;
+    }
+
+    double getQueriesPerSecond() {
+        return this.wallTimeNanos > 0
+                ? this.results.length * (double) TimeUnit.SECONDS.toNanos(1) / this.wallTimeNanos
+                : 0.0;
+    }
+
+    /**
+     * @param percentile
+     *      the percentile in {@code (0, 100]}.
+     * @return the smallest latency that is at least as high as
+     *      {@code percentile} percent of all latencies, or {@code 0} if
+     *      there are no queries.
+     */
+    long getLatencyPercentileNanos(double percentile) {
+        if (percentile > 0.0 == false || percentile > 100.0)
+            throw new IllegalArgumentException("Invalid percentile");
+
+        if (this.sortedLatencies.length == 0) {
+            return 0;
+        }
+
+        final int rank = (int) Math.ceil(percentile / 100.0 * this.sortedLatencies.length);
+        return this.sortedLatencies[Math.max(rank, 1) - 1];
+    }
+
+    long getMeanLatencyNanos() {
+        if (this.sortedLatencies.length == 0) {
+            return 0;
+        }
+
+        long sum = 0;
+
+        for (final long latency : this.sortedLatencies) {
+            sum += latency;
+        }
+
+        return sum / this.sortedLatencies.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d queries (%d found) on %d threads with %s in %.1f ms: %.1f queries/s, p50 %.3f ms, p99 %.3f ms",
+                this.results.length, getFoundCount(), this.threadCount, this.mode,
+                this.wallTimeNanos / 1e6, getQueriesPerSecond(),
+                getLatencyPercentileNanos(50) / 1e6, getLatencyPercentileNanos(99) / 1e6);
+    }
+
+    /**
+     * Writes the summary and the results of all queries as one JSON object.
+     * Latencies are in microseconds; the cost of a query without path is
+     * {@code null}.
+     */
+    void writeJson(Appendable out) throws IOException {
+        out.append("{\n");
+        out.append(String.format(Locale.ROOT, "  \"mode\": \"%s\",\n", this.mode));
+        out.append(String.format(Locale.ROOT, "  \"threads\": %d,\n", this.threadCount));
+        out.append(String.format(Locale.ROOT, "  \"queries\": %d,\n", this.results.length));
+        out.append(String.format(Locale.ROOT, "  \"found\": %d,\n", getFoundCount()));
+        out.append(String.format(Locale.ROOT, "  \"wallTimeMillis\": %.3f,\n", this.wallTimeNanos / 1e6));
+        out.append(String.format(Locale.ROOT, "  \"queriesPerSecond\": %.3f,\n", getQueriesPerSecond()));
+        out.append(String.format(Locale.ROOT,
+                "  \"latencyMicros\": {\"mean\": %.3f, \"p50\": %.3f, \"p90\": %.3f, \"p99\": %.3f, \"max\": %.3f},\n",
+                getMeanLatencyNanos() / 1e3,
+                getLatencyPercentileNanos(50) / 1e3,
+                getLatencyPercentileNanos(90) / 1e3,
+                getLatencyPercentileNanos(99) / 1e3,
+                getLatencyPercentileNanos(100) / 1e3));
+        out.append("  \"results\": [");
+
+        for (int i = 0; i < this.results.length; i++) {
+            final Scenario.Query query = this.scenario.getQueries().get(i);
+            final Result result = this.results[i];
+
+            out.append(i > 0 ? ",\n    " : "\n    ");
+            out.append(String.format(Locale.ROOT,
+                    "{\"origin\": [%d, %d], \"destination\": [%d, %d], \"cost\": %s, \"length\": %d, "
+                            + "\"expanded\": %d, \"latencyMicros\": %.3f}",
+                    query.getOriginX(), query.getOriginY(), query.getDestinationX(), query.getDestinationY(),
+                    result.isFound() ? String.format(Locale.ROOT, "%.6f", result.getCost()) : "null",
+                    result.getLength(), result.getExpandedCount(), result.getLatencyNanos() / 1e3));
+        }
+
+        out.append(this.results.length > 0 ? "\n  ]\n" : "]\n");
+        out.append("}\n");
+    }
+
+    /**
+     * Writes the results of all queries as CSV with a header line, one
+     * query per line. Latencies are in microseconds; the cost of a query
+     * without path is empty.
+     */
+    void writeCsv(Appendable out) throws IOException {
+        out.append("originX,originY,destinationX,destinationY,cost,length,expanded,latencyMicros\n");
+
+        for (int i = 0; i < this.results.length; i++) {
+            final Scenario.Query query = this.scenario.getQueries().get(i);
+            final Result result = this.results[i];
+
+            out.append(String.format(Locale.ROOT, "%d,%d,%d,%d,%s,%d,%d,%.3f\n",
+                    query.getOriginX(), query.getOriginY(), query.getDestinationX(), query.getDestinationY(),
+                    result.isFound() ? String.format(Locale.ROOT, "%.6f", result.getCost()) : "",
+                    result.getLength(), result.getExpandedCount(), result.getLatencyNanos() / 1e3));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package net.smackem.mavenfx.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.smackem.mavenfx.model.Board;
+import net.smackem.mavenfx.model.Cell;
+import net.smackem.mavenfx.model.Path;
+import net.smackem.mavenfx.model.SearchMode;
+import net.smackem.mavenfx.model.SearchResult;
+
+/**
+ * Solves the queries of a {@link Scenario} on a number of worker threads.
+ * <p>
+ * The searches of a board are not thread-safe, so every worker has a board
+ * of its own, all with the same weights, like {@linkplain Board#snapshot()
+ * snapshots} of one board. The workers take the next
+ * unsolved query until none are left, so that slow queries do not hold up
+ * the others.
+ *
+ * @author pbo
+ */
+final class ScenarioRunner {
+    private final List<Board> boards;
+    private final SearchMode mode;
+
+    /**
+     * @param boards
+     *      one board per worker thread, all with the same size, weights and
+     *      cost model.
+     */
+    ScenarioRunner(List<Board> boards, SearchMode mode) {
+        Objects.requireNonNull(boards);
+        if (boards.isEmpty())
+            throw new IllegalArgumentException("No boards");
+
+        this.boards = new ArrayList<>(boards);
+        this.mode = Objects.requireNonNull(mode);
+    }
+
+    int getThreadCount() {
+        return this.boards.size();
+    }
+
+    /**
+     * Solves all queries of {@code scenario} and blocks until done.
+     *
+     * @throws IllegalArgumentException
+     *      if a query refers to a cell outside of the boards.
+     */
+    ScenarioReport run(Scenario scenario) throws InterruptedException {
+        Objects.requireNonNull(scenario);
+
+        final List<Scenario.Query> queries = scenario.getQueries();
+        final Board firstBoard = this.boards.get(0);
+
+        for (int i = 0; i < queries.size(); i++) {
+            final Scenario.Query query = queries.get(i);
+
+            if (firstBoard.getCell(query.getOriginX(), query.getOriginY()) == null
+                    || firstBoard.getCell(query.getDestinationX(), query.getDestinationY()) == null)
+                throw new IllegalArgumentException("Query " + (i + 1) + " is outside of the board");
+        }
+
+        final ScenarioReport.Result[] results = new ScenarioReport.Result[queries.size()];
+        final AtomicInteger nextQuery = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(getThreadCount());
+        final List<Future<?>> workers = new ArrayList<>();
+        final long startTime = System.nanoTime();
+
+        try {
+            for (final Board board : this.boards) {
+                workers.add(executor.submit(() -> solve(board, queries, nextQuery, results)));
+            }
+
+            for (final Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new ScenarioReport(scenario, this.mode, getThreadCount(), System.nanoTime() - startTime, results);
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private void solve(Board board, List<Scenario.Query> queries, AtomicInteger nextQuery,
+                       ScenarioReport.Result[] results) {
+        for (int index = nextQuery.getAndIncrement(); index < queries.size(); index = nextQuery.getAndIncrement()) {
+            final Scenario.Query query = queries.get(index);
+            final Cell origin = board.getCell(query.getOriginX(), query.getOriginY());
+            final Cell destination = board.getCell(query.getDestinationX(), query.getDestinationY());
+            final SearchResult result = board.findPathWithStatistics(origin, destination, this.mode);
+            final Path<Cell> path = result.getPath();
+
+            results[index] = new ScenarioReport.Result(
+                    path != null ? path.getTotalCost() : Double.NaN,
+                    path != null ? path.getLength() : 0,
+                    result.getStatistics().getExpandedCount(),
+                    result.getStatistics().getWallTimeNanos());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package net.smackem.mavenfx.cli;
+
+import net.smackem.mavenfx.model.Board;
+import net.smackem.mavenfx.model.SearchMode;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class ScenarioRunnerTest {
+    @Test
+    public void testReadScenario() throws IOException {
+        final Scenario scenario = Scenario.read(new StringReader("# origin, destination\n\n1 2 3 4\n 5,6, 7,8 \n"));
+
+        assertThat(scenario.getQueries(), hasSize(2));
+        assertThat(scenario.getQueries().get(1).getOriginX(), is(5));
+        assertThat(scenario.getQueries().get(1).getDestinationY(), is(8));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadInvalidScenario() throws IOException {
+        Scenario.read(new StringReader("1 2 3\n"));
+    }
+
+    @Test
+    public void testRunMatchesSingleThread() throws Exception {
+        final Random random = new Random(23);
+        final int[] weights = new int[120 * 80];
+
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextInt(10);
+        }
+
+        final StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < 40; i++) {
+            text.append(random.nextInt(120)).append(' ').append(random.nextInt(80)).append(' ')
+                    .append(random.nextInt(120)).append(' ').append(random.nextInt(80)).append('\n');
+        }
+
+        final Scenario scenario = Scenario.read(new StringReader(text.toString()));
+        final ScenarioReport single = new ScenarioRunner(
+                Collections.singletonList(createBoard(weights)), SearchMode.ASTAR).run(scenario);
+        final ScenarioReport parallel = new ScenarioRunner(
+                Arrays.asList(createBoard(weights), createBoard(weights), createBoard(weights)),
+                SearchMode.ASTAR).run(scenario);
+
+        assertThat(parallel.getFoundCount(), is(40));
+
+        for (int i = 0; i < 40; i++) {
+            assertThat(parallel.getResults().get(i).getCost(), is(single.getResults().get(i).getCost()));
+        }
+
+        assertThat(parallel.getLatencyPercentileNanos(50), lessThanOrEqualTo(parallel.getLatencyPercentileNanos(99)));
+        assertThat(parallel.getQueriesPerSecond(), greaterThan(0.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testQueryOutsideBoard() throws Exception {
+        final Scenario scenario = Scenario.read(new StringReader("0 0 10 10\n"));
+        new ScenarioRunner(Collections.singletonList(new Board(10, 10)), SearchMode.ASTAR).run(scenario);
+    }
+
+    @Test
+    public void testPercentiles() {
+        final List<Scenario.Query> queries = Collections.nCopies(4, new Scenario.Query(0, 0, 1, 1));
+        final ScenarioReport report = new ScenarioReport(new Scenario(queries), SearchMode.ASTAR, 1, 1000,
+                new ScenarioReport.Result[] {
+                        new ScenarioReport.Result(1.0, 2, 1, 40),
+                        new ScenarioReport.Result(1.0, 2, 1, 10),
+                        new ScenarioReport.Result(Double.NaN, 0, 1, 30),
+                        new ScenarioReport.Result(1.0, 2, 1, 20),
+                });
+
+        assertThat(report.getLatencyPercentileNanos(50), is(20L));
+        assertThat(report.getLatencyPercentileNanos(99), is(40L));
+        assertThat(report.getMeanLatencyNanos(), is(25L));
+        assertThat(report.getFoundCount(), is(3));
+        assertThat(report.getQueriesPerSecond(), closeTo(4e6, 1e-3));
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private static Board createBoard(int[] weights) {
+        return Board.fromBuffer(weights, 120, 80, weight -> weight);
+    }
+}
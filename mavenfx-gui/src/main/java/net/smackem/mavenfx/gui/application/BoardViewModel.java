@@ -1,25 +1,60 @@
 package net.smackem.mavenfx.gui.application;
 
-import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import javafx.application.Platform;
 import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
-import javafx.scene.image.PixelReader;
-import javafx.scene.image.WritablePixelFormat;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
 import net.smackem.mavenfx.model.Board;
 import net.smackem.mavenfx.model.Cell;
+import net.smackem.mavenfx.model.CostModel;
+import net.smackem.mavenfx.model.Path;
+import net.smackem.mavenfx.model.SearchMode;
+import net.smackem.mavenfx.model.SearchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Holds the board being edited and the paths found on it.
+ * <p>
+ * Paths are searched on a background thread and published on the FX
+ * application thread. A new search request cancels the running one, and
+ * the results of superseded requests are dropped. Weights are changed
+ * while a search may be running, since each search reads a snapshot of the
+ * weights. Changing the cost model must go through this class, so that it
+ * is serialized with the searches by a lock.
+ *
+ * @author pbo
+ */
 public final class BoardViewModel {
-    public static final int BLACK_WEIGHT = 1000;
+    public static final int BLACK_WEIGHT = Board.OBSTACLE_WEIGHT;
+    private static final Logger log = LoggerFactory.getLogger(BoardViewModel.class);
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "path-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ReentrantLock boardLock = new ReentrantLock();
+    private final ReadOnlyBooleanWrapper busy = new ReadOnlyBooleanWrapper();
     private final ReadOnlyObjectWrapper<Board> board = new ReadOnlyObjectWrapper<>();
     private final ReadOnlyObjectWrapper<Image> image = new ReadOnlyObjectWrapper<>();
     private final ObservableList<PathViewModel> paths = FXCollections.observableArrayList();
@@ -27,6 +62,9 @@ public final class BoardViewModel {
     private final ReadOnlyObjectWrapper<Cell> originCell = new ReadOnlyObjectWrapper<>();
     private final ReadOnlyObjectWrapper<Cell> destinationCell = new ReadOnlyObjectWrapper<>();
     private final IntegerProperty pathCount = new SimpleIntegerProperty(3);
+    private final ObjectProperty<CostModel> costModel = new SimpleObjectProperty<>(CostModel.DEFAULT);
+    private Future<?> pendingSearch;
+    private long searchGeneration;
 
     public BoardViewModel() {
         this.immutablePaths = FXCollections.unmodifiableObservableList(this.paths);
@@ -34,6 +72,10 @@ public final class BoardViewModel {
         this.pathCount.addListener((prop, oldVal, newVal) -> {
             findPaths();
         });
+        this.costModel.addListener((prop, oldVal, newVal) -> {
+            applyCostModel();
+            findPaths();
+        });
     }
 
     public ReadOnlyObjectProperty<Board> boardProperty() {
@@ -60,31 +102,50 @@ public final class BoardViewModel {
         return this.pathCount;
     }
 
-    public void createNewBoard(int width, int height) {
-        this.board.set(new Board(width, height));
-        this.paths.clear();
-        this.image.set(null);
+    /**
+     * The cost model applied to the board, also to boards set later.
+     */
+    public ObjectProperty<CostModel> costModelProperty() {
+        return this.costModel;
     }
 
-    public void importFromImage(Image image) throws IOException {
-        final Image scaledImage = scaleImage(image);
-        final int width = (int) scaledImage.getWidth();
-        final int height = (int) scaledImage.getHeight();
-        final PixelReader reader = scaledImage.getPixelReader();
-        final int[] buffer = new int[width * height];
+    /**
+     * {@code true} while a search is running or waiting to run.
+     */
+    public ReadOnlyBooleanProperty busyProperty() {
+        return this.busy.getReadOnlyProperty();
+    }
 
-        reader.getPixels(0, 0, width, height, WritablePixelFormat.getIntArgbInstance(), buffer, 0, width);
+    public void createNewBoard(int width, int height) {
+        setBoard(new Board(width, height));
+    }
 
-        final Board board = Board.fromBuffer(buffer, width, height, pixel -> {
-            final Color color = Color.rgb((pixel >> 16) & 0xff, (pixel >> 8) & 0xff, (pixel >> 0) & 0xff);
-            return BLACK_WEIGHT - (int)(color.getBrightness() * BLACK_WEIGHT);
-        });
+    /**
+     * Shows {@code board}, which has no background image.
+     */
+    public void setBoard(Board board) {
+        setBoard(board, null);
+    }
 
+    /**
+     * Shows {@code board} with {@code image} as background.
+     */
+    public void setBoard(Board board, Image image) {
+        cancelSearch();
+        board.setCostModel(this.costModel.get());
         this.board.set(board);
         this.paths.clear();
         this.image.set(image);
     }
 
+    /**
+     * Sets the weight of {@code cell}. A running search is not affected and
+     * finds its paths with the weights from before the change.
+     */
+    public void setWeight(Cell cell, int weight) {
+        cell.setWeight(weight);
+    }
+
     public void setOriginAndDestination(Cell origin, Cell destination) {
         this.originCell.set(origin);
         this.destinationCell.set(destination);
@@ -92,32 +153,123 @@ public final class BoardViewModel {
         findPaths();
     }
 
+    /**
+     * Replaces the paths with the cheapest path only, which is repaired
+     * incrementally from the last call instead of being searched from
+     * scratch. Meant to be called while weights are being edited; call
+     * {@link #updatePaths()} when done.
+     */
+    public void updateBestPath() {
+        final Board board = this.board.get();
+        final Cell origin = this.originCell.get();
+        final Cell destination = this.destinationCell.get();
+
+        if (board != null && origin != null && destination != null) {
+            submitSearch(() -> {
+                final SearchResult result = board.findPathWithStatistics(origin, destination, SearchMode.INCREMENTAL);
+                final Path<Cell> path = result.getPath();
+
+                return path != null
+                        ? Collections.singletonList(new PathViewModel(path, new PathPaintGenerator().next(), result.getStatistics()))
+                        : Collections.<PathViewModel>emptyList();
+            });
+        }
+    }
+
+    public void updatePaths() {
+        findPaths();
+    }
+
     /////////////////////////////////////////////////////////////////
 
-    private static Image scaleImage(Image image) {
-        final ImageView imageView = new ImageView(image);
-        imageView.setPreserveRatio(true);
-        imageView.setFitWidth(image.getWidth() / 8);
-        imageView.setFitHeight(image.getHeight() / 8);
-        imageView.setSmooth(true);
-        return imageView.snapshot(null, null);
+    /**
+     * Sets the cost model of the board, cancelling the running search first.
+     */
+    private void applyCostModel() {
+        final Board board = this.board.get();
+
+        if (board != null) {
+            cancelSearch();
+            this.boardLock.lock();
+
+            try {
+                board.setCostModel(this.costModel.get());
+            } finally {
+                this.boardLock.unlock();
+            }
+        }
     }
 
     private void findPaths() {
         final Board board = this.board.get();
         final Cell origin = this.originCell.get();
         final Cell destination = this.destinationCell.get();
-        final PathPaintGenerator paintGenerator = new PathPaintGenerator();
+        final int pathCount = this.pathCount.get();
 
         if (board != null && origin != null && destination != null) {
-            this.paths.setAll(
-                board.findPaths(origin, destination, this.pathCount.get())
+            submitSearch(() -> {
+                final SearchResult result = board.findPathsWithStatistics(origin, destination, pathCount);
+                final PathPaintGenerator paintGenerator = new PathPaintGenerator();
+
+                return result.getPaths()
                     .stream()
-                    .map(path -> new PathViewModel(path, paintGenerator.next()))
-                    .collect(Collectors.toList()));
+                    .map(path -> new PathViewModel(path, paintGenerator.next(), result.getStatistics()))
+                    .collect(Collectors.toList());
+            });
         }
     }
 
+    /**
+     * Runs {@code search} on the search thread, replacing the paths with
+     * its result unless another search has been submitted in between.
+     */
+    private void submitSearch(Supplier<List<PathViewModel>> search) {
+        cancelSearch();
+
+        final long generation = this.searchGeneration;
+        this.busy.set(true);
+        this.pendingSearch = this.searchExecutor.submit(() -> {
+            List<PathViewModel> result = null;
+            this.boardLock.lock();
+
+            try {
+                result = search.get();
+            } catch (CancellationException e) {
+                // superseded by a newer request
+                return;
+            } catch (RuntimeException e) {
+                log.error("Error searching paths", e);
+            } finally {
+                this.boardLock.unlock();
+            }
+
+            final List<PathViewModel> paths = result;
+            Platform.runLater(() -> {
+                if (generation == this.searchGeneration) {
+                    if (paths != null) {
+                        this.paths.setAll(paths);
+                    }
+                    this.busy.set(false);
+                }
+            });
+        });
+    }
+
+    /**
+     * Interrupts the running search and drops the results of all
+     * submitted searches.
+     */
+    private void cancelSearch() {
+        this.searchGeneration++;
+
+        if (this.pendingSearch != null) {
+            this.pendingSearch.cancel(true);
+            this.pendingSearch = null;
+        }
+
+        this.busy.set(false);
+    }
+
     private static class PathPaintGenerator {
         final Color firstColor = Color.RED;
         double hue;
@@ -1,28 +1,97 @@
 package net.smackem.mavenfx.gui.application;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
 
+import javafx.application.Platform;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import javafx.scene.image.Image;
+import net.smackem.mavenfx.model.Board;
+import net.smackem.mavenfx.model.BoardFile;
+import net.smackem.mavenfx.model.ImageImporter;
 
 public final class MainViewModel {
     private final BoardViewModel boardViewModel = new BoardViewModel();
+    private final IntegerProperty importScale = new SimpleIntegerProperty(ImageImporter.DEFAULT_SCALE);
 
     public BoardViewModel getBoardViewModel() {
         return this.boardViewModel;
     }
 
-    public void loadBoardFromImage(String imagePath) throws IOException {
-        final Image image = loadImage(imagePath);
-        this.boardViewModel.importFromImage(image);
+    /**
+     * The number of image pixels per board cell along each axis used by
+     * {@link #loadBoardFromImage(String)}.
+     */
+    public IntegerProperty importScaleProperty() {
+        return this.importScale;
     }
 
-    /////////////////////////////////////////////////////////////////
+    /**
+     * Imports the board from the image at {@code imagePath} in the
+     * background and shows it once done.
+     *
+     * @return a future completed on the FX application thread when the
+     *      board is shown, or completed exceptionally with an
+     *      {@link IOException} if the image cannot be imported.
+     */
+    public CompletableFuture<Void> loadBoardFromImage(String imagePath) {
+        final File file = new File(imagePath);
+        final ImageImporter importer = new ImageImporter(this.importScale.get());
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return importer.importBoard(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).thenAcceptAsync(board -> {
+            this.boardViewModel.setBoard(board, loadBackgroundImage(file, board, importer.getScale()));
+        }, Platform::runLater);
+    }
+
+    public void loadBoardFromFile(String boardPath) throws IOException {
+        this.boardViewModel.setBoard(BoardFile.open(new File(boardPath)));
+    }
+
+    /**
+     * Saves the current board to {@code boardPath} in the background.
+     * Changes made to the board while it is being saved are not included.
+     *
+     * @return a future completed when the board has been saved, or
+     *      completed exceptionally with an {@link IOException} if it cannot
+     *      be saved.
+     */
+    public CompletableFuture<Void> saveBoardToFile(String boardPath) {
+        final Board board = this.boardViewModel.boardProperty().get();
 
-    private static Image loadImage(String imagePath) throws IOException {
-        try (final InputStream is = new FileInputStream(imagePath)) {
-            return new Image(is);
+        if (board == null) {
+            return CompletableFuture.completedFuture(null);
         }
+
+        final Board snapshot = board.snapshot();
+        final File file = new File(boardPath);
+
+        return CompletableFuture.runAsync(() -> {
+            try {
+                BoardFile.save(snapshot, file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    /**
+     * Loads the image to show behind the board in the background, at no
+     * more than twice the resolution of the board.
+     */
+    private static Image loadBackgroundImage(File file, Board board, int scale) {
+        final int factor = Math.min(scale, 2);
+        return new Image(file.toURI().toString(),
+                board.getWidth() * factor, board.getHeight() * factor, true, true, true);
     }
 }
@@ -2,28 +2,34 @@ package net.smackem.mavenfx.gui.application;
 
 import javafx.scene.paint.Paint;
 import net.smackem.mavenfx.model.Cell;
+import net.smackem.mavenfx.model.CellPath;
 import net.smackem.mavenfx.model.Path;
+import net.smackem.mavenfx.model.SearchStatistics;
 
-import java.util.Collection;
 import java.util.Objects;
 
 /**
+ * A path found for the board, kept as a {@link CellPath} so that it takes
+ * 4 bytes per cell for as long as it is displayed.
+ *
  * @author pbo
  */
 public final class PathViewModel {
-    private final Path<Cell> path;
-    private final Collection<Cell> cells;
+    private final CellPath path;
     private final Paint stroke;
+    private final SearchStatistics statistics;
 
-    public PathViewModel(Path<Cell> path, Paint stroke) {
-        Objects.requireNonNull(path);
-        this.path = path;
-        this.cells = path.getNodes();
+    public PathViewModel(Path<Cell> path, Paint stroke, SearchStatistics statistics) {
+        this.path = CellPath.of(path);
         this.stroke = stroke;
+        this.statistics = Objects.requireNonNull(statistics);
     }
 
-    public Collection<Cell> getCells() {
-        return this.cells;
+    /**
+     * @return the cells of the path, from the origin to the destination.
+     */
+    public CellPath getPath() {
+        return this.path;
     }
 
     public double getTotalCost() {
@@ -33,4 +39,12 @@ public final class PathViewModel {
     public Paint getStroke() {
         return this.stroke;
     }
+
+    /**
+     * @return the statistics of the query that found this path, shared by
+     *      all paths found by the same query.
+     */
+    public SearchStatistics getStatistics() {
+        return this.statistics;
+    }
 }
@@ -1,18 +1,29 @@
 package net.smackem.mavenfx.gui.presentation;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javafx.animation.AnimationTimer;
 import javafx.collections.ListChangeListener;
 import javafx.fxml.FXML;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
+import javafx.scene.Group;
+import javafx.scene.Node;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Line;
 import net.smackem.mavenfx.gui.application.BoardViewModel;
@@ -20,19 +31,65 @@ import net.smackem.mavenfx.gui.application.PathViewModel;
 import net.smackem.mavenfx.gui.util.Views;
 import net.smackem.mavenfx.model.Board;
 import net.smackem.mavenfx.model.Cell;
+import net.smackem.mavenfx.model.CellPath;
 
 /**
+ * Shows a board of any size by drawing only the part visible in the
+ * viewport.
+ * <p>
+ * The content of the scroll pane is an empty pane as large as the whole
+ * board. The weights are shown by tiles from a {@link WeightTileCache},
+ * of which only the visible ones are attached; when zoomed out, tiles of a
+ * coarser level are used, so that a tile pixel is never much smaller than
+ * a screen pixel. Paths and the grid are drawn on a canvas of the size of
+ * the viewport that follows the scroll position; the grid is hidden when
+ * the cells get too small. Changes are collected and drawn at most once
+ * per animation pulse, and new tiles are rendered within a time budget per
+ * pulse, keeping the tiles of the previous zoom level until they are
+ * replaced.
+ * <p>
+ * Scrolling with the control key held down zooms around the mouse pointer.
+ *
  * @author pbo
  */
 public class BoardView extends ScrollPane {
 
     private static final Logger log = LoggerFactory.getLogger(BoardView.class);
-    private static final int CELL_LENGTH = 6;
+    private static final double DEFAULT_CELL_LENGTH = 6.0;
+    private static final double MIN_CELL_LENGTH = 1.0 / 64;
+    private static final double MAX_CELL_LENGTH = 32.0;
+    private static final double ZOOM_FACTOR = 1.25;
+    private static final double MIN_GRID_CELL_LENGTH = 4.0;
+    private static final long TILE_BUDGET_NANOS = 8_000_000L;
     private final BoardViewModel model;
+    private final Board.WeightListener weightListener = this::onWeightChanged;
+    private final Map<Long, ImageView> tileViews = new HashMap<>();
+    private final AnimationTimer redrawTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            redraw();
+        }
+    };
     private DragState dragState;
+    private WeightTileCache tileCache;
+    private double cellLength = DEFAULT_CELL_LENGTH;
+    private int tileLevel;
+    private int dirtyMinX = Integer.MAX_VALUE;
+    private int dirtyMinY = Integer.MAX_VALUE;
+    private int dirtyMaxX = Integer.MIN_VALUE;
+    private int dirtyMaxY = Integer.MIN_VALUE;
+
+    @FXML
+    private Pane content;
 
     @FXML
-    private Canvas canvas;
+    private Group previousTileLayer;
+
+    @FXML
+    private Group tileLayer;
+
+    @FXML
+    private Canvas overlayCanvas;
 
     @FXML
     private Line dragLine;
@@ -45,20 +102,34 @@ public class BoardView extends ScrollPane {
 
         this.model = model;
         this.model.boardProperty().addListener((prop, oldVal, newVal) -> {
-            resizeCanvas();
-            redrawBoard();
+            if (oldVal != null) {
+                oldVal.removeWeightListener(this.weightListener);
+            }
+            if (newVal != null) {
+                newVal.addWeightListener(this.weightListener);
+            }
+            this.tileCache = newVal != null ? new WeightTileCache(newVal) : null;
+            this.tileLayer.getChildren().clear();
+            this.previousTileLayer.getChildren().clear();
+            this.tileViews.clear();
+            resizeContent();
         });
         this.model.getPaths().addListener((ListChangeListener<PathViewModel>) ignored -> {
-            redrawBoard();
+            this.redrawTimer.start();
         });
 
         this.imageView.imageProperty().bind(this.model.imageProperty());
-        this.imageView.fitWidthProperty().bind(this.canvas.widthProperty());
-        this.imageView.fitHeightProperty().bind(this.canvas.heightProperty());
+        this.imageView.fitWidthProperty().bind(this.content.prefWidthProperty());
+        this.imageView.fitHeightProperty().bind(this.content.prefHeightProperty());
 
-        this.canvas.addEventHandler(MouseEvent.MOUSE_PRESSED, this::onMousePressed);
-        this.canvas.addEventHandler(MouseEvent.MOUSE_DRAGGED, this::onMouseDragged);
-        this.canvas.addEventHandler(MouseEvent.MOUSE_RELEASED, this::onMouseReleased);
+        hvalueProperty().addListener(ignored -> this.redrawTimer.start());
+        vvalueProperty().addListener(ignored -> this.redrawTimer.start());
+        viewportBoundsProperty().addListener(ignored -> this.redrawTimer.start());
+        addEventFilter(ScrollEvent.SCROLL, this::onScroll);
+
+        this.content.addEventHandler(MouseEvent.MOUSE_PRESSED, this::onMousePressed);
+        this.content.addEventHandler(MouseEvent.MOUSE_DRAGGED, this::onMouseDragged);
+        this.content.addEventHandler(MouseEvent.MOUSE_RELEASED, this::onMouseReleased);
     }
 
     /////////////////////////////////////////////////////////////////
@@ -88,92 +159,264 @@ public class BoardView extends ScrollPane {
         event.consume();
     }
 
-    private void resizeCanvas() {
-        final int boardWidth;
-        final int boardHeight;
+    private void onScroll(ScrollEvent event) {
+        if (event.isControlDown() == false || event.getDeltaY() == 0.0) {
+            return;
+        }
+
+        final double factor = event.getDeltaY() > 0 ? ZOOM_FACTOR : 1.0 / ZOOM_FACTOR;
+        final Point2D anchor = this.content.sceneToLocal(event.getSceneX(), event.getSceneY());
+        zoom(factor, anchor.getX(), anchor.getY());
+        event.consume();
+    }
+
+    /**
+     * Scales the cells by {@code factor}, keeping the point
+     * {@code anchorX}/{@code anchorY} of the content at the same position
+     * in the viewport.
+     */
+    private void zoom(double factor, double anchorX, double anchorY) {
+        final double newCellLength = Math.max(MIN_CELL_LENGTH, Math.min(this.cellLength * factor, MAX_CELL_LENGTH));
+        final Bounds visible = getVisibleBounds();
+        final double viewportX = anchorX - visible.getMinX();
+        final double viewportY = anchorY - visible.getMinY();
+        final double scale = newCellLength / this.cellLength;
+
+        this.cellLength = newCellLength;
+        resizeContent();
+
+        final double scrollWidth = this.content.getPrefWidth() - visible.getWidth();
+        final double scrollHeight = this.content.getPrefHeight() - visible.getHeight();
+        setHvalue(scrollWidth > 0 ? (anchorX * scale - viewportX) / scrollWidth : 0.0);
+        setVvalue(scrollHeight > 0 ? (anchorY * scale - viewportY) / scrollHeight : 0.0);
+    }
+
+    private void onWeightChanged(int col, int row) {
+        this.dirtyMinX = Math.min(this.dirtyMinX, col);
+        this.dirtyMinY = Math.min(this.dirtyMinY, row);
+        this.dirtyMaxX = Math.max(this.dirtyMaxX, col);
+        this.dirtyMaxY = Math.max(this.dirtyMaxY, row);
+        this.redrawTimer.start();
+    }
+
+    private void resizeContent() {
         final Board board = getBoard();
+        final double contentWidth = board != null ? board.getWidth() * this.cellLength : 0.0;
+        final double contentHeight = board != null ? board.getHeight() * this.cellLength : 0.0;
+
+        this.content.setMinSize(contentWidth, contentHeight);
+        this.content.setPrefSize(contentWidth, contentHeight);
+        this.content.setMaxSize(contentWidth, contentHeight);
+
+        // use the level whose tile pixels are at least half a screen pixel
+        final int level = Math.max(0, (int) Math.floor(-Math.log(this.cellLength) / Math.log(2)));
+
+        if (level != this.tileLevel) {
+            this.tileLevel = level;
+            final List<Node> views = new ArrayList<>(this.tileLayer.getChildren());
+            this.tileLayer.getChildren().clear();
+            this.previousTileLayer.getChildren().setAll(views);
+            this.tileViews.clear();
+        }
 
-        if (board == null) {
-            boardWidth = 0;
-            boardHeight = 0;
-        } else {
-            boardWidth = board.getWidth();
-            boardHeight = board.getHeight();
+        for (final Node view : this.previousTileLayer.getChildren()) {
+            placeTile((ImageView) view);
         }
 
-        final double canvasWidth = boardWidth * CELL_LENGTH;
-        final double canvasHeight = boardHeight * CELL_LENGTH;
+        for (final Node view : this.tileLayer.getChildren()) {
+            placeTile((ImageView) view);
+        }
 
-        canvas.setWidth(canvasWidth + 0.5);
-        canvas.setHeight(canvasHeight + 0.5);
+        this.redrawTimer.start();
     }
 
-    private void redrawBoard() {
+    /**
+     * Draws the changes collected since the last pulse. Keeps the timer
+     * running while visible tiles are still missing.
+     */
+    private void redraw() {
+        this.redrawTimer.stop();
+
         final Board board = getBoard();
-        final GraphicsContext dc = this.canvas.getGraphicsContext2D();
+        final GraphicsContext dc = this.overlayCanvas.getGraphicsContext2D();
+
+        if (board == null || this.tileCache == null) {
+            dc.clearRect(0, 0, this.overlayCanvas.getWidth(), this.overlayCanvas.getHeight());
+            return;
+        }
+
+        if (this.dirtyMinX <= this.dirtyMaxX) {
+            this.tileCache.update(this.dirtyMinX, this.dirtyMinY, this.dirtyMaxX, this.dirtyMaxY);
+            this.dirtyMinX = Integer.MAX_VALUE;
+            this.dirtyMinY = Integer.MAX_VALUE;
+            this.dirtyMaxX = Integer.MIN_VALUE;
+            this.dirtyMaxY = Integer.MIN_VALUE;
+        }
 
-        dc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        final Bounds visible = getVisibleBounds();
+        final boolean complete = updateTiles(board, visible);
 
-        if (board == null) {
-          return;
+        if (complete) {
+            this.previousTileLayer.getChildren().clear();
+        } else {
+            this.redrawTimer.start();
         }
 
-        final int boardWidth = board.getWidth();
-        final int boardHeight = board.getHeight();
-        final double canvasWidth = boardWidth * CELL_LENGTH;
-        final double canvasHeight = boardHeight * CELL_LENGTH;
+        drawOverlay(board, visible);
+    }
+
+    /**
+     * Shows the tiles covering {@code visible}, rendering missing tiles
+     * until the time budget of this pulse is used up.
+     *
+     * @return {@code true} if all visible tiles are shown.
+     */
+    private boolean updateTiles(Board board, Bounds visible) {
+        final long span = WeightTileCache.getTileSpan(this.tileLevel);
+        final double tileLength = span * this.cellLength;
+        final int firstTileX = (int) (visible.getMinX() / tileLength);
+        final int firstTileY = (int) (visible.getMinY() / tileLength);
+        final int lastTileX = (int) Math.min(visible.getMaxX() / tileLength, (board.getWidth() - 1) / span);
+        final int lastTileY = (int) Math.min(visible.getMaxY() / tileLength, (board.getHeight() - 1) / span);
+        final long deadline = System.nanoTime() + TILE_BUDGET_NANOS;
+        final Map<Long, ImageView> visibleViews = new HashMap<>();
+        boolean complete = true;
+
+        for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+            for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+                final long key = (long) tileX << 32 | tileY;
+                WritableImage tile = this.tileCache.getTile(this.tileLevel, tileX, tileY);
+
+                if (tile == null) {
+                    if (System.nanoTime() < deadline) {
+                        tile = this.tileCache.renderTile(this.tileLevel, tileX, tileY);
+                    } else {
+                        complete = false;
+                    }
+                }
 
-        // draw cell weights
-        for (int row = 0; row < boardHeight; row++) {
-            for (int col = 0; col < boardWidth; col++) {
-                final Cell cell = board.getCell(col, row);
+                ImageView view = this.tileViews.remove(key);
 
-                if (cell != null && cell.getWeight() > 0) {
-                    dc.setFill(getCellColor(cell));
-                    dc.fillRect(col * CELL_LENGTH, row * CELL_LENGTH, CELL_LENGTH, CELL_LENGTH);
+                if (view == null && tile != null) {
+                    view = new ImageView();
+                    view.setSmooth(false);
+                    view.setUserData(new int[] { this.tileLevel, tileX, tileY });
+                    this.tileLayer.getChildren().add(view);
+                }
+
+                if (view != null) {
+                    if (tile != null && view.getImage() != tile) {
+                        view.setImage(tile);
+                        placeTile(view);
+                    }
+                    visibleViews.put(key, view);
                 }
             }
         }
 
-        // draw path - best path last, in red
+        // detach the tiles scrolled out of view; their images stay cached
+        this.tileLayer.getChildren().removeAll(this.tileViews.values());
+        this.tileViews.clear();
+        this.tileViews.putAll(visibleViews);
+        return complete;
+    }
+
+    private void placeTile(ImageView view) {
+        final int[] position = (int[]) view.getUserData();
+        final int level = position[0];
+        final double tileLength = WeightTileCache.getTileSpan(level) * this.cellLength;
+        final double pixelLength = (1 << level) * this.cellLength;
+
+        view.setLayoutX(position[1] * tileLength);
+        view.setLayoutY(position[2] * tileLength);
+
+        if (view.getImage() != null) {
+            view.setFitWidth(view.getImage().getWidth() * pixelLength);
+            view.setFitHeight(view.getImage().getHeight() * pixelLength);
+        }
+    }
+
+    /**
+     * Draws the paths and, unless the cells are too small, the grid within
+     * {@code visible} onto the overlay canvas, which covers the viewport.
+     */
+    private void drawOverlay(Board board, Bounds visible) {
+        this.overlayCanvas.relocate(visible.getMinX(), visible.getMinY());
+        this.overlayCanvas.setWidth(visible.getWidth());
+        this.overlayCanvas.setHeight(visible.getHeight());
+
+        final GraphicsContext dc = this.overlayCanvas.getGraphicsContext2D();
+        final int firstCol = (int) (visible.getMinX() / this.cellLength);
+        final int firstRow = (int) (visible.getMinY() / this.cellLength);
+        final int lastCol = Math.min((int) (visible.getMaxX() / this.cellLength), board.getWidth() - 1);
+        final int lastRow = Math.min((int) (visible.getMaxY() / this.cellLength), board.getHeight() - 1);
+        final double fillLength = Math.max(this.cellLength, 1.0);
+
+        dc.clearRect(0, 0, visible.getWidth(), visible.getHeight());
+        dc.save();
+        dc.translate(-visible.getMinX(), -visible.getMinY());
+
+        // draw paths - best path last, in red
         final List<PathViewModel> paths = this.model.getPaths();
 
         for (int index = paths.size() - 1; index >= 0; index--) {
-            final PathViewModel path = paths.get(index);
-            dc.setFill(path.getStroke());
+            final CellPath path = paths.get(index).getPath();
+            dc.setFill(paths.get(index).getStroke());
 
-            for (final Cell cell : path.getCells()) {
-                dc.fillRect(cell.getX() * CELL_LENGTH, cell.getY() * CELL_LENGTH, CELL_LENGTH, CELL_LENGTH);
+            for (int position = 0; position < path.size(); position++) {
+                final int x = path.getX(position);
+                final int y = path.getY(position);
+
+                if (x >= firstCol && x <= lastCol && y >= firstRow && y <= lastRow) {
+                    dc.fillRect(x * this.cellLength, y * this.cellLength, fillLength, fillLength);
+                }
             }
         }
 
         // draw grid
-        dc.setStroke(Color.GRAY);
-        dc.setLineWidth(1.0);
+        if (this.cellLength >= MIN_GRID_CELL_LENGTH) {
+            final double minX = firstCol * this.cellLength;
+            final double minY = firstRow * this.cellLength;
+            final double maxX = (lastCol + 1) * this.cellLength;
+            final double maxY = (lastRow + 1) * this.cellLength;
+
+            dc.setStroke(Color.GRAY);
+            dc.setLineWidth(1.0);
+
+            for (int row = firstRow; row <= lastRow + 1; row++) {
+                final double y = Math.floor(row * this.cellLength) + 0.5;
+                dc.strokeLine(minX, y, maxX, y);
+            }
 
-        for (int row = 0; row <= boardHeight; row++) {
-            final double y = row * CELL_LENGTH + 0.5;
-            dc.strokeLine(0, y, canvasWidth, y);
+            for (int col = firstCol; col <= lastCol + 1; col++) {
+                final double x = Math.floor(col * this.cellLength) + 0.5;
+                dc.strokeLine(x, minY, x, maxY);
+            }
         }
 
-        for (int col = 0; col <= boardWidth; col++) {
-            final double x = col * CELL_LENGTH + 0.5;
-            dc.strokeLine(x, 0, x, canvasHeight);
-        }
+        dc.restore();
     }
 
-    private static Color getCellColor(Cell cell) {
-        final double ratio = (double) cell.getWeight() / BoardViewModel.BLACK_WEIGHT;
-        final int channelValue = 255 - (int) (ratio * 255);
-        return Color.rgb(channelValue, channelValue, channelValue);
+    /**
+     * @return the part of the content visible in the viewport, in content
+     *      coordinates.
+     */
+    private Bounds getVisibleBounds() {
+        final Bounds viewport = getViewportBounds();
+        final double scrollWidth = Math.max(this.content.getPrefWidth() - viewport.getWidth(), 0.0);
+        final double scrollHeight = Math.max(this.content.getPrefHeight() - viewport.getHeight(), 0.0);
+
+        return new BoundingBox(getHvalue() * scrollWidth, getVvalue() * scrollHeight,
+                Math.min(viewport.getWidth(), this.content.getPrefWidth()),
+                Math.min(viewport.getHeight(), this.content.getPrefHeight()));
     }
 
     private Cell getCellAt(double x, double y) {
         final Board board = getBoard();
 
         if (board != null) {
-            final int col = (int)(x / CELL_LENGTH);
-            final int row = (int)(y / CELL_LENGTH);
+            final int col = (int)(x / this.cellLength);
+            final int row = (int)(y / this.cellLength);
             return board.getCell(col, row);
         }
 
@@ -206,15 +449,16 @@ public class BoardView extends ScrollPane {
         public void drag(double x, double y) {
             final Cell cell = getCellAt(x, y);
 
-            if (cell != null) {
-                cell.setWeight(this.weightToSet);
+            if (cell != null && cell.getWeight() != this.weightToSet) {
+                model.setWeight(cell, this.weightToSet);
+                model.updateBestPath();
             }
-
-            redrawBoard();
         }
 
         @Override
-        public void finish(double x, double y) { }
+        public void finish(double x, double y) {
+            model.updatePaths();
+        }
     }
 
     private class RoutingDragState implements DragState {
@@ -255,8 +499,8 @@ public class BoardView extends ScrollPane {
 
         Point2D normalizePosition(double x, double y) {
             return new Point2D(
-                    x - x % CELL_LENGTH + CELL_LENGTH / 2.0 + 0.5,
-                    y - y % CELL_LENGTH  + CELL_LENGTH / 2.0 + 0.5);
+                    x - x % cellLength + cellLength / 2.0 + 0.5,
+                    y - y % cellLength + cellLength / 2.0 + 0.5);
         }
     }
 }
@@ -1,5 +1,6 @@
 package net.smackem.mavenfx.gui.presentation;
 
+import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -14,11 +15,15 @@ import net.smackem.mavenfx.gui.application.BoardViewModel;
 import net.smackem.mavenfx.gui.application.MainViewModel;
 import net.smackem.mavenfx.gui.application.PathViewModel;
 import net.smackem.mavenfx.gui.util.Views;
+import net.smackem.mavenfx.model.CostModel;
+import net.smackem.mavenfx.model.ImageImporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletionException;
 
 /**
  * @author pbo
@@ -26,9 +31,16 @@ import java.io.IOException;
 public class MainView extends BorderPane {
 
     private static Logger log = LoggerFactory.getLogger(MainView.class);
+
+    /**
+     * The spinners show the penalties of the cost model in hundredths.
+     */
+    private static final double PENALTY_UNIT = 0.01;
+    private static final int MAX_PENALTY = 1000;
     private final MainViewModel model;
     private final Stage mainStage;
     private final ObjectProperty<Integer> pathCountProperty;
+    private final ObjectProperty<Integer> importScaleProperty;
 
     @FXML
     private Pane boardPane;
@@ -42,6 +54,18 @@ public class MainView extends BorderPane {
     @FXML
     private Spinner<Integer> diagonalsValueSpinner;
 
+    @FXML
+    private Spinner<Integer> turnsValueSpinner;
+
+    @FXML
+    private CheckBox diagonalStepsCheckBox;
+
+    @FXML
+    private Spinner<Integer> importScaleSpinner;
+
+    @FXML
+    private ProgressBar searchProgressBar;
+
     /**
      * Initializes a new instance of {@link MainView}.
      */
@@ -59,26 +83,63 @@ public class MainView extends BorderPane {
         this.pathCountProperty = boardViewModel.pathCountProperty().asObject();
         this.pathCountChoiceBox.valueProperty().bindBidirectional(this.pathCountProperty);
 
-        this.diagonalsValueSpinner.setValueFactory(
-            new SpinnerValueFactory.IntegerSpinnerValueFactory(Integer.MIN_VALUE, Integer.MAX_VALUE));
-        this.diagonalsValueSpinner.getValueFactory().valueProperty().bind(
-            boardViewModel.pathCountProperty().add(100).multiply(2).asObject());
+        final CostModel costModel = boardViewModel.costModelProperty().get();
+        this.diagonalsValueSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(
+            0, MAX_PENALTY, (int) Math.round(costModel.getDiagonalPenalty() / PENALTY_UNIT)));
+        this.diagonalsValueSpinner.valueProperty().addListener((prop, oldVal, newVal) -> updateCostModel());
+        this.turnsValueSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(
+            0, MAX_PENALTY, (int) Math.round(costModel.getTurnPenalty() / PENALTY_UNIT)));
+        this.turnsValueSpinner.valueProperty().addListener((prop, oldVal, newVal) -> updateCostModel());
+        this.diagonalStepsCheckBox.setSelected(costModel.getConnectivity() == CostModel.Connectivity.EIGHT);
+        this.diagonalStepsCheckBox.selectedProperty().addListener((prop, oldVal, newVal) -> updateCostModel());
+        this.diagonalsValueSpinner.disableProperty().bind(this.diagonalStepsCheckBox.selectedProperty().not());
+
+        this.importScaleSpinner.setValueFactory(
+            new SpinnerValueFactory.IntegerSpinnerValueFactory(1, ImageImporter.MAX_SCALE));
+        this.importScaleProperty = this.model.importScaleProperty().asObject();
+        this.importScaleSpinner.getValueFactory().valueProperty().bindBidirectional(this.importScaleProperty);
 
         this.pathsListView.setCellFactory(listView -> new ColorRectCell());
         this.pathsListView.setItems(boardViewModel.getPaths());
+        this.searchProgressBar.visibleProperty().bind(boardViewModel.busyProperty());
     }
 
     /////////////////////////////////////////////////////////////////
 
+    private void updateCostModel() {
+        this.model.getBoardViewModel().costModelProperty().set(new CostModel(
+            this.diagonalStepsCheckBox.isSelected() ? CostModel.Connectivity.EIGHT : CostModel.Connectivity.FOUR,
+            this.diagonalsValueSpinner.getValue() * PENALTY_UNIT,
+            this.turnsValueSpinner.getValue() * PENALTY_UNIT));
+    }
+
     @FXML
     private void onOpenAction(ActionEvent event) {
         final FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Open Image File");
         final File file = fileChooser.showOpenDialog(this.mainStage);
 
+        if (file != null) {
+            this.model.loadBoardFromImage(file.getAbsolutePath()).whenComplete((ignored, e) -> {
+                if (e != null) {
+                    final Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    final Throwable error = cause instanceof UncheckedIOException ? cause.getCause() : cause;
+                    log.error("Error opening " + file.getPath(), error);
+                    Platform.runLater(() ->
+                        new Alert(AlertType.ERROR, error.getMessage(), ButtonType.CLOSE).showAndWait());
+                }
+            });
+        }
+    }
+
+    @FXML
+    private void onOpenBoardAction(ActionEvent event) {
+        final FileChooser fileChooser = createBoardFileChooser("Open Board");
+        final File file = fileChooser.showOpenDialog(this.mainStage);
+
         if (file != null) {
             try {
-                this.model.loadBoardFromImage(file.getAbsolutePath());
+                this.model.loadBoardFromFile(file.getAbsolutePath());
             } catch (IOException e) {
                 log.error("Error opening " + file.getPath(), e);
                 new Alert(AlertType.ERROR, e.getMessage(), ButtonType.CLOSE).showAndWait();
@@ -86,11 +147,36 @@ public class MainView extends BorderPane {
         }
     }
 
+    @FXML
+    private void onSaveBoardAction(ActionEvent event) {
+        final FileChooser fileChooser = createBoardFileChooser("Save Board");
+        final File file = fileChooser.showSaveDialog(this.mainStage);
+
+        if (file != null) {
+            this.model.saveBoardToFile(file.getAbsolutePath()).whenComplete((ignored, e) -> {
+                if (e != null) {
+                    final Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    final Throwable error = cause instanceof UncheckedIOException ? cause.getCause() : cause;
+                    log.error("Error saving " + file.getPath(), error);
+                    Platform.runLater(() ->
+                        new Alert(AlertType.ERROR, error.getMessage(), ButtonType.CLOSE).showAndWait());
+                }
+            });
+        }
+    }
+
     @FXML
     private void onCreateAction(ActionEvent event) {
         this.model.getBoardViewModel().createNewBoard(400, 400);
     }
 
+    private static FileChooser createBoardFileChooser(String title) {
+        final FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(title);
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Boards", "*.mfxb"));
+        return fileChooser;
+    }
+
     private static class ColorRectCell extends ListCell<PathViewModel> {
         @Override
         public void updateItem(PathViewModel item, boolean empty) {
@@ -105,7 +191,7 @@ public class MainView extends BorderPane {
             final Rectangle rect = new Rectangle(16, 16);
             rect.setFill(item.getStroke());
             setGraphic(rect);
-            setText(Double.toString(item.getTotalCost()));
+            setText(Double.toString(item.getTotalCost()) + " (" + item.getStatistics() + ")");
         }
     }
 }
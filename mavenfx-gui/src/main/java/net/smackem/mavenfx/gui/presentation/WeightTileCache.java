@@ -0,0 +1,238 @@
+package net.smackem.mavenfx.gui.presentation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import net.smackem.mavenfx.gui.application.BoardViewModel;
+import net.smackem.mavenfx.model.Board;
+
+/**
+ * Renders the weights of a board into square tiles of {@link #TILE_SIZE}
+ * pixels and keeps the recently used ones.
+ * <p>
+ * At level {@code 0} a tile pixel shows one cell; at level {@code n} it
+ * shows the average of a block of {@code 2^n x 2^n} cells. To keep the cost
+ * of a tile independent of the level, at most {@link #SAMPLES} cells per
+ * axis of a block are averaged, spread evenly over the block.
+ * <p>
+ * When weights change, the pixels of the cached tiles of level {@code 0}
+ * are rewritten in place, while the tiles of coarser levels only remember
+ * the stale rectangle and rewrite it the next time they are rendered.
+ *
+ * @author pbo
+ */
+final class WeightTileCache {
+    static final int TILE_SIZE = 128;
+    private static final int SAMPLES = 4;
+    private static final int MAX_TILE_COUNT = 512;
+    private static final int[] WEIGHT_COLORS = createWeightColors();
+    private final Board board;
+    private final Map<Key, Tile> tiles = new LinkedHashMap<Key, Tile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Tile> eldest) {
+            return size() > MAX_TILE_COUNT;
+        }
+    };
+
+    WeightTileCache(Board board) {
+        this.board = Objects.requireNonNull(board);
+    }
+
+    /**
+     * @return the number of cells along each axis covered by a tile of
+     *      {@code level}.
+     */
+    static long getTileSpan(int level) {
+        return (long) TILE_SIZE << level;
+    }
+
+    /**
+     * @return the cached tile or {@code null} if it needs to be rendered.
+     */
+    WritableImage getTile(int level, int tileX, int tileY) {
+        final Tile tile = this.tiles.get(new Key(level, tileX, tileY));
+        return tile != null && tile.isStale() == false ? tile.image : null;
+    }
+
+    /**
+     * Renders the specified tile or, if it is cached but stale, only its
+     * stale pixels.
+     */
+    WritableImage renderTile(int level, int tileX, int tileY) {
+        final Key key = new Key(level, tileX, tileY);
+        Tile tile = this.tiles.get(key);
+
+        if (tile == null) {
+            final int blockSize = 1 << level;
+            final long span = getTileSpan(level);
+            final int width = (int) ((Math.min((tileX + 1) * span, this.board.getWidth()) - tileX * span
+                    + blockSize - 1) / blockSize);
+            final int height = (int) ((Math.min((tileY + 1) * span, this.board.getHeight()) - tileY * span
+                    + blockSize - 1) / blockSize);
+            tile = new Tile(new WritableImage(width, height));
+            renderPixels(key, tile.image, 0, 0, width - 1, height - 1);
+            this.tiles.put(key, tile);
+        } else if (tile.isStale()) {
+            renderPixels(key, tile.image, tile.staleMinX, tile.staleMinY, tile.staleMaxX, tile.staleMaxY);
+            tile.clearStale();
+        }
+
+        return tile.image;
+    }
+
+    /**
+     * Updates the tiles showing any of the cells in the given rectangle:
+     * tiles of level {@code 0} right away, tiles of coarser levels by
+     * marking the affected pixels as stale.
+     */
+    void update(int minCol, int minRow, int maxCol, int maxRow) {
+        for (final Map.Entry<Key, Tile> entry : this.tiles.entrySet()) {
+            final Key key = entry.getKey();
+            final long span = getTileSpan(key.level);
+            final long firstCol = key.tileX * span;
+            final long firstRow = key.tileY * span;
+
+            if (firstCol > maxCol || firstCol + span <= minCol || firstRow > maxRow || firstRow + span <= minRow) {
+                continue;
+            }
+
+            final int minX = (int) (Math.max(minCol - firstCol, 0) >> key.level);
+            final int minY = (int) (Math.max(minRow - firstRow, 0) >> key.level);
+            final int maxX = (int) (Math.min(maxCol - firstCol, span - 1) >> key.level);
+            final int maxY = (int) (Math.min(maxRow - firstRow, span - 1) >> key.level);
+
+            if (key.level == 0) {
+                renderPixels(key, entry.getValue().image, minX, minY, maxX, maxY);
+            } else {
+                entry.getValue().markStale(minX, minY, maxX, maxY);
+            }
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    /**
+     * Renders the pixels from {@code minX/minY} to {@code maxX/maxY},
+     * inclusive, of the tile {@code key} into {@code image}.
+     */
+    private void renderPixels(Key key, WritableImage image, int minX, int minY, int maxX, int maxY) {
+        final int blockSize = 1 << key.level;
+        final long span = getTileSpan(key.level);
+        final int firstCol = (int) (key.tileX * span);
+        final int firstRow = (int) (key.tileY * span);
+        final int lastCol = (int) Math.min(firstCol + span, this.board.getWidth());
+        final int lastRow = (int) Math.min(firstRow + span, this.board.getHeight());
+        final int width = maxX - minX + 1;
+        final int height = maxY - minY + 1;
+        final int step = Math.max(blockSize / SAMPLES, 1);
+        final int[] pixels = new int[width * height];
+        int index = 0;
+
+        for (int y = minY; y <= maxY; y++) {
+            final int blockRow = firstRow + y * blockSize;
+            final int blockLastRow = Math.min(blockRow + blockSize, lastRow);
+
+            for (int x = minX; x <= maxX; x++) {
+                final int blockCol = firstCol + x * blockSize;
+                final int blockLastCol = Math.min(blockCol + blockSize, lastCol);
+                long sum = 0;
+                int count = 0;
+
+                for (int row = blockRow; row < blockLastRow; row += step) {
+                    for (int col = blockCol; col < blockLastCol; col += step) {
+                        sum += this.board.getWeight(col, row);
+                        count++;
+                    }
+                }
+
+                pixels[index++] = getWeightColor((int) (sum / count));
+            }
+        }
+
+        image.getPixelWriter().setPixels(minX, minY, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+    }
+
+    private static int getWeightColor(int weight) {
+        return WEIGHT_COLORS[Math.max(0, Math.min(weight, BoardViewModel.BLACK_WEIGHT))];
+    }
+
+    /**
+     * @return the ARGB colors of all weights up to
+     *      {@link BoardViewModel#BLACK_WEIGHT}: transparent for {@code 0},
+     *      otherwise gray getting darker with the weight.
+     */
+    private static int[] createWeightColors() {
+        final int[] colors = new int[BoardViewModel.BLACK_WEIGHT + 1];
+
+        for (int weight = 1; weight < colors.length; weight++) {
+            final double ratio = (double) weight / BoardViewModel.BLACK_WEIGHT;
+            final int channelValue = 255 - (int) (ratio * 255);
+            colors[weight] = 0xff000000 | channelValue << 16 | channelValue << 8 | channelValue;
+        }
+
+        return colors;
+    }
+
+    private static final class Tile {
+        final WritableImage image;
+        int staleMinX = Integer.MAX_VALUE;
+        int staleMinY = Integer.MAX_VALUE;
+        int staleMaxX = Integer.MIN_VALUE;
+        int staleMaxY = Integer.MIN_VALUE;
+
+        Tile(WritableImage image) {
+            this.image = image;
+        }
+
+        boolean isStale() {
+            return this.staleMinX <= this.staleMaxX;
+        }
+
+        void markStale(int minX, int minY, int maxX, int maxY) {
+            this.staleMinX = Math.min(this.staleMinX, minX);
+            this.staleMinY = Math.min(this.staleMinY, minY);
+            this.staleMaxX = Math.max(this.staleMaxX, maxX);
+            this.staleMaxY = Math.max(this.staleMaxY, maxY);
+        }
+
+        void clearStale() {
+            this.staleMinX = Integer.MAX_VALUE;
+            this.staleMinY = Integer.MAX_VALUE;
+            this.staleMaxX = Integer.MIN_VALUE;
+            this.staleMaxY = Integer.MIN_VALUE;
+        }
+    }
+
+    private static final class Key {
+        final int level;
+        final int tileX;
+        final int tileY;
+
+        Key(int level, int tileX, int tileY) {
+            this.level = level;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof Key == false) {
+                return false;
+            }
+
+            final Key other = (Key) obj;
+            return this.level == other.level && this.tileX == other.tileX && this.tileY == other.tileY;
+        }
+
+        @Override
+        public int hashCode() {
+            return (this.level * 31 + this.tileX) * 31 + this.tileY;
+        }
+    }
+}
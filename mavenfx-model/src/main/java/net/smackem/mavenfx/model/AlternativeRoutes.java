@@ -0,0 +1,217 @@
+package net.smackem.mavenfx.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Finds several routes between two cells of a {@link Board} that do not
+ * share any cells besides their endpoints.
+ * <p>
+ * The routes are searched one after another, each one avoiding the cells
+ * of the routes found before. All searches share one backward search tree
+ * that is grown from the destination once: its costs are exact lower bounds
+ * of the costs of reaching the destination, so the searches are guided
+ * straight along the cheapest detours around the blocked cells instead of
+ * exploring everything within the euclidean estimate.
+ * <p>
+ * The backward tree uses the cost model of {@link Board} without the penalty
+ * for changing direction, which depends on the path and cannot be stored
+ * per cell. The routes themselves are searched with {@link GridSearch} and
+ * include the penalty.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author pbo
+ */
+final class AlternativeRoutes {
+    private static final int NO_PREVIOUS = -1;
+
+    /**
+     * For fewer paths, growing the tree costs more than it saves.
+     */
+    private static final int MIN_GUIDED_PATH_COUNT = 3;
+
+    private final Board board;
+    private final GridSearch search;
+    private final int width;
+    private final int height;
+    private final double[] costs;
+    private final int[] seenStamps;
+    private final int[] settledStamps;
+    private final IndexedMinHeap open;
+    private int stamp;
+    private Bounds exploredBounds = new Bounds();
+    private SearchStatistics statistics = new SearchStatistics(SearchStatistics.TerminationReason.EXHAUSTED);
+
+    AlternativeRoutes(Board board, GridSearch search) {
+        this.board = board;
+        this.search = search;
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+
+        final int size = this.width * this.height;
+        this.costs = new double[size];
+        this.seenStamps = new int[size];
+        this.settledStamps = new int[size];
+        this.open = new IndexedMinHeap(size);
+    }
+
+    /**
+     * Finds up to {@code maxPathCount} paths from {@code origin} to
+     * {@code destination}, cheapest first. The paths do not share any cells
+     * besides {@code origin} and {@code destination}.
+     */
+    List<Path<Cell>> findPaths(int origin, int destination, int maxPathCount) {
+        final List<Path<Cell>> result = new ArrayList<>();
+        final BitSet usedCells = new BitSet(this.width * this.height);
+        final Bounds explored = new Bounds();
+        final SearchStatistics statistics = new SearchStatistics(SearchStatistics.TerminationReason.FOUND);
+        GridSearch.CostEstimate estimate = null;
+
+        if (maxPathCount >= MIN_GUIDED_PATH_COUNT) {
+            final double originCost = growTree(destination, origin, explored, statistics);
+
+            // the tree has settled all cells whose estimated routes are cheaper
+            // than the one through origin, so the others cost at least the difference
+            estimate = index -> this.settledStamps[index] == this.stamp
+                    ? this.costs[index]
+                    : Math.max(distance(index, destination), originCost - distance(index, origin));
+        }
+
+        while (result.size() < maxPathCount) {
+            final Path<Cell> path = estimate != null
+                    ? this.search.findPath(origin, destination, usedCells, estimate)
+                    : this.search.findPath(origin, destination, usedCells);
+
+            explored.add(this.search.getExploredBounds());
+            statistics.add(this.search.getStatistics());
+
+            if (path == null) {
+                statistics.setTerminationReason(SearchStatistics.TerminationReason.EXHAUSTED);
+                break;
+            }
+
+            for (Path<Cell> p = path; p != null; p = p.getTail()) {
+                usedCells.set(this.board.indexOf(p.getHead()));
+            }
+
+            result.add(path);
+        }
+
+        this.exploredBounds = explored;
+        this.statistics = statistics;
+        return result;
+    }
+
+    /**
+     * @return the rectangle containing all cells whose weights have been
+     *      read by the last call of {@link #findPaths(int, int, int)}.
+     *      Changing the weights of other cells does not change its outcome.
+     */
+    Bounds getExploredBounds() {
+        return this.exploredBounds;
+    }
+
+    /**
+     * @return the statistics of the last call of {@link #findPaths(int, int, int)},
+     *      including the backward tree, without wall time.
+     */
+    SearchStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    /**
+     * Runs A* from {@code root} to {@code target} over the reversed edges,
+     * so that the settled cells hold the costs of their cheapest paths
+     * to {@code root}.
+     *
+     * @param explored
+     *      Receives the cells whose weights have been read.
+     *
+     * @param statistics
+     *      Receives the work done.
+     *
+     * @return the cost of {@code target}.
+     */
+    private double growTree(int root, int target, Bounds explored, SearchStatistics statistics) {
+        beginSearch();
+
+        final CostModel costModel = this.board.getCostModel();
+        this.costs[root] = 0.0;
+        this.seenStamps[root] = this.stamp;
+        this.open.put(root, 0.0);
+
+        double result = Double.POSITIVE_INFINITY;
+        long expandedCount = 0;
+        long generatedCount = 0;
+
+        while (this.open.isEmpty() == false) {
+            Board.checkInterrupted();
+            final int current = this.open.poll();
+            final double currentCost = this.costs[current];
+            this.settledStamps[current] = this.stamp;
+
+            if (current == target) {
+                result = currentCost;
+                break;
+            }
+
+            expandedCount++;
+
+            final int x = current % this.width;
+            final int y = current / this.width;
+
+            // the reversed edges charge the weight of the cell they leave
+            explored.add(x, y);
+            final int firstX = Math.max(x - 1, 0);
+            final int lastX = Math.min(x + 1, this.width - 1);
+            final int firstY = Math.max(y - 1, 0);
+            final int lastY = Math.min(y + 1, this.height - 1);
+
+            for (int ny = firstY; ny <= lastY; ny++) {
+                int neighbour = ny * this.width + firstX;
+
+                for (int nx = firstX; nx <= lastX; nx++, neighbour++) {
+                    if (costModel.isAllowed(CostModel.getDirection(nx - x, ny - y)) == false
+                            || this.settledStamps[neighbour] == this.stamp) {
+                        continue;
+                    }
+
+                    final double cost = currentCost + this.board.calculateEdgeWeight(NO_PREVIOUS, neighbour, current);
+
+                    if (this.seenStamps[neighbour] != this.stamp || cost < this.costs[neighbour]) {
+                        this.seenStamps[neighbour] = this.stamp;
+                        this.costs[neighbour] = cost;
+                        this.open.put(neighbour, cost + distance(neighbour, target));
+                        generatedCount++;
+                    }
+                }
+            }
+        }
+
+        statistics.add(new SearchStatistics(expandedCount, generatedCount, this.open.getPeakSize(),
+                SearchStatistics.TerminationReason.FOUND));
+        return result;
+    }
+
+    private void beginSearch() {
+        this.open.clear();
+        this.stamp++;
+
+        if (this.stamp == Integer.MAX_VALUE) {
+            Arrays.fill(this.seenStamps, 0);
+            Arrays.fill(this.settledStamps, 0);
+            this.stamp = 1;
+        }
+    }
+
+    private double distance(int index1, int index2) {
+        final double dx = index1 % this.width - index2 % this.width;
+        final double dy = index1 / this.width - index2 / this.width;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
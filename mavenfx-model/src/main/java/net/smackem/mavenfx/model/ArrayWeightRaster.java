@@ -0,0 +1,29 @@
+package net.smackem.mavenfx.model;
+
+/**
+ * A {@link WeightRaster} on the heap.
+ *
+ * @author pbo
+ */
+final class ArrayWeightRaster implements WeightRaster {
+    private final int[] weights;
+
+    ArrayWeightRaster(int[] weights) {
+        this.weights = weights;
+    }
+
+    @Override
+    public int size() {
+        return this.weights.length;
+    }
+
+    @Override
+    public int get(int index) {
+        return this.weights[index];
+    }
+
+    @Override
+    public void set(int index, int weight) {
+        this.weights[index] = weight;
+    }
+}
@@ -0,0 +1,136 @@
+package net.smackem.mavenfx.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Finds the cheapest paths for many pairs of cells of a {@link Board} in
+ * parallel.
+ * <p>
+ * Queries sharing an origin are grouped. Large groups are solved with a
+ * single Dijkstra search from the origin that stops as soon as all of the
+ * destinations of the group have been reached; all other queries are
+ * solved with one A* search each. Every worker thread keeps its own
+ * {@link GridSearch}, so that the scratch arrays are allocated once per
+ * thread rather than once per query.
+ * <p>
+ * Instances may be used from multiple threads. A batch reads the weights
+ * and the cost model from a snapshot of the board, so the board may be
+ * changed while a batch is being solved.
+ *
+ * @author pbo
+ */
+final class BatchRouter {
+    /**
+     * For fewer destinations per origin, separate A* searches expand fewer
+     * cells than one Dijkstra search reaching all of them.
+     */
+    static final int MIN_TREE_GROUP_SIZE = 4;
+
+    private final Board board;
+    private final ThreadLocal<GridSearch> searches;
+
+    BatchRouter(Board board) {
+        this.board = board;
+        this.searches = ThreadLocal.withInitial(() -> new GridSearch(board));
+    }
+
+    /**
+     * Starts finding the cheapest paths from {@code origins[i]} to
+     * {@code destinations[i]} for all {@code i} on {@code pool}, using the
+     * weights and the cost model of {@code snapshot}.
+     * <p>
+     * Cancelling the returned future skips all queries that have not been
+     * started yet.
+     *
+     * @return a future completed with the paths in the order of the queries.
+     *      An element is {@code null} if there is no path for its query.
+     */
+    CompletableFuture<List<Path<Cell>>> findPaths(Board snapshot, int[] origins, int[] destinations,
+                                                  ForkJoinPool pool) {
+        final Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+
+        for (int i = 0; i < origins.length; i++) {
+            groups.computeIfAbsent(origins[i], ignored -> new ArrayList<>()).add(i);
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        final Path<Cell>[] paths = new Path[origins.length];
+        final CompletableFuture<List<Path<Cell>>> result = new CompletableFuture<>();
+        final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+
+        for (final Map.Entry<Integer, List<Integer>> group : groups.entrySet()) {
+            final int origin = group.getKey();
+            final List<Integer> queries = group.getValue();
+
+            if (queries.size() >= MIN_TREE_GROUP_SIZE) {
+                tasks.add(CompletableFuture.runAsync(() -> {
+                    if (result.isDone() == false) {
+                        solveGroup(snapshot, origin, queries, destinations, paths);
+                    }
+                }, pool));
+            } else {
+                for (final int query : queries) {
+                    tasks.add(CompletableFuture.runAsync(() -> {
+                        if (result.isDone() == false) {
+                            paths[query] = findPath(snapshot, origin, destinations[query]);
+                        }
+                    }, pool));
+                }
+            }
+        }
+
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+            } else {
+                result.complete(Collections.unmodifiableList(Arrays.asList(paths)));
+            }
+        });
+
+        return result;
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private Path<Cell> findPath(Board snapshot, int origin, int destination) {
+        final GridSearch search = this.searches.get();
+        search.setSource(snapshot);
+
+        try {
+            return search.findPath(origin, destination, null);
+        } finally {
+            search.setSource(this.board);
+        }
+    }
+
+    private void solveGroup(Board snapshot, int origin, List<Integer> queries, int[] destinations,
+                            Path<Cell>[] paths) {
+        final GridSearch search = this.searches.get();
+        final BitSet targets = new BitSet(this.board.getWidth() * this.board.getHeight());
+
+        for (final int query : queries) {
+            targets.set(destinations[query]);
+        }
+
+        search.setSource(snapshot);
+
+        try {
+            search.computePaths(origin, targets);
+
+            for (final int query : queries) {
+                paths[query] = search.getPath(destinations[query]);
+            }
+        } finally {
+            search.setSource(this.board);
+        }
+    }
+}
@@ -1,45 +1,236 @@
 package net.smackem.mavenfx.model;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Objects;
-import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * A rectangular grid of weighted cells.
+ * <p>
+ * The weights are stored in a single raster indexed by
+ * {@code row * width + col}, either on the heap or mapped from a file by
+ * {@link BoardFile#open(java.io.File)}. {@link Cell} instances are views
+ * created on demand. The costs of moving between cells are defined by the
+ * {@link CostModel} of the board.
+ * <p>
+ * Weights may be changed on one thread while a search runs on another:
+ * each search reads an immutable {@linkplain #snapshot() snapshot} of the
+ * weights taken when it starts, which takes constant time, and the state
+ * the searches keep between queries is updated with the changes made in
+ * the meantime when the next search starts. The searches themselves are
+ * not thread-safe, so a board must not be searched on several threads at
+ * once; take a snapshot per thread instead.
+ * {@link #findPathsAsync(List, ForkJoinPool)} is the exception: it searches
+ * a snapshot taken when it is called, with state of its own on each pool
+ * thread, so a batch may run while the board is searched on another
+ * thread.
+ * <p>
+ * All searches except the bidirectional ones check the interrupt flag of
+ * the calling thread as they go and throw a
+ * {@link CancellationException} when it is set, so
+ * that a search running on a worker thread can be cancelled by
+ * interrupting it, e.g. with {@code Future.cancel(true)}. Cancelling leaves
+ * the board and its searches ready for the next search.
+ *
  * @author pbo
  */
 public final class Board {
+    /**
+     * The weight at or above which a cell is considered an obstacle by
+     * searches that support impassable cells, like {@link SearchMode#JUMP_POINT}.
+     */
+    public static final int OBSTACLE_WEIGHT = 1000;
+
+    /**
+     * The number of results of {@link #findPaths(Cell, Cell, int)} kept
+     * by the {@link PathCache}.
+     */
+    public static final int PATH_CACHE_CAPACITY = 64;
+
     private static final Logger log = LoggerFactory.getLogger(Board.class);
-    private final Cell[] cells;
+    private final CopyOnWriteWeightRaster weights;
     private final int width;
     private final int height;
+    private final List<WeightListener> weightListeners = new CopyOnWriteArrayList<>();
+    private final List<WeightListener> searchListeners = new CopyOnWriteArrayList<>();
+    private final Object weightLock = new Object();
+    private final BitSet changedCells = new BitSet();
+    private WeightRaster searchWeights;
+    private long searchVersion;
+    private GridSearch search;
+    private JumpPointSearch jumpPointSearch;
+    private HierarchicalSearch hierarchicalSearch;
+    private IncrementalSearch incrementalSearch;
+    private LandmarkSearch landmarkSearch;
+    private FixedPointSearch fixedPointSearch;
+    private AlternativeRoutes alternativeRoutes;
+    private BatchRouter batchRouter;
+    private PathCache pathCache;
+    private volatile long version;
+    private volatile CostModel costModel;
+
+    /**
+     * Receives notifications about changed cell weights.
+     */
+    @FunctionalInterface
+    public interface WeightListener {
+        void weightChanged(int col, int row);
+    }
 
     public Board(int width, int height) {
-        this.width = width;
-        this.height = height;
-        this.cells = new Cell[width * height];
-
-        int index = 0;
-        for (int row = 0; row < height; row++) {
-            for (int col = 0; col < width; col++) {
-                this.cells[index] = new Cell(col, row);
-                index++;
-            }
-        }
+        this(width, height, new ArrayWeightRaster(new int[width * height]));
     }
 
     public Cell getCell(int col, int row) {
         if (col >= 0 && col < this.width && row >= 0 && row < this.height)
-            return this.cells[row * this.width + col];
+            return new Cell(this, col, row);
 
         return null;
     }
 
+    public int getWeight(int col, int row) {
+        return this.weights.get(checkedIndex(col, row));
+    }
+
+    /**
+     * Sets the weight of a cell and notifies the weight listeners on the
+     * calling thread. May be called while a search is running on another
+     * thread.
+     *
+     * @throws UnsupportedOperationException
+     *      if this board is a {@linkplain #snapshot() snapshot}.
+     */
+    public void setWeight(int col, int row, int weight) {
+        final int index = checkedIndex(col, row);
+
+        synchronized (this.weightLock) {
+            if (this.weights.get(index) == weight) {
+                return;
+            }
+
+            this.weights.set(index, weight);
+            this.version++;
+            this.changedCells.set(index);
+        }
+
+        for (final WeightListener listener : this.weightListeners) {
+            listener.weightChanged(col, row);
+        }
+    }
+
+    /**
+     * Creates an immutable copy of this board in constant time. The copy
+     * shares the weights with this board until they are changed, and then
+     * only keeps the parts of the old weights that have been changed. It has
+     * the same cost model, but searches and caches of its own, so that it
+     * can be searched on another thread while this board is searched or
+     * changed. May be called from any thread.
+     */
+    public Board snapshot() {
+        synchronized (this.weightLock) {
+            return new Board(this.width, this.height, this.weights.snapshot(), this.costModel, this.version);
+        }
+    }
+
+    /**
+     * Computes the costs of the cheapest paths from all cells to
+     * {@code destination}, from which the paths of any number of origins
+     * can be read without searching.
+     *
+     * @see #createFlowField(Cell, int, int, int, int)
+     */
+    public FlowField createFlowField(Cell destination) {
+        return createFlowField(destination, 0, 0, this.width - 1, this.height - 1);
+    }
+
+    /**
+     * Like {@link #createFlowField(Cell)}, but only for the cells of the
+     * rectangle from {@code left}/{@code top} to {@code right}/{@code bottom},
+     * inclusive. The paths read from the field do not leave the rectangle.
+     * May be called from any thread; the field keeps itself up to date with
+     * the weights and the cost model of this board.
+     */
+    public FlowField createFlowField(Cell destination, int left, int top, int right, int bottom) {
+        Objects.requireNonNull(destination);
+        if (left < 0 || top < 0 || right >= this.width || bottom >= this.height || left > right || top > bottom)
+            throw new IllegalArgumentException("Invalid region");
+        if (destination.getX() < left || destination.getX() > right
+                || destination.getY() < top || destination.getY() > bottom)
+            throw new IllegalArgumentException("The destination lies outside the region");
+
+        return new FlowField(this, indexOf(destination), left, top, right, bottom);
+    }
+
+    /**
+     * @return {@code true} if this board has been created by
+     *      {@link #snapshot()} and its weights cannot be changed.
+     */
+    public boolean isSnapshot() {
+        return this.weights.isSnapshot();
+    }
+
+    public void addWeightListener(WeightListener listener) {
+        this.weightListeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeWeightListener(WeightListener listener) {
+        this.weightListeners.remove(listener);
+    }
+
+    /**
+     * @return a number that is incremented whenever the weight of a cell changes.
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * @return the cache holding the results of {@link #findPaths(Cell, Cell, int)}.
+     */
+    public PathCache getPathCache() {
+        if (this.pathCache == null) {
+            this.pathCache = new PathCache(this, PATH_CACHE_CAPACITY);
+            this.searchListeners.add(this.pathCache::invalidate);
+        }
+
+        return this.pathCache;
+    }
+
+    /**
+     * @return the cost model used by all searches of this board.
+     */
+    public CostModel getCostModel() {
+        return this.costModel;
+    }
+
+    /**
+     * Replaces the cost model used by all searches of this board. The
+     * state the searches keep between queries and the {@link PathCache}
+     * are discarded when the cost model changes.
+     */
+    public void setCostModel(CostModel costModel) {
+        Objects.requireNonNull(costModel);
+
+        if (costModel.equals(this.costModel) == false) {
+            this.costModel = costModel;
+
+            if (this.pathCache != null) {
+                this.pathCache.clear();
+            }
+        }
+    }
+
     public int getWidth() {
         return this.width;
     }
@@ -49,41 +240,165 @@ public final class Board {
     }
 
     public Path<Cell> findPath(Cell origin, Cell destination) {
+        return findPath(origin, destination, SearchMode.ASTAR);
+    }
+
+    public Path<Cell> findPath(Cell origin, Cell destination, SearchMode mode) {
+        return findPathWithStatistics(origin, destination, mode).getPath();
+    }
+
+    /**
+     * Like {@link #findPath(Cell, Cell, SearchMode)}, but also returns
+     * statistics about the search.
+     */
+    public SearchResult findPathWithStatistics(Cell origin, Cell destination, SearchMode mode) {
         Objects.requireNonNull(origin);
         Objects.requireNonNull(destination);
+        Objects.requireNonNull(mode);
+
+        final long startTime = System.nanoTime();
+        final Path<Cell> path;
+        final SearchStatistics statistics;
+
+        beginSearch();
+
+        try {
+            switch (mode) {
+                case JUMP_POINT:
+                    if (this.costModel.getConnectivity() != CostModel.Connectivity.EIGHT)
+                        throw new IllegalStateException("JUMP_POINT requires an 8-connected cost model");
+
+                    path = getJumpPointSearch().findPath(indexOf(origin), indexOf(destination));
+                    statistics = getJumpPointSearch().getStatistics();
+                    break;
+                case HIERARCHICAL:
+                    path = getHierarchicalSearch().findPath(indexOf(origin), indexOf(destination));
+                    statistics = getHierarchicalSearch().getStatistics();
+                    break;
+                case INCREMENTAL:
+                    path = getIncrementalSearch().findPath(indexOf(origin), indexOf(destination));
+                    statistics = getIncrementalSearch().getStatistics();
+                    break;
+                case LANDMARK:
+                    path = getLandmarkSearch().findPath(indexOf(origin), indexOf(destination));
+                    statistics = getLandmarkSearch().getStatistics();
+                    break;
+                case FIXED_POINT:
+                    path = getFixedPointSearch().findPath(indexOf(origin), indexOf(destination));
+                    statistics = getFixedPointSearch().getStatistics();
+                    break;
+                case BIDIRECTIONAL:
+                case PARALLEL_BIDIRECTIONAL:
+                    statistics = new SearchStatistics(SearchStatistics.TerminationReason.EXHAUSTED);
+                    path = Path.findPathBidirectional(origin, destination,
+                            Board::calculateEdgeWeight,
+                            Board::calculateReverseEdgeWeight,
+                            cell -> calculateDistance(cell, destination),
+                            cell -> calculateDistance(origin, cell),
+                            this::collectNeighbours,
+                            mode == SearchMode.PARALLEL_BIDIRECTIONAL,
+                            statistics);
+                    break;
+                default:
+                    path = getSearch().findPath(indexOf(origin), indexOf(destination), null);
+                    statistics = getSearch().getStatistics();
+                    break;
+            }
+        } finally {
+            endSearch();
+        }
 
-        return Path.findPath(origin, destination,
-                Board::calculateEdgeWeight,
-                cell -> calculateDistance(cell, destination),
-                this::collectNeighbours);
+        statistics.setWallTimeNanos(System.nanoTime() - startTime);
+        return new SearchResult(
+                path != null ? Collections.singletonList(path) : Collections.<Path<Cell>>emptyList(),
+                statistics);
     }
 
     public Collection<Path<Cell>> findPaths(Cell origin, Cell destination, int maxPathCount) {
+        final Collection<Path<Cell>> result = new LinkedList<>(
+                findPathsWithStatistics(origin, destination, maxPathCount).getPaths());
+
+        if (result.size() < maxPathCount) {
+            log.info("no more paths found. count={}", result.size());
+        }
+
+        return result;
+    }
+
+    /**
+     * Like {@link #findPaths(Cell, Cell, int)}, but also returns the total
+     * statistics of all searches run to find the paths.
+     */
+    public SearchResult findPathsWithStatistics(Cell origin, Cell destination, int maxPathCount) {
         Objects.requireNonNull(origin);
         Objects.requireNonNull(destination);
 
-        final Set<Cell> usedCells = new HashSet<>();
-        final Collection<Path<Cell>> result = new LinkedList<>();
-
-        while (maxPathCount-- > 0) {
-            final Path<Cell> path = Path.findPath(origin, destination,
-                    (originPath, destCell) ->
-                        destCell != destination && usedCells.contains(destCell)
-                        ? Integer.MAX_VALUE
-                        : calculateEdgeWeight(originPath, destCell),
-                    cell -> calculateDistance(cell, destination),
-                    this::collectNeighbours);
-
-            if (path == null) {
-                log.info("no more paths found. count={}", result.size());
-                break;
+        final long startTime = System.nanoTime();
+        final int originIndex = indexOf(origin);
+        final int destinationIndex = indexOf(destination);
+        final PathCache cache = getPathCache();
+        List<Path<Cell>> paths;
+        final SearchStatistics statistics;
+        beginSearch();
+
+        try {
+            paths = cache.get(originIndex, destinationIndex, maxPathCount);
+
+            if (paths == null) {
+                final AlternativeRoutes routes = getAlternativeRoutes();
+                paths = routes.findPaths(originIndex, destinationIndex, maxPathCount);
+                statistics = routes.getStatistics();
+                cache.put(originIndex, destinationIndex, maxPathCount, paths, routes.getExploredBounds());
+            } else {
+                statistics = new SearchStatistics(SearchStatistics.TerminationReason.CACHED);
             }
+        } finally {
+            endSearch();
+        }
+
+        statistics.setWallTimeNanos(System.nanoTime() - startTime);
+        return new SearchResult(paths, statistics);
+    }
+
+    /**
+     * Finds the cheapest paths for all {@code queries} in parallel on the
+     * common fork-join pool.
+     *
+     * @see #findPathsAsync(List, ForkJoinPool)
+     */
+    public CompletableFuture<List<Path<Cell>>> findPathsAsync(List<RouteQuery> queries) {
+        return findPathsAsync(queries, ForkJoinPool.commonPool());
+    }
 
-            usedCells.addAll(path.getNodes());
-            result.add(path);
+    /**
+     * Finds the cheapest paths for all {@code queries} in parallel on
+     * {@code pool}, using the costs of {@link SearchMode#ASTAR}. Queries
+     * sharing an origin share one search. The paths are found on a
+     * {@linkplain #snapshot() snapshot} taken when this method is called, so
+     * the board may be changed and searched on other threads meanwhile.
+     * <p>
+     * Cancelling the returned future skips all queries that have not been
+     * started yet.
+     *
+     * @return a future completed with the paths in the order of
+     *      {@code queries}. An element is {@code null} if there is no path
+     *      for its query.
+     */
+    public CompletableFuture<List<Path<Cell>>> findPathsAsync(List<RouteQuery> queries, ForkJoinPool pool) {
+        Objects.requireNonNull(queries);
+        Objects.requireNonNull(pool);
+
+        final int[] origins = new int[queries.size()];
+        final int[] destinations = new int[queries.size()];
+        int i = 0;
+
+        for (final RouteQuery query : queries) {
+            origins[i] = indexOf(query.getOrigin());
+            destinations[i] = indexOf(query.getDestination());
+            i++;
         }
 
-        return result;
+        return getBatchRouter().findPaths(snapshot(), origins, destinations, pool);
     }
 
     public static Board fromBuffer(int[] buffer, int width, int height, Functions.IntegerMapper weightCalculator) {
@@ -96,61 +411,250 @@ public final class Board {
         if (buffer.length != width * height)
             throw new IllegalArgumentException("Invalid buffer size");
 
-        final Cell[] cells = new Cell[width * height];
+        final int[] weights = new int[buffer.length];
 
-        int index = 0;
-        for (int row = 0; row < height; row++) {
-            for (int col = 0; col < width; col++) {
-                cells[index] = new Cell(col, row);
-                cells[index].setWeight(weightCalculator.apply(buffer[index]));
-                index++;
-            }
+        for (int index = 0; index < buffer.length; index++) {
+            weights[index] = weightCalculator.apply(buffer[index]);
         }
 
-        return new Board(width, height, cells);
+        return new Board(width, height, new ArrayWeightRaster(weights));
     }
 
     /////////////////////////////////////////////////////////////////
 
-    private Board(int width, int height, Cell[] cells) {
+    private int checkedIndex(int col, int row) {
+        if (col < 0 || col >= this.width || row < 0 || row >= this.height)
+            throw new IndexOutOfBoundsException("Cell " + col + "/" + row + " is outside the board");
+
+        return row * this.width + col;
+    }
+
+    private static int getDirection(Cell from, Cell to) {
+        return CostModel.getDirection(to.getX() - from.getX(), to.getY() - from.getY());
+    }
+
+    /**
+     * Lets the search about to run on the calling thread read a snapshot of
+     * the weights and passes the changes made since the last search to the
+     * searches and caches that depend on the weights.
+     */
+    private void beginSearch() {
+        final BitSet changes;
+
+        synchronized (this.weightLock) {
+            this.searchWeights = this.weights.snapshot();
+            this.searchVersion = this.version;
+
+            if (this.changedCells.isEmpty()) {
+                changes = null;
+            } else {
+                changes = (BitSet) this.changedCells.clone();
+                this.changedCells.clear();
+            }
+        }
+
+        if (changes != null) {
+            for (int index = changes.nextSetBit(0); index >= 0; index = changes.nextSetBit(index + 1)) {
+                for (final WeightListener listener : this.searchListeners) {
+                    listener.weightChanged(index % this.width, index / this.width);
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the snapshot read by the search, so that its weights can be
+     * reclaimed once they have been changed.
+     */
+    private void endSearch() {
+        this.searchWeights = this.weights;
+    }
+
+    private GridSearch getSearch() {
+        if (this.search == null) {
+            this.search = new GridSearch(this);
+        }
+
+        return this.search;
+    }
+
+    private JumpPointSearch getJumpPointSearch() {
+        if (this.jumpPointSearch == null) {
+            this.jumpPointSearch = new JumpPointSearch(this);
+        }
+
+        return this.jumpPointSearch;
+    }
+
+    private HierarchicalSearch getHierarchicalSearch() {
+        if (this.hierarchicalSearch == null) {
+            this.hierarchicalSearch = new HierarchicalSearch(this, getSearch());
+            this.searchListeners.add(this.hierarchicalSearch::invalidate);
+        }
+
+        return this.hierarchicalSearch;
+    }
+
+    private IncrementalSearch getIncrementalSearch() {
+        if (this.incrementalSearch == null) {
+            this.incrementalSearch = new IncrementalSearch(this);
+            this.searchListeners.add(this.incrementalSearch::invalidate);
+        }
+
+        return this.incrementalSearch;
+    }
+
+    private LandmarkSearch getLandmarkSearch() {
+        if (this.landmarkSearch == null) {
+            this.landmarkSearch = new LandmarkSearch(this, getSearch());
+            this.searchListeners.add(this.landmarkSearch::invalidate);
+        }
+
+        return this.landmarkSearch;
+    }
+
+    private FixedPointSearch getFixedPointSearch() {
+        if (this.fixedPointSearch == null) {
+            this.fixedPointSearch = new FixedPointSearch(this);
+        }
+
+        return this.fixedPointSearch;
+    }
+
+    private AlternativeRoutes getAlternativeRoutes() {
+        if (this.alternativeRoutes == null) {
+            this.alternativeRoutes = new AlternativeRoutes(this, getSearch());
+        }
+
+        return this.alternativeRoutes;
+    }
+
+    private synchronized BatchRouter getBatchRouter() {
+        if (this.batchRouter == null) {
+            this.batchRouter = new BatchRouter(this);
+        }
+
+        return this.batchRouter;
+    }
+
+    Board(int width, int height, WeightRaster weights) {
+        this(width, height, new CopyOnWriteWeightRaster(weights), CostModel.DEFAULT, 0);
+    }
+
+    private Board(int width, int height, CopyOnWriteWeightRaster weights, CostModel costModel, long version) {
         this.width = width;
         this.height = height;
-        this.cells = cells;
+        this.weights = weights;
+        this.searchWeights = weights;
+        this.costModel = costModel;
+        this.version = version;
+        this.searchVersion = version;
+    }
+
+    Cell getCell(int index) {
+        return new Cell(this, index % this.width, index / this.width);
+    }
+
+    /**
+     * @return the weight of the cell at {@code index} as seen by the running
+     *      search, or the current weight if no search is running.
+     */
+    int weightAt(int index) {
+        return this.searchWeights.get(index);
     }
 
-    private static double calculateDistance(Cell node1, Cell node2) {
+    /**
+     * @return an immutable copy of the current weights. May be called from
+     *      any thread.
+     */
+    CopyOnWriteWeightRaster snapshotWeights() {
+        synchronized (this.weightLock) {
+            return this.weights.snapshot();
+        }
+    }
+
+    /**
+     * @return the {@link #getVersion() version} of the weights seen by the
+     *      running search.
+     */
+    long getSearchVersion() {
+        return this.searchVersion;
+    }
+
+    int indexOf(Cell cell) {
+        return cell.getY() * this.width + cell.getX();
+    }
+
+    /**
+     * Index-based equivalent of {@link #calculateEdgeWeight(Path, Cell)}.
+     *
+     * @param previous
+     *      The index of the cell visited before {@code origin} or a negative
+     *      number if {@code origin} is the first cell of the path.
+     */
+    double calculateEdgeWeight(int previous, int origin, int destination) {
+        final int originX = origin % this.width;
+        final int originY = origin / this.width;
+        final int direction = CostModel.getDirection(destination % this.width - originX, destination / this.width - originY);
+        final int previousDirection = previous >= 0
+                ? CostModel.getDirection(originX - previous % this.width, originY - previous / this.width)
+                : CostModel.NO_DIRECTION;
+
+        return this.costModel.getEdgeCost(previousDirection, direction) + this.searchWeights.get(destination);
+    }
+
+    /**
+     * Called by the searches once per expanded node.
+     *
+     * @throws CancellationException
+     *      if the current thread has been interrupted.
+     */
+    static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted())
+            throw new CancellationException("Search interrupted");
+    }
+
+    static double calculateDistance(Cell node1, Cell node2) {
         final double dx = (double)(node1.getX() - node2.getX());
         final double dy = (double)(node1.getY() - node2.getY());
 
         return Math.sqrt(dx * dx + dy * dy);
     }
 
-    private static double calculateEdgeWeight(Path<Cell> originPath, Cell destination) {
+    static double calculateEdgeWeight(Path<Cell> originPath, Cell destination) {
         final Cell origin = originPath.getHead();
-        double distance = calculateDistance(origin, destination);
-
-        // punish diagonals
-        if (destination.getX() != origin.getX() && destination.getY() != origin.getY()) {
-            distance += 0.7;
-        }
+        final int direction = getDirection(origin, destination);
+        final int previousDirection = originPath.getTail() != null
+                ? getDirection(originPath.getTail().getHead(), origin)
+                : CostModel.NO_DIRECTION;
 
-        // punish changes of direction
-        if (originPath.getTail() != null) {
-            final Cell previous = originPath.getTail().getHead();
-            final double dx1 = previous.getX() - origin.getX();
-            final double dy1 = previous.getY() - origin.getY();
-            final double dx2 = origin.getX() - destination.getX();
-            final double dy2 = origin.getY() - destination.getY();
+        final Board board = destination.getBoard();
+        return board.costModel.getEdgeCost(previousDirection, direction) + board.weightAt(board.indexOf(destination));
+    }
 
-            if (dx1 != dx2 || dy1 != dy2) {
-                distance += 0.2;
-            }
+    /**
+     * Calculates the cost of the edge from {@code origin} to the head of
+     * {@code destinationPath}, where the path continues with the tail of
+     * {@code destinationPath}. Summed up along a whole path, the result
+     * equals the sum of {@link #calculateEdgeWeight(Path, Cell)}: the
+     * penalty for a change of direction is charged to the edge leaving the
+     * cell where the direction changes rather than the edge entering it.
+     */
+    static double calculateReverseEdgeWeight(Path<Cell> destinationPath, Cell origin) {
+        final Cell destination = destinationPath.getHead();
+        final Board board = destination.getBoard();
+        final CostModel costModel = board.costModel;
+        final int direction = getDirection(origin, destination);
+        double cost = costModel.getStepCost(direction);
+
+        if (destinationPath.getTail() != null) {
+            cost += costModel.getTurnCost(direction, getDirection(destination, destinationPath.getTail().getHead()));
         }
 
-        return distance + destination.getWeight();
+        return cost + board.weightAt(board.indexOf(destination));
     }
 
-    private Collection<Cell> collectNeighbours(Cell cell) {
+    Collection<Cell> collectNeighbours(Cell cell) {
         final int firstX = Math.max(cell.getX() - 1, 0);
         final int lastX = Math.min(cell.getX() + 1, this.width - 1);
 
@@ -159,14 +663,13 @@ public final class Board {
 
         final Collection<Cell> neighbours = new ArrayList<>();
 
-        int lineBase = firstY * this.width;
-
         for (int y = firstY; y <= lastY; y++) {
             for (int x = firstX; x <= lastX; x++) {
-                neighbours.add(this.cells[lineBase + x]);
+                if (x == cell.getX() || y == cell.getY()
+                        || this.costModel.getConnectivity() == CostModel.Connectivity.EIGHT) {
+                    neighbours.add(new Cell(this, x, y));
+                }
             }
-
-            lineBase += this.width;
         }
 
         return neighbours;
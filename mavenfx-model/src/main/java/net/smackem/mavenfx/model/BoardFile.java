@@ -0,0 +1,166 @@
+package net.smackem.mavenfx.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Reads and writes boards in the MFXB format. All numbers are
+ * little-endian:
+ * <pre>
+ * offset  size  content
+ *      0     4  magic "MFXB" (ASCII)
+ *      4     4  format version, currently 1
+ *      8     4  width
+ *     12     4  height
+ *     16     4  offset of the weights in bytes, currently 32
+ *     20    12  reserved, zero
+ *     32  4*w*h weights as int32, row by row
+ * </pre>
+ * {@link #open(File)} maps the file into memory instead of reading it, so
+ * that boards of any size are ready immediately and only the parts visited
+ * by a search are ever loaded.
+ *
+ * @author pbo
+ */
+public final class BoardFile {
+    public static final int VERSION = 1;
+    private static final byte[] MAGIC = "MFXB".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 32;
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private BoardFile() {
+    }
+
+    /**
+     * Writes the weights of {@code board} to {@code file}, replacing its
+     * contents. The weights are taken from a snapshot, so the board may be
+     * changed on another thread meanwhile.
+     * <p>
+     * The board is written to a temporary file next to {@code file}, which
+     * then replaces {@code file}. This keeps {@code file} intact if writing
+     * fails, and allows saving a board to the file it has been opened from,
+     * whose weights are read while writing.
+     */
+    public static void save(Board board, File file) throws IOException {
+        Objects.requireNonNull(board);
+        Objects.requireNonNull(file);
+
+        final File target = file.getAbsoluteFile();
+        final File temporary = Files.createTempFile(
+                target.getParentFile().toPath(), target.getName(), ".tmp").toFile();
+
+        try {
+            write(board, temporary);
+
+            try {
+                Files.move(temporary.toPath(), target.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    /**
+     * Opens the board stored in {@code file} by mapping it into memory.
+     * <p>
+     * Weights changed on the returned board are never written back to
+     * {@code file}, even if {@code file} is read-only.
+     *
+     * @throws IOException
+     *      if {@code file} cannot be read or is not a valid MFXB file.
+     */
+    public static Board open(File file) throws IOException {
+        Objects.requireNonNull(file);
+        final boolean writable = file.canWrite();
+
+        try (final FileChannel channel = writable
+                ? FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0)
+                    throw new IOException(file + " is not a board file: header too short");
+            }
+
+            header.flip();
+            final byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i])
+                    throw new IOException(file + " is not a board file: wrong magic");
+            }
+
+            final int version = header.getInt();
+            final int width = header.getInt();
+            final int height = header.getInt();
+            final int offset = header.getInt();
+
+            if (version != VERSION)
+                throw new IOException(file + " has the unsupported format version " + version);
+            if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE)
+                throw new IOException(file + " has the invalid size " + width + "x" + height);
+            if (offset < HEADER_SIZE || channel.size() < offset + (long) width * height * Integer.BYTES)
+                throw new IOException(file + " is truncated");
+
+            final WeightRaster weights = new MappedWeightRaster(channel,
+                    writable ? FileChannel.MapMode.PRIVATE : FileChannel.MapMode.READ_ONLY,
+                    offset, width * height);
+            return new Board(width, height, weights);
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private static void write(Board board, File file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(MAGIC)
+                  .putInt(VERSION)
+                  .putInt(board.getWidth())
+                  .putInt(board.getHeight())
+                  .putInt(HEADER_SIZE);
+
+            while (buffer.position() < HEADER_SIZE) {
+                buffer.put((byte) 0);
+            }
+
+            final Board snapshot = board.snapshot();
+            final int size = board.getWidth() * board.getHeight();
+
+            for (int index = 0; index < size; index++) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    writeFully(channel, buffer);
+                }
+
+                buffer.putInt(snapshot.weightAt(index));
+            }
+
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+}
@@ -0,0 +1,63 @@
+package net.smackem.mavenfx.model;
+
+/**
+ * A mutable rectangle of board cells, used to record the area a search has
+ * looked at. Initially empty.
+ *
+ * @author pbo
+ */
+final class Bounds {
+    private int minX = Integer.MAX_VALUE;
+    private int minY = Integer.MAX_VALUE;
+    private int maxX = Integer.MIN_VALUE;
+    private int maxY = Integer.MIN_VALUE;
+
+    Bounds() {
+    }
+
+    Bounds(int minX, int minY, int maxX, int maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    boolean isEmpty() {
+        return this.minX > this.maxX || this.minY > this.maxY;
+    }
+
+    boolean contains(int col, int row) {
+        return col >= this.minX && col <= this.maxX && row >= this.minY && row <= this.maxY;
+    }
+
+    /**
+     * Grows this rectangle to include the specified cell.
+     */
+    void add(int col, int row) {
+        this.minX = Math.min(this.minX, col);
+        this.minY = Math.min(this.minY, row);
+        this.maxX = Math.max(this.maxX, col);
+        this.maxY = Math.max(this.maxY, row);
+    }
+
+    /**
+     * Grows this rectangle to include {@code other}.
+     */
+    void add(Bounds other) {
+        if (other.isEmpty()) {
+            return;
+        }
+
+        this.minX = Math.min(this.minX, other.minX);
+        this.minY = Math.min(this.minY, other.minY);
+        this.maxX = Math.max(this.maxX, other.maxX);
+        this.maxY = Math.max(this.maxY, other.maxY);
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty()
+                ? "Bounds[]"
+                : "Bounds[" + this.minX + "/" + this.minY + " - " + this.maxX + "/" + this.maxY + "]";
+    }
+}
@@ -0,0 +1,186 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Arrays;
+
+/**
+ * A monotone priority queue of {@code int} ids with non-negative
+ * {@code long} priorities (Dial's bucket queue).
+ * <p>
+ * Each priority has its own bucket, a list of entries. The buckets form a
+ * ring covering the priorities from the lowest contained one to that plus
+ * the number of buckets; the ring is doubled when the range of contained
+ * priorities outgrows it. Adding an entry is O(1), polling is O(1) plus
+ * the number of empty buckets skipped, which is bounded by the largest
+ * difference between the priority of an entry and the priority polled
+ * before it was added.
+ * <p>
+ * Priorities must not be lower than the priority last polled. Ids are not
+ * unique: adding an id again does not remove the entry added before, so
+ * that callers must skip outdated entries when polling them.
+ *
+ * @author pbo
+ */
+final class BucketQueue {
+    private static final int NONE = -1;
+    private int[] heads;
+    private int[] entryIds;
+    private long[] entryKeys;
+    private int[] entryNext;
+    private int freeEntry = NONE;
+    private int entryCount;
+    private long minKey;
+    private long maxKey;
+    private long lastKey;
+    private int size;
+    private int peakSize;
+
+    BucketQueue(int bucketCapacity) {
+        this.heads = new int[Integer.highestOneBit(Math.max(bucketCapacity - 1, 8)) << 1];
+        this.entryIds = new int[1024];
+        this.entryKeys = new long[this.entryIds.length];
+        this.entryNext = new int[this.entryIds.length];
+        Arrays.fill(this.heads, NONE);
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the maximum number of entries contained at the same time
+     *      since the last {@link #clear()}.
+     */
+    int getPeakSize() {
+        return this.peakSize;
+    }
+
+    /**
+     * @return the number of buckets the ring currently has.
+     */
+    int getBucketCount() {
+        return this.heads.length;
+    }
+
+    /**
+     * Adds an entry for {@code id} with the specified priority.
+     *
+     * @throws IllegalArgumentException
+     *      if {@code key} is lower than the priority last polled.
+     */
+    void add(int id, long key) {
+        if (key < this.lastKey)
+            throw new IllegalArgumentException("Priority " + key + " is lower than " + this.lastKey);
+
+        if (this.size == 0) {
+            this.minKey = key;
+            this.maxKey = key;
+        } else {
+            this.minKey = Math.min(this.minKey, key);
+            this.maxKey = Math.max(this.maxKey, key);
+        }
+
+        if (this.maxKey - this.minKey >= this.heads.length) {
+            grow(this.maxKey - this.minKey + 1);
+        }
+
+        final int entry = allocateEntry();
+        this.entryIds[entry] = id;
+        this.entryKeys[entry] = key;
+        link(entry);
+        this.size++;
+        this.peakSize = Math.max(this.peakSize, this.size);
+    }
+
+    /**
+     * @return the lowest priority contained. The queue must not be empty.
+     */
+    long peekKey() {
+        skipEmptyBuckets();
+        return this.minKey;
+    }
+
+    /**
+     * Removes an entry with the lowest priority from the queue.
+     *
+     * @return the id of the removed entry.
+     */
+    int poll() {
+        skipEmptyBuckets();
+
+        final int bucket = (int) (this.minKey & (this.heads.length - 1));
+        final int entry = this.heads[bucket];
+        this.heads[bucket] = this.entryNext[entry];
+        this.entryNext[entry] = this.freeEntry;
+        this.freeEntry = entry;
+        this.size--;
+        this.lastKey = this.minKey;
+        return this.entryIds[entry];
+    }
+
+    void clear() {
+        Arrays.fill(this.heads, NONE);
+        this.freeEntry = NONE;
+        this.entryCount = 0;
+        this.size = 0;
+        this.peakSize = 0;
+        this.lastKey = 0;
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private void skipEmptyBuckets() {
+        final int mask = this.heads.length - 1;
+
+        while (this.heads[(int) (this.minKey & mask)] == NONE) {
+            this.minKey++;
+        }
+    }
+
+    private int allocateEntry() {
+        if (this.freeEntry != NONE) {
+            final int entry = this.freeEntry;
+            this.freeEntry = this.entryNext[entry];
+            return entry;
+        }
+
+        if (this.entryCount == this.entryIds.length) {
+            final int length = this.entryCount * 2;
+            this.entryIds = Arrays.copyOf(this.entryIds, length);
+            this.entryKeys = Arrays.copyOf(this.entryKeys, length);
+            this.entryNext = Arrays.copyOf(this.entryNext, length);
+        }
+
+        return this.entryCount++;
+    }
+
+    private void link(int entry) {
+        final int bucket = (int) (this.entryKeys[entry] & (this.heads.length - 1));
+        this.entryNext[entry] = this.heads[bucket];
+        this.heads[bucket] = entry;
+    }
+
+    /**
+     * Replaces the ring by one with at least {@code range} buckets and
+     * moves all entries to their new buckets.
+     */
+    private void grow(long range) {
+        if (range > 1 << 30)
+            throw new IllegalArgumentException("Priority range " + range + " is too large");
+
+        final int[] oldHeads = this.heads;
+        this.heads = new int[Integer.highestOneBit((int) range - 1) << 1];
+        Arrays.fill(this.heads, NONE);
+
+        for (int head : oldHeads) {
+            while (head != NONE) {
+                final int next = this.entryNext[head];
+                link(head);
+                head = next;
+            }
+        }
+    }
+}
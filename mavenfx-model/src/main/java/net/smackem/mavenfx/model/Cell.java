@@ -1,14 +1,21 @@
 package net.smackem.mavenfx.model;
 
 /**
+ * A lightweight view of a single cell of a {@link Board}.
+ * <p>
+ * The weight is stored by the board, so instances are cheap to create and
+ * are created on demand. Two instances denoting the same cell of the same
+ * board are equal.
+ *
  * @author pbo
  */
 public final class Cell {
+    private final Board board;
     private final int x;
     private final int y;
-    private int weight;
 
-    public Cell(int x, int y) {
+    Cell(Board board, int x, int y) {
+        this.board = board;
         this.x = x;
         this.y = y;
     }
@@ -22,10 +29,33 @@ public final class Cell {
     }
 
     public int getWeight() {
-        return this.weight;
+        return this.board.getWeight(this.x, this.y);
     }
 
     public void setWeight(int value) {
-        this.weight = value;
+        this.board.setWeight(this.x, this.y, value);
+    }
+
+    Board getBoard() {
+        return this.board;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj instanceof Cell == false) {
+            return false;
+        }
+
+        final Cell other = (Cell) obj;
+        return this.x == other.x && this.y == other.y && this.board == other.board;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.y * this.board.getWidth() + this.x;
     }
 }
@@ -0,0 +1,147 @@
+package net.smackem.mavenfx.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A compact, immutable copy of a {@link Path} of cells, for keeping paths
+ * around after they have been found.
+ * <p>
+ * The cells are stored as an {@code int} array of cell indices
+ * ({@code row * width + col}) from the origin to the destination, so that
+ * a path takes 4 bytes per cell instead of a {@link Path} and a
+ * {@link Cell} object per cell. The cells can be accessed by position in
+ * either direction; {@link #getX(int)} and {@link #getY(int)} read the
+ * coordinates without creating {@link Cell} instances, and
+ * {@link #getCells()} is a view creating them on demand. Only the total
+ * cost of the path is kept, not the costs of the single steps.
+ *
+ * @author pbo
+ */
+public final class CellPath {
+    private final Board board;
+    private final int[] indices;
+    private final double totalCost;
+
+    private CellPath(Board board, int[] indices, double totalCost) {
+        this.board = board;
+        this.indices = indices;
+        this.totalCost = totalCost;
+    }
+
+    /**
+     * @return a copy of {@code path}, starting with the origin, which is the
+     *      last node of {@code path}.
+     */
+    public static CellPath of(Path<Cell> path) {
+        Objects.requireNonNull(path);
+
+        final Board board = path.getHead().getBoard();
+        final int[] indices = new int[path.getLength()];
+        int position = indices.length;
+
+        for (Path<Cell> p = path; p != null; p = p.getTail()) {
+            indices[--position] = board.indexOf(p.getHead());
+        }
+
+        return new CellPath(board, indices, path.getTotalCost());
+    }
+
+    /**
+     * @return the number of cells of this path, including the origin and
+     *      the destination.
+     */
+    public int size() {
+        return this.indices.length;
+    }
+
+    public double getTotalCost() {
+        return this.totalCost;
+    }
+
+    public Cell getOrigin() {
+        return getCell(0);
+    }
+
+    public Cell getDestination() {
+        return getCell(this.indices.length - 1);
+    }
+
+    /**
+     * @return the cell at {@code position}, counted from the origin.
+     */
+    public Cell getCell(int position) {
+        return this.board.getCell(this.indices[position]);
+    }
+
+    /**
+     * @return the column of the cell at {@code position}, counted from the
+     *      origin.
+     */
+    public int getX(int position) {
+        return this.indices[position] % this.board.getWidth();
+    }
+
+    /**
+     * @return the row of the cell at {@code position}, counted from the
+     *      origin.
+     */
+    public int getY(int position) {
+        return this.indices[position] / this.board.getWidth();
+    }
+
+    /**
+     * @return an immutable view of the cells from the origin to the
+     *      destination. Iterate it backwards with
+     *      {@code listIterator(size())} to go from the destination to the
+     *      origin.
+     */
+    public List<Cell> getCells() {
+        return new CellList();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj instanceof CellPath == false) {
+            return false;
+        }
+
+        final CellPath other = (CellPath) obj;
+        return this.board == other.board
+                && Double.compare(this.totalCost, other.totalCost) == 0
+                && Arrays.equals(this.indices, other.indices);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.indices) * 31 + Double.hashCode(this.totalCost);
+    }
+
+    @Override
+    public String toString() {
+        return "CellPath[" + getX(0) + "/" + getY(0) + " -> "
+                + getX(this.indices.length - 1) + "/" + getY(this.indices.length - 1)
+                + ", " + this.indices.length + " cells, cost " + this.totalCost + "]";
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private final class CellList extends AbstractList<Cell> implements RandomAccess {
+        @Override
+        public Cell get(int index) {
+            return getCell(index);
+        }
+
+        @Override
+        public int size() {
+            return CellPath.this.indices.length;
+        }
+    }
+}
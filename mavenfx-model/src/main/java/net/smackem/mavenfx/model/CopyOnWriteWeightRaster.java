@@ -0,0 +1,181 @@
+package net.smackem.mavenfx.model;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A {@link WeightRaster} that can take immutable snapshots of itself in
+ * constant time.
+ * <p>
+ * The weights are read from a base raster until the first snapshot has been
+ * taken; until then, changes are written to the base raster as well. From
+ * then on the base raster is shared with the snapshots and never written
+ * again. A read-only base raster, like a file mapped read-only, is never
+ * written either. Instead, the raster is divided into chunks of
+ * {@code 2^CHUNK_SHIFT} weights, and the first change to a chunk copies it
+ * into a chunk of its own. The table of chunks is shared with the last
+ * snapshot and copied by the first change after the snapshot, so that
+ * every snapshot keeps the chunks that were current when it was taken and
+ * consecutive snapshots share all chunks that have not changed in between.
+ * Chunks no longer used by the raster or any snapshot are left to the
+ * garbage collector.
+ * <p>
+ * Snapshots can be read from any thread. Changing the raster and taking
+ * snapshots must be synchronized by the caller.
+ *
+ * @author pbo
+ */
+final class CopyOnWriteWeightRaster implements WeightRaster {
+    static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private final WeightRaster base;
+    private final boolean snapshot;
+    private int[][] chunks;
+    private boolean[] ownedChunks;
+    private boolean baseShared;
+    private boolean chunksShared;
+
+    CopyOnWriteWeightRaster(WeightRaster base) {
+        this(base, new int[(base.size() + CHUNK_MASK) >>> CHUNK_SHIFT][], false);
+    }
+
+    private CopyOnWriteWeightRaster(WeightRaster base, int[][] chunks, boolean snapshot) {
+        this.base = base;
+        this.chunks = chunks;
+        this.ownedChunks = new boolean[snapshot ? 0 : chunks.length];
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public int size() {
+        return this.base.size();
+    }
+
+    @Override
+    public int get(int index) {
+        final int[] chunk = this.chunks[index >>> CHUNK_SHIFT];
+        return chunk != null ? chunk[index & CHUNK_MASK] : this.base.get(index);
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     *      if this instance is a snapshot.
+     */
+    @Override
+    public void set(int index, int weight) {
+        if (this.snapshot)
+            throw new UnsupportedOperationException("Snapshots are read-only");
+
+        if (this.baseShared == false && this.base.isReadOnly() == false) {
+            this.base.set(index, weight);
+            return;
+        }
+
+        if (this.chunksShared) {
+            this.chunks = this.chunks.clone();
+            this.ownedChunks = new boolean[this.chunks.length];
+            this.chunksShared = false;
+        }
+
+        final int chunkIndex = index >>> CHUNK_SHIFT;
+
+        if (this.ownedChunks[chunkIndex] == false) {
+            this.chunks[chunkIndex] = copyChunk(chunkIndex);
+            this.ownedChunks[chunkIndex] = true;
+        }
+
+        this.chunks[chunkIndex][index & CHUNK_MASK] = weight;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return this.snapshot;
+    }
+
+    /**
+     * @return {@code true} if this instance has been created by
+     *      {@link #snapshot()}.
+     */
+    boolean isSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * @return an immutable copy of the current weights. Takes constant time.
+     */
+    CopyOnWriteWeightRaster snapshot() {
+        if (this.snapshot) {
+            return this;
+        }
+
+        this.baseShared = true;
+        this.chunksShared = true;
+        return new CopyOnWriteWeightRaster(this.base, this.chunks, true);
+    }
+
+    /**
+     * Passes the index of every weight that differs between this raster and
+     * {@code other} to {@code consumer}. Chunks shared by both rasters are
+     * skipped without being read, so that comparing two snapshots of the
+     * same raster takes time proportional to the number of chunks changed
+     * between them.
+     */
+    void forEachDifference(CopyOnWriteWeightRaster other, IntConsumer consumer) {
+        if (other.size() != size())
+            throw new IllegalArgumentException("Rasters differ in size");
+
+        final boolean sameBase = other.base == this.base;
+
+        for (int chunkIndex = 0; chunkIndex < this.chunks.length; chunkIndex++) {
+            if (this.chunks[chunkIndex] == other.chunks[chunkIndex] && sameBase) {
+                continue;
+            }
+
+            final int first = chunkIndex << CHUNK_SHIFT;
+            final int last = Math.min(first + CHUNK_SIZE, size());
+
+            for (int index = first; index < last; index++) {
+                if (get(index) != other.get(index)) {
+                    consumer.accept(index);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of chunks this raster does not share with the base
+     *      raster or any snapshot.
+     */
+    int getOwnedChunkCount() {
+        int count = 0;
+
+        if (this.chunksShared == false) {
+            for (final boolean owned : this.ownedChunks) {
+                if (owned) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private int[] copyChunk(int chunkIndex) {
+        final int[] current = this.chunks[chunkIndex];
+
+        if (current != null) {
+            return current.clone();
+        }
+
+        final int first = chunkIndex << CHUNK_SHIFT;
+        final int[] chunk = new int[Math.min(CHUNK_SIZE, this.base.size() - first)];
+
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = this.base.get(first + i);
+        }
+
+        return chunk;
+    }
+}
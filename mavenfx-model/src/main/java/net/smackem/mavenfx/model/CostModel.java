@@ -0,0 +1,195 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Objects;
+
+/**
+ * Defines the cost of a step from a cell to one of its neighbours, used by
+ * all searches of a {@link Board}.
+ * <p>
+ * A step costs its length ({@code 1} or {@code sqrt(2)}) plus the weight of
+ * the cell it enters. Diagonal steps additionally cost the
+ * {@linkplain #getDiagonalPenalty() diagonal penalty}, and steps in another
+ * direction than the step before the {@linkplain #getTurnPenalty() turn
+ * penalty}. With {@link Connectivity#FOUR}, diagonal steps are not allowed
+ * at all.
+ * <p>
+ * The costs are compiled into lookup tables when an instance is created,
+ * indexed by the {@linkplain #getDirection(int, int) direction} of a step
+ * and, for turns, by the direction of the step before, so that the
+ * searches do not need to compute distances or compare directions.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author pbo
+ */
+public final class CostModel {
+    public static final double DEFAULT_DIAGONAL_PENALTY = 0.7;
+    public static final double DEFAULT_TURN_PENALTY = 0.2;
+
+    /**
+     * The cost model used by boards unless another one is set: 8-connected,
+     * with the default penalties.
+     */
+    public static final CostModel DEFAULT =
+            new CostModel(Connectivity.EIGHT, DEFAULT_DIAGONAL_PENALTY, DEFAULT_TURN_PENALTY);
+
+    /**
+     * The number of direction indices, including {@link #NO_DIRECTION}.
+     */
+    static final int DIRECTION_COUNT = 9;
+
+    /**
+     * The direction index of the first cell of a path, which has not been
+     * entered from any direction.
+     */
+    static final int NO_DIRECTION = 4;
+
+    private final Connectivity connectivity;
+    private final double diagonalPenalty;
+    private final double turnPenalty;
+    private final double[] stepCosts = new double[DIRECTION_COUNT];
+    private final double[] turnCosts = new double[DIRECTION_COUNT * DIRECTION_COUNT];
+    private final boolean[] allowed = new boolean[DIRECTION_COUNT];
+
+    /**
+     * The neighbours a cell can be left to.
+     */
+    public enum Connectivity {
+        /**
+         * Only the neighbours sharing an edge with the cell.
+         */
+        FOUR,
+
+        /**
+         * The neighbours sharing an edge or a corner with the cell.
+         */
+        EIGHT,
+    }
+
+    public CostModel(Connectivity connectivity, double diagonalPenalty, double turnPenalty) {
+        if (diagonalPenalty >= 0.0 == false || Double.isInfinite(diagonalPenalty))
+            throw new IllegalArgumentException("Invalid diagonal penalty");
+        if (turnPenalty >= 0.0 == false || Double.isInfinite(turnPenalty))
+            throw new IllegalArgumentException("Invalid turn penalty");
+
+        this.connectivity = Objects.requireNonNull(connectivity);
+        this.diagonalPenalty = diagonalPenalty;
+        this.turnPenalty = turnPenalty;
+
+        for (int direction = 0; direction < DIRECTION_COUNT; direction++) {
+            final boolean diagonal = direction % 2 == 0 && direction != NO_DIRECTION;
+            this.allowed[direction] = direction != NO_DIRECTION
+                    && (diagonal == false || connectivity == Connectivity.EIGHT);
+            this.stepCosts[direction] = diagonal ? Math.sqrt(2.0) + diagonalPenalty : 1.0;
+
+            for (int previous = 0; previous < DIRECTION_COUNT; previous++) {
+                this.turnCosts[previous * DIRECTION_COUNT + direction] =
+                        previous == NO_DIRECTION || previous == direction ? 0.0 : turnPenalty;
+            }
+        }
+    }
+
+    public Connectivity getConnectivity() {
+        return this.connectivity;
+    }
+
+    public double getDiagonalPenalty() {
+        return this.diagonalPenalty;
+    }
+
+    public double getTurnPenalty() {
+        return this.turnPenalty;
+    }
+
+    /**
+     * @return a copy of this instance with the specified connectivity.
+     */
+    public CostModel withConnectivity(Connectivity connectivity) {
+        return new CostModel(connectivity, this.diagonalPenalty, this.turnPenalty);
+    }
+
+    /**
+     * @return a copy of this instance with the specified diagonal penalty.
+     */
+    public CostModel withDiagonalPenalty(double diagonalPenalty) {
+        return new CostModel(this.connectivity, diagonalPenalty, this.turnPenalty);
+    }
+
+    /**
+     * @return a copy of this instance with the specified turn penalty.
+     */
+    public CostModel withTurnPenalty(double turnPenalty) {
+        return new CostModel(this.connectivity, this.diagonalPenalty, turnPenalty);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj instanceof CostModel == false) {
+            return false;
+        }
+
+        final CostModel other = (CostModel) obj;
+        return this.connectivity == other.connectivity
+                && Double.compare(this.diagonalPenalty, other.diagonalPenalty) == 0
+                && Double.compare(this.turnPenalty, other.turnPenalty) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return (this.connectivity.hashCode() * 31 + Double.hashCode(this.diagonalPenalty)) * 31
+                + Double.hashCode(this.turnPenalty);
+    }
+
+    @Override
+    public String toString() {
+        return "CostModel[" + this.connectivity + ", diagonal " + this.diagonalPenalty
+                + ", turn " + this.turnPenalty + "]";
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    /**
+     * @return the index of the direction of a step by {@code dx}/{@code dy},
+     *      both in {@code [-1, 1]}: {@code (dy + 1) * 3 + dx + 1}. Straight
+     *      directions have odd indices, diagonal ones even indices other
+     *      than {@link #NO_DIRECTION}.
+     */
+    static int getDirection(int dx, int dy) {
+        return (dy + 1) * 3 + dx + 1;
+    }
+
+    /**
+     * @return {@code true} if steps in {@code direction} are allowed.
+     */
+    boolean isAllowed(int direction) {
+        return this.allowed[direction];
+    }
+
+    /**
+     * @return the cost of a step in {@code direction}, without the weight
+     *      of the cell entered and without the turn penalty.
+     */
+    double getStepCost(int direction) {
+        return this.stepCosts[direction];
+    }
+
+    /**
+     * @return the penalty for a step in {@code direction} after a step in
+     *      {@code previousDirection}, which may be {@link #NO_DIRECTION}.
+     */
+    double getTurnCost(int previousDirection, int direction) {
+        return this.turnCosts[previousDirection * DIRECTION_COUNT + direction];
+    }
+
+    /**
+     * @return the cost of a step in {@code direction} after a step in
+     *      {@code previousDirection}, without the weight of the cell entered.
+     */
+    double getEdgeCost(int previousDirection, int direction) {
+        return this.stepCosts[direction] + this.turnCosts[previousDirection * DIRECTION_COUNT + direction];
+    }
+}
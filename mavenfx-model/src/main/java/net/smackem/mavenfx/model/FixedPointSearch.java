@@ -0,0 +1,217 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Arrays;
+
+/**
+ * A* on the grid of a {@link Board} with costs in fixed-point integers and
+ * a {@link BucketQueue} as open set.
+ * <p>
+ * All costs are multiplied by {@link #SCALE} and rounded to integers: the
+ * step and turn costs of the {@link CostModel} of the board, which are
+ * scaled whenever the cost model changes, and the cell weights, which are
+ * integers already. The estimate is the euclidean distance, rounded down,
+ * and the step costs are rounded up, so that the priority of a node is
+ * never lower than the one of the node it was reached from.
+ * <p>
+ * Since all priorities are integers and never lower than the one polled
+ * last, the open set is a ring of buckets, one per priority, instead of a
+ * binary heap. Nodes whose cost is lowered are added again rather than
+ * moved; the outdated entries are skipped when they are polled and
+ * counted as {@link SearchStatistics#getStalePopCount() stale pops}.
+ * <p>
+ * Apart from the rounding, the search expands nodes like
+ * {@link GridSearch}. The costs of the returned path are recomputed in
+ * {@code double} and therefore exact, but the path itself may be more
+ * expensive than the one found by {@link SearchMode#ASTAR}, by at most
+ * {@link #TOLERANCE} per step of both paths, in addition to the
+ * differences caused by breaking ties differently.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author pbo
+ */
+final class FixedPointSearch {
+    /**
+     * The number of fixed-point units per unit of cost.
+     */
+    static final int SCALE = 100;
+
+    /**
+     * The maximum error of the fixed-point cost of a step, made of the
+     * rounding errors of its step and turn costs.
+     */
+    static final double TOLERANCE = 1.5 / SCALE;
+
+    private static final int NO_PARENT = -1;
+    private final Board board;
+    private final int width;
+    private final int height;
+    private final long[] costs;
+    private final int[] parents;
+    private final int[] seenStamps;
+    private final int[] closedStamps;
+    private final BucketQueue open;
+    private final long[] edgeCosts = new long[CostModel.DIRECTION_COUNT * CostModel.DIRECTION_COUNT];
+    private CostModel costModel;
+    private int stamp;
+    private SearchStatistics statistics = new SearchStatistics(SearchStatistics.TerminationReason.EXHAUSTED);
+
+    FixedPointSearch(Board board) {
+        this.board = board;
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+
+        final int size = this.width * this.height;
+        this.costs = new long[size];
+        this.parents = new int[size];
+        this.seenStamps = new int[size];
+        this.closedStamps = new int[size];
+        this.open = new BucketQueue((Board.OBSTACLE_WEIGHT + 4) * SCALE);
+    }
+
+    /**
+     * Finds the cheapest path from {@code origin} to {@code destination}.
+     *
+     * @return the path or {@code null} if there is no path.
+     */
+    Path<Cell> findPath(int origin, int destination) {
+        beginSearch();
+
+        final CostModel costModel = this.board.getCostModel();
+        final int destX = destination % this.width;
+        final int destY = destination / this.width;
+
+        this.costs[origin] = 0;
+        this.parents[origin] = NO_PARENT;
+        this.seenStamps[origin] = this.stamp;
+        this.open.add(origin, 0);
+
+        boolean found = false;
+        long expandedCount = 0;
+        long generatedCount = 0;
+        long stalePopCount = 0;
+
+        while (this.open.isEmpty() == false) {
+            Board.checkInterrupted();
+            final int current = this.open.poll();
+
+            if (this.closedStamps[current] == this.stamp) {
+                stalePopCount++;
+                continue;
+            }
+
+            if (current == destination) {
+                found = true;
+                break;
+            }
+
+            this.closedStamps[current] = this.stamp;
+            expandedCount++;
+
+            final int x = current % this.width;
+            final int y = current / this.width;
+            final int firstX = Math.max(x - 1, 0);
+            final int lastX = Math.min(x + 1, this.width - 1);
+            final int firstY = Math.max(y - 1, 0);
+            final int lastY = Math.min(y + 1, this.height - 1);
+            final int previous = this.parents[current];
+            final int previousDirection = previous != NO_PARENT
+                    ? CostModel.getDirection(x - previous % this.width, y - previous / this.width)
+                    : CostModel.NO_DIRECTION;
+            final int edgeOffset = previousDirection * CostModel.DIRECTION_COUNT;
+            final long currentCost = this.costs[current];
+
+            for (int ny = firstY; ny <= lastY; ny++) {
+                int neighbour = ny * this.width + firstX;
+
+                for (int nx = firstX; nx <= lastX; nx++, neighbour++) {
+                    final int direction = CostModel.getDirection(nx - x, ny - y);
+
+                    if (costModel.isAllowed(direction) == false || this.closedStamps[neighbour] == this.stamp) {
+                        continue;
+                    }
+
+                    final long cost = currentCost + this.edgeCosts[edgeOffset + direction]
+                            + (long) this.board.weightAt(neighbour) * SCALE;
+
+                    if (this.seenStamps[neighbour] != this.stamp || cost < this.costs[neighbour]) {
+                        this.seenStamps[neighbour] = this.stamp;
+                        this.costs[neighbour] = cost;
+                        this.parents[neighbour] = current;
+                        generatedCount++;
+
+                        final double dx = nx - destX;
+                        final double dy = ny - destY;
+                        this.open.add(neighbour, cost + (long) (Math.sqrt(dx * dx + dy * dy) * SCALE));
+                    }
+                }
+            }
+        }
+
+        this.statistics = new SearchStatistics(expandedCount, generatedCount, this.open.getPeakSize(),
+                stalePopCount,
+                found
+                        ? SearchStatistics.TerminationReason.FOUND
+                        : SearchStatistics.TerminationReason.EXHAUSTED);
+        return found ? buildPath(destination) : null;
+    }
+
+    /**
+     * @return the statistics of the last search, without wall time.
+     */
+    SearchStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private void beginSearch() {
+        final CostModel costModel = this.board.getCostModel();
+
+        if (costModel != this.costModel) {
+            this.costModel = costModel;
+
+            for (int previous = 0; previous < CostModel.DIRECTION_COUNT; previous++) {
+                for (int direction = 0; direction < CostModel.DIRECTION_COUNT; direction++) {
+                    this.edgeCosts[previous * CostModel.DIRECTION_COUNT + direction] =
+                            (long) Math.ceil(costModel.getStepCost(direction) * SCALE)
+                            + Math.round(costModel.getTurnCost(previous, direction) * SCALE);
+                }
+            }
+        }
+
+        this.open.clear();
+        this.stamp++;
+
+        if (this.stamp == Integer.MAX_VALUE) {
+            Arrays.fill(this.seenStamps, 0);
+            Arrays.fill(this.closedStamps, 0);
+            this.stamp = 1;
+        }
+    }
+
+    private Path<Cell> buildPath(int destination) {
+        int length = 0;
+
+        for (int index = destination; index != NO_PARENT; index = this.parents[index]) {
+            length++;
+        }
+
+        final int[] indices = new int[length];
+        int position = length;
+
+        for (int index = destination; index != NO_PARENT; index = this.parents[index]) {
+            indices[--position] = index;
+        }
+
+        Path<Cell> path = new Path<>(this.board.getCell(indices[0]));
+        double cost = 0.0;
+
+        for (int i = 1; i < length; i++) {
+            cost += this.board.calculateEdgeWeight(i > 1 ? indices[i - 2] : NO_PARENT, indices[i - 1], indices[i]);
+            path = new Path<>(this.board.getCell(indices[i]), path, cost);
+        }
+
+        return path;
+    }
+}
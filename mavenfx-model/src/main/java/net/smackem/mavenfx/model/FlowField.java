@@ -0,0 +1,506 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The costs of the cheapest paths from all cells of a {@link Board}, or of
+ * a rectangular region of it, to a single destination, together with the
+ * first step of each of these paths. Created by
+ * {@link Board#createFlowField(Cell)}.
+ * <p>
+ * The field is computed once with a reverse Dijkstra search from the
+ * destination; afterwards the path from any origin is read from the field
+ * in time proportional to its length, without searching. Computing the
+ * field takes about as long as a few dozen searches across the board, so
+ * it pays off when many origins are routed to the same destination.
+ * <p>
+ * Since the cost of a step depends on the direction of the step before,
+ * the field is made of states like the one of {@link IncrementalSearch}: a
+ * cell entered in a certain direction, plus a state per cell for a path
+ * starting at that cell. A path entering a cell either keeps its direction
+ * or turns, and turning costs the same whichever direction it turns to, so
+ * that the cost of a state is either the cost of going straight on or the
+ * cost of starting at the cell plus the turn penalty. The costs and the
+ * directions of the next steps are kept in primitive arrays; including the
+ * open set, the field takes about {@code 9 * 13} bytes per cell.
+ * The costs are exact for the {@link CostModel} of the board, like those
+ * of {@link SearchMode#INCREMENTAL}. Paths only run within the region of
+ * the field.
+ * <p>
+ * The field reads its own {@linkplain Board#snapshot() snapshot} of the
+ * weights, so that it is not affected by weights changed while it is being
+ * computed. When a query finds that the weights of the board have changed
+ * since, it compares the snapshots to find the changed cells and repairs
+ * only the states depending on them: the states whose paths enter a cell
+ * that has become more expensive are recomputed from their neighbours, and
+ * cheaper cells are propagated from as in the initial search. A change of
+ * the cost model of the board recomputes the whole field.
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @author pbo
+ */
+public final class FlowField {
+    private static final int STATES_PER_CELL = CostModel.DIRECTION_COUNT;
+
+    /**
+     * The state of a cell that holds the cost of the paths starting at the
+     * cell. All other states of a cell are indexed by the direction the cell
+     * has been entered in.
+     */
+    private static final int START = CostModel.NO_DIRECTION;
+
+    /**
+     * The next step of a state that turns, i.e. continues like the
+     * {@link #START} state of its cell.
+     */
+    private static final byte TURN = CostModel.NO_DIRECTION;
+
+    private static final byte NONE = -1;
+    private final Board board;
+    private final int destination;
+    private final int left;
+    private final int top;
+    private final int regionWidth;
+    private final int regionHeight;
+    private final double[] costs;
+    private final byte[] directions;
+    private final IndexedMinHeap open;
+    private CopyOnWriteWeightRaster weights;
+    private CostModel costModel;
+    private long version;
+    private boolean valid;
+    private int buildCount;
+    private long expandedCount;
+    private long generatedCount;
+    private int[] stack = new int[64];
+    private int stackSize;
+    private SearchStatistics statistics = new SearchStatistics(SearchStatistics.TerminationReason.EXHAUSTED);
+
+    FlowField(Board board, int destination, int left, int top, int right, int bottom) {
+        this.board = board;
+        this.destination = destination;
+        this.left = left;
+        this.top = top;
+        this.regionWidth = right - left + 1;
+        this.regionHeight = bottom - top + 1;
+
+        final int stateCount = this.regionWidth * this.regionHeight * STATES_PER_CELL;
+        this.costs = new double[stateCount];
+        this.directions = new byte[stateCount];
+        this.open = new IndexedMinHeap(stateCount);
+        update();
+    }
+
+    public Cell getDestination() {
+        return this.board.getCell(this.destination);
+    }
+
+    /**
+     * @return {@code true} if {@code cell} lies within the region of this
+     *      field.
+     */
+    public boolean contains(Cell cell) {
+        return toLocal(cell) >= 0;
+    }
+
+    /**
+     * @return the cost of the cheapest path from {@code origin} to the
+     *      destination or {@link Double#POSITIVE_INFINITY} if there is no
+     *      path within the region of this field.
+     */
+    public synchronized double getCost(Cell origin) {
+        update();
+
+        final int local = toLocal(origin);
+        return local >= 0 ? this.costs[local * STATES_PER_CELL + START] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the neighbour of {@code origin} the cheapest path from
+     *      {@code origin} to the destination continues with or {@code null}
+     *      if {@code origin} is the destination or if there is no path.
+     */
+    public synchronized Cell getNextCell(Cell origin) {
+        update();
+
+        final int local = toLocal(origin);
+
+        if (local < 0 || this.directions[local * STATES_PER_CELL + START] == NONE) {
+            return null;
+        }
+
+        final int direction = this.directions[local * STATES_PER_CELL + START];
+        return this.board.getCell(toBoardIndex(local) + getDx(direction) + getDy(direction) * this.board.getWidth());
+    }
+
+    /**
+     * Reads the cheapest path from {@code origin} to the destination from
+     * the field, in time proportional to the length of the path.
+     *
+     * @return the path or {@code null} if there is no path within the
+     *      region of this field.
+     */
+    public synchronized Path<Cell> getPath(Cell origin) {
+        update();
+
+        int local = toLocal(origin);
+
+        if (local < 0 || this.costs[local * STATES_PER_CELL + START] == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+
+        final int width = this.board.getWidth();
+        final int destinationLocal = toLocal(this.destination % width, this.destination / width);
+        int boardIndex = toBoardIndex(local);
+        int state = local * STATES_PER_CELL + START;
+        int previousDirection = CostModel.NO_DIRECTION;
+        Path<Cell> path = new Path<>(this.board.getCell(boardIndex));
+        double cost = 0.0;
+
+        while (local != destinationLocal) {
+            if (this.directions[state] == TURN) {
+                state = local * STATES_PER_CELL + START;
+            }
+
+            final int direction = this.directions[state];
+            local += getDx(direction) + getDy(direction) * this.regionWidth;
+            boardIndex += getDx(direction) + getDy(direction) * width;
+            cost += this.costModel.getEdgeCost(previousDirection, direction) + this.weights.get(boardIndex);
+            path = new Path<>(this.board.getCell(boardIndex), path, cost);
+            previousDirection = direction;
+            state = local * STATES_PER_CELL + direction;
+        }
+
+        return path;
+    }
+
+    /**
+     * Brings the field up to date with the weights and the cost model of
+     * the board. Called by all queries, but may be called in advance, e.g.
+     * right after changing weights, to take the time off the next query.
+     *
+     * @throws CancellationException
+     *      if the current thread has been interrupted. The field is
+     *      recomputed by the next query then.
+     */
+    public synchronized void update() {
+        final CostModel costModel = this.board.getCostModel();
+
+        if (this.valid == false || costModel != this.costModel) {
+            build(costModel);
+            return;
+        }
+
+        final long version = this.board.getVersion();
+
+        if (version == this.version) {
+            return;
+        }
+
+        final CopyOnWriteWeightRaster weights = this.board.snapshotWeights();
+        final CopyOnWriteWeightRaster oldWeights = this.weights;
+        final int width = this.board.getWidth();
+        final BitSet changedCells = new BitSet();
+        final BitSet increasedCells = new BitSet();
+
+        weights.forEachDifference(oldWeights, index -> {
+            final int local = toLocal(index % width, index / width);
+
+            if (local >= 0) {
+                changedCells.set(local);
+
+                if (weights.get(index) > oldWeights.get(index)) {
+                    increasedCells.set(local);
+                }
+            }
+        });
+
+        this.weights = weights;
+        this.version = version;
+
+        if (changedCells.isEmpty() == false) {
+            this.valid = false;
+            repair(changedCells, increasedCells);
+            this.valid = true;
+        }
+    }
+
+    /**
+     * @return the statistics of the last computation or repair of the
+     *      field, without wall time.
+     */
+    public synchronized SearchStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * @return the number of times the whole field has been computed since
+     *      this instance has been created.
+     */
+    synchronized int getBuildCount() {
+        return this.buildCount;
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private static int getDx(int direction) {
+        return direction % 3 - 1;
+    }
+
+    private static int getDy(int direction) {
+        return direction / 3 - 1;
+    }
+
+    private int toLocal(Cell cell) {
+        if (cell.getBoard() != this.board)
+            throw new IllegalArgumentException("The cell belongs to another board");
+
+        return toLocal(cell.getX(), cell.getY());
+    }
+
+    /**
+     * @return the index of the cell in the region or {@code -1} if it lies
+     *      outside the region.
+     */
+    private int toLocal(int col, int row) {
+        final int x = col - this.left;
+        final int y = row - this.top;
+
+        return x >= 0 && x < this.regionWidth && y >= 0 && y < this.regionHeight
+                ? y * this.regionWidth + x
+                : -1;
+    }
+
+    private int toBoardIndex(int local) {
+        return (this.top + local / this.regionWidth) * this.board.getWidth() + this.left + local % this.regionWidth;
+    }
+
+    /**
+     * @return the index of the neighbour of the local cell {@code local} in
+     *      {@code direction} or {@code -1} if it lies outside the region.
+     */
+    private int neighbourOf(int local, int direction) {
+        final int x = local % this.regionWidth + getDx(direction);
+        final int y = local / this.regionWidth + getDy(direction);
+
+        return x >= 0 && x < this.regionWidth && y >= 0 && y < this.regionHeight
+                ? y * this.regionWidth + x
+                : -1;
+    }
+
+    private void build(CostModel costModel) {
+        this.valid = false;
+        this.costModel = costModel;
+        this.version = this.board.getVersion();
+        this.weights = this.board.snapshotWeights();
+        beginUpdate();
+
+        Arrays.fill(this.costs, Double.POSITIVE_INFINITY);
+        Arrays.fill(this.directions, NONE);
+
+        final int width = this.board.getWidth();
+        final int destinationLocal = toLocal(this.destination % width, this.destination / width);
+
+        for (int direction = 0; direction < STATES_PER_CELL; direction++) {
+            if (direction == START || costModel.isAllowed(direction)) {
+                relax(destinationLocal * STATES_PER_CELL + direction, 0.0, NONE);
+            }
+        }
+
+        propagate();
+        this.valid = true;
+        this.buildCount++;
+    }
+
+    /**
+     * Invalidates all states whose paths enter one of
+     * {@code increasedCells}, seeds them with the costs of their valid
+     * successors and the predecessors of {@code changedCells} with their
+     * new costs, and propagates the changes.
+     */
+    private void repair(BitSet changedCells, BitSet increasedCells) {
+        beginUpdate();
+
+        final BitSet invalidStates = new BitSet();
+
+        for (int cell = increasedCells.nextSetBit(0); cell >= 0; cell = increasedCells.nextSetBit(cell + 1)) {
+            for (int direction = 0; direction < STATES_PER_CELL; direction++) {
+                if (direction != START && this.costModel.isAllowed(direction)) {
+                    invalidatePredecessors(cell * STATES_PER_CELL + direction, invalidStates);
+                }
+            }
+        }
+
+        // invalidate all states whose paths continue with an invalid state
+        while (this.stackSize > 0) {
+            final int state = this.stack[--this.stackSize];
+            final int cell = state / STATES_PER_CELL;
+
+            if (state % STATES_PER_CELL == START) {
+                for (int direction = 0; direction < STATES_PER_CELL; direction++) {
+                    if (direction != START) {
+                        invalidate(cell * STATES_PER_CELL + direction, TURN, invalidStates);
+                    }
+                }
+            } else {
+                invalidatePredecessors(state, invalidStates);
+            }
+        }
+
+        for (int state = invalidStates.nextSetBit(0); state >= 0; state = invalidStates.nextSetBit(state + 1)) {
+            this.costs[state] = Double.POSITIVE_INFINITY;
+            this.directions[state] = NONE;
+        }
+
+        for (int state = invalidStates.nextSetBit(0); state >= 0; state = invalidStates.nextSetBit(state + 1)) {
+            seed(state);
+        }
+
+        // the cells that have become cheaper may shorten the paths of valid states
+        for (int cell = changedCells.nextSetBit(0); cell >= 0; cell = changedCells.nextSetBit(cell + 1)) {
+            for (int direction = 0; direction < STATES_PER_CELL; direction++) {
+                if (direction != START && this.costModel.isAllowed(direction)) {
+                    relaxPredecessors(cell * STATES_PER_CELL + direction);
+                }
+            }
+        }
+
+        propagate();
+    }
+
+    /**
+     * Invalidates the states of the cell from which {@code state} is
+     * entered if their paths continue with {@code state}.
+     */
+    private void invalidatePredecessors(int state, BitSet invalidStates) {
+        final int direction = state % STATES_PER_CELL;
+        final int predecessor = neighbourOf(state / STATES_PER_CELL, CostModel.NO_DIRECTION * 2 - direction);
+
+        if (predecessor >= 0) {
+            invalidate(predecessor * STATES_PER_CELL + direction, (byte) direction, invalidStates);
+            invalidate(predecessor * STATES_PER_CELL + START, (byte) direction, invalidStates);
+        }
+    }
+
+    /**
+     * Invalidates {@code state} if its next step is {@code next} and
+     * pushes it onto the stack of states whose predecessors remain to be
+     * checked.
+     */
+    private void invalidate(int state, byte next, BitSet invalidStates) {
+        if (this.directions[state] != next || invalidStates.get(state)) {
+            return;
+        }
+
+        invalidStates.set(state);
+
+        if (this.stackSize == this.stack.length) {
+            this.stack = Arrays.copyOf(this.stack, this.stackSize * 2);
+        }
+
+        this.stack[this.stackSize++] = state;
+    }
+
+    /**
+     * Sets the cost of an invalidated state to the cheapest cost via its
+     * successors.
+     */
+    private void seed(int state) {
+        final int cell = state / STATES_PER_CELL;
+        final int direction = state % STATES_PER_CELL;
+
+        if (direction != START) {
+            final int next = neighbourOf(cell, direction);
+
+            if (next >= 0) {
+                relax(state, this.costs[next * STATES_PER_CELL + direction] + stepCost(next, direction),
+                        (byte) direction);
+            }
+
+            relax(state, this.costs[cell * STATES_PER_CELL + START] + this.costModel.getTurnPenalty(), TURN);
+            return;
+        }
+
+        for (int nextDirection = 0; nextDirection < STATES_PER_CELL; nextDirection++) {
+            final int next = neighbourOf(cell, nextDirection);
+
+            if (nextDirection != START && this.costModel.isAllowed(nextDirection) && next >= 0) {
+                relax(state, this.costs[next * STATES_PER_CELL + nextDirection] + stepCost(next, nextDirection),
+                        (byte) nextDirection);
+            }
+        }
+    }
+
+    /**
+     * Runs Dijkstra backwards from the states in the open set.
+     */
+    private void propagate() {
+        while (this.open.isEmpty() == false) {
+            Board.checkInterrupted();
+            final int state = this.open.poll();
+            final int cell = state / STATES_PER_CELL;
+            final int direction = state % STATES_PER_CELL;
+            this.expandedCount++;
+
+            if (direction == START) {
+                // the states entering the cell and turning
+                final double cost = this.costs[state] + this.costModel.getTurnPenalty();
+
+                for (int previousDirection = 0; previousDirection < STATES_PER_CELL; previousDirection++) {
+                    if (previousDirection != START && this.costModel.isAllowed(previousDirection)) {
+                        relax(cell * STATES_PER_CELL + previousDirection, cost, TURN);
+                    }
+                }
+            } else {
+                relaxPredecessors(state);
+            }
+        }
+
+        this.statistics = new SearchStatistics(this.expandedCount, this.generatedCount, this.open.getPeakSize(),
+                SearchStatistics.TerminationReason.EXHAUSTED);
+    }
+
+    /**
+     * Relaxes the states of the cell from which {@code state} is entered:
+     * the state going straight on and the {@link #START} state.
+     */
+    private void relaxPredecessors(int state) {
+        final int cell = state / STATES_PER_CELL;
+        final int direction = state % STATES_PER_CELL;
+        final int predecessor = neighbourOf(cell, CostModel.NO_DIRECTION * 2 - direction);
+
+        if (predecessor < 0 || this.costs[state] == Double.POSITIVE_INFINITY) {
+            return;
+        }
+
+        final double cost = this.costs[state] + stepCost(cell, direction);
+        relax(predecessor * STATES_PER_CELL + direction, cost, (byte) direction);
+        relax(predecessor * STATES_PER_CELL + START, cost, (byte) direction);
+    }
+
+    /**
+     * @return the cost of stepping in {@code direction} into the local cell
+     *      {@code cell}.
+     */
+    private double stepCost(int cell, int direction) {
+        return this.costModel.getStepCost(direction) + this.weights.get(toBoardIndex(cell));
+    }
+
+    private void relax(int state, double cost, byte next) {
+        if (cost < this.costs[state]) {
+            this.costs[state] = cost;
+            this.directions[state] = next;
+            this.open.put(state, cost);
+            this.generatedCount++;
+        }
+    }
+
+    private void beginUpdate() {
+        this.open.clear();
+        this.expandedCount = 0;
+        this.generatedCount = 0;
+    }
+}
@@ -0,0 +1,328 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A* search specialized for the 8-connected grid of a {@link Board}.
+ * <p>
+ * Nodes are identified by their cell index ({@code row * width + col}).
+ * Path costs, parents and the closed set live in primitive arrays that are
+ * allocated once per instance and reused by subsequent searches, so that
+ * expanding a node does not allocate any objects.
+ * <p>
+ * Uses the same costs and expansion order as {@link Path#findPath} with the
+ * cost functions of {@link Board}, looking the costs of a step up in the
+ * tables of the {@link CostModel} of the board. Since the cost of an edge depends
+ * on the direction the path entered its origin cell, the choice between
+ * equally expensive partial paths may differ, so that results can differ
+ * from the generic search by a few direction change penalties.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author pbo
+ */
+final class GridSearch {
+    private static final int NO_PARENT = -1;
+    private static final int NONE = -1;
+    private final Board board;
+    private final int width;
+    private final int height;
+    private final double[] costs;
+    private final int[] parents;
+    private final int[] seenStamps;
+    private final int[] closedStamps;
+    private final IndexedMinHeap open;
+    private Board source;
+    private int stamp;
+    private Bounds exploredBounds = new Bounds();
+    private SearchStatistics statistics = new SearchStatistics(SearchStatistics.TerminationReason.EXHAUSTED);
+
+    /**
+     * Estimates the cost of the cheapest path from a cell to the destination.
+     */
+    @FunctionalInterface
+    interface CostEstimate {
+        double estimate(int index);
+    }
+
+    GridSearch(Board board) {
+        this.board = board;
+        this.source = board;
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+
+        final int size = this.width * this.height;
+        this.costs = new double[size];
+        this.parents = new int[size];
+        this.seenStamps = new int[size];
+        this.closedStamps = new int[size];
+        this.open = new IndexedMinHeap(size);
+    }
+
+    /**
+     * Lets the following searches read the weights and the cost model from
+     * {@code source}, a snapshot of the board, instead of the board itself.
+     * The paths still consist of cells of the board.
+     */
+    void setSource(Board source) {
+        this.source = source;
+    }
+
+    /**
+     * Finds the cheapest path from {@code origin} to {@code destination}.
+     *
+     * @param origin
+     *      The index of the origin cell.
+     *
+     * @param destination
+     *      The index of the destination cell.
+     *
+     * @param blocked
+     *      The indices of the cells the path must not visit, or {@code null}.
+     *      The destination is never blocked.
+     *
+     * @return the path or {@code null} if there is no path.
+     */
+    Path<Cell> findPath(int origin, int destination, BitSet blocked) {
+        return findPath(origin, destination, blocked, (BitSet) null);
+    }
+
+    /**
+     * Finds the cheapest path from {@code origin} to {@code destination}
+     * that only visits cells contained in {@code region}.
+     *
+     * @param region
+     *      The indices of the cells the path may visit, or {@code null}
+     *      to allow all cells.
+     *
+     * @see #findPath(int, int, BitSet)
+     */
+    Path<Cell> findPath(int origin, int destination, BitSet blocked, BitSet region) {
+        return search(origin, destination, blocked, region, null, null, 0, 0, this.width - 1, this.height - 1)
+                ? buildPath(destination)
+                : null;
+    }
+
+    /**
+     * Finds the cheapest path from {@code origin} to {@code destination},
+     * guided by {@code estimate} instead of the euclidean distance. The
+     * estimate must not exceed the actual cost.
+     *
+     * @see #findPath(int, int, BitSet)
+     */
+    Path<Cell> findPath(int origin, int destination, BitSet blocked, CostEstimate estimate) {
+        return search(origin, destination, blocked, null, estimate, null, 0, 0, this.width - 1, this.height - 1)
+                ? buildPath(destination)
+                : null;
+    }
+
+    /**
+     * Computes the costs of the cheapest paths from {@code origin} to all
+     * cells inside the specified rectangle, using only cells inside the
+     * rectangle. The costs can be queried with {@link #getCost(int)} until
+     * the next search is started.
+     */
+    void computeCosts(int origin, int minX, int minY, int maxX, int maxY) {
+        search(origin, NONE, null, null, null, null, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Computes the cheapest paths from {@code origin} to all cells contained
+     * in {@code targets}, stopping as soon as all of them have been reached.
+     * The paths can be queried with {@link #getPath(int)} until the next
+     * search is started.
+     */
+    void computePaths(int origin, BitSet targets) {
+        search(origin, NONE, null, null, null, targets, 0, 0, this.width - 1, this.height - 1);
+    }
+
+    /**
+     * @return the cheapest path found by the last search from its origin to
+     *      the cell with the specified index or {@code null} if the cell has
+     *      not been reached. Only valid for cells the search has expanded
+     *      or, with {@link #computePaths(int, BitSet)}, for the targets.
+     */
+    Path<Cell> getPath(int index) {
+        return this.seenStamps[index] == this.stamp
+                ? buildPath(index)
+                : null;
+    }
+
+    /**
+     * @return the cost of the cheapest path found by the last search to the
+     *      cell with the specified index or {@link Double#POSITIVE_INFINITY}
+     *      if the cell has not been reached.
+     */
+    double getCost(int index) {
+        return this.seenStamps[index] == this.stamp
+                ? this.costs[index]
+                : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the rectangle containing all cells whose weights have been
+     *      read by the last search. Changing the weights of other cells
+     *      does not change the outcome of the search.
+     */
+    Bounds getExploredBounds() {
+        return this.exploredBounds;
+    }
+
+    /**
+     * @return the statistics of the last search, without wall time.
+     */
+    SearchStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    /**
+     * Runs A* or, if {@code destination} is {@link #NONE}, Dijkstra until
+     * all reachable cells or all {@code targets} have been expanded.
+     *
+     * @return {@code true} if {@code destination} has been reached.
+     */
+    private boolean search(int origin, int destination, BitSet blocked, BitSet region, CostEstimate estimate,
+                           BitSet targets, int minX, int minY, int maxX, int maxY) {
+        beginSearch();
+
+        final CostModel costModel = this.source.getCostModel();
+        final boolean hasDestination = destination != NONE;
+        final int destX = destination % this.width;
+        final int destY = destination / this.width;
+
+        this.costs[origin] = 0.0;
+        this.parents[origin] = NO_PARENT;
+        this.seenStamps[origin] = this.stamp;
+        this.open.put(origin, 0.0);
+
+        int expandedMinX = Integer.MAX_VALUE;
+        int expandedMinY = Integer.MAX_VALUE;
+        int expandedMaxX = Integer.MIN_VALUE;
+        int expandedMaxY = Integer.MIN_VALUE;
+        boolean found = false;
+        long expandedCount = 0;
+        long generatedCount = 0;
+        int remainingTargets = targets != null ? targets.cardinality() : -1;
+
+        while (this.open.isEmpty() == false) {
+            Board.checkInterrupted();
+            final int current = this.open.poll();
+
+            if (current == destination) {
+                found = true;
+                break;
+            }
+
+            if (targets != null && targets.get(current) && --remainingTargets == 0) {
+                break;
+            }
+
+            this.closedStamps[current] = this.stamp;
+            expandedCount++;
+
+            final int x = current % this.width;
+            final int y = current / this.width;
+            expandedMinX = Math.min(expandedMinX, x);
+            expandedMinY = Math.min(expandedMinY, y);
+            expandedMaxX = Math.max(expandedMaxX, x);
+            expandedMaxY = Math.max(expandedMaxY, y);
+            final int firstX = Math.max(x - 1, minX);
+            final int lastX = Math.min(x + 1, maxX);
+            final int firstY = Math.max(y - 1, minY);
+            final int lastY = Math.min(y + 1, maxY);
+            final int previous = this.parents[current];
+            final int previousDirection = previous != NO_PARENT
+                    ? CostModel.getDirection(x - previous % this.width, y - previous / this.width)
+                    : CostModel.NO_DIRECTION;
+            final double currentCost = this.costs[current];
+
+            for (int ny = firstY; ny <= lastY; ny++) {
+                int neighbour = ny * this.width + firstX;
+
+                for (int nx = firstX; nx <= lastX; nx++, neighbour++) {
+                    final int direction = CostModel.getDirection(nx - x, ny - y);
+
+                    if (costModel.isAllowed(direction) == false || this.closedStamps[neighbour] == this.stamp) {
+                        continue;
+                    }
+
+                    if (region != null && region.get(neighbour) == false) {
+                        continue;
+                    }
+
+                    if (blocked != null && neighbour != destination && blocked.get(neighbour)) {
+                        continue;
+                    }
+
+                    final double cost = currentCost + costModel.getEdgeCost(previousDirection, direction)
+                            + this.source.weightAt(neighbour);
+
+                    if (this.seenStamps[neighbour] != this.stamp || cost < this.costs[neighbour]) {
+                        this.seenStamps[neighbour] = this.stamp;
+                        this.costs[neighbour] = cost;
+                        this.parents[neighbour] = current;
+                        generatedCount++;
+
+                        if (estimate != null) {
+                            this.open.put(neighbour, cost + estimate.estimate(neighbour));
+                        } else if (hasDestination) {
+                            final double dx = nx - destX;
+                            final double dy = ny - destY;
+                            this.open.put(neighbour, cost + Math.sqrt(dx * dx + dy * dy));
+                        } else {
+                            this.open.put(neighbour, cost);
+                        }
+                    }
+                }
+            }
+        }
+
+        // the weights read are those of the neighbours of the expanded cells
+        this.exploredBounds = expandedMinX > expandedMaxX
+                ? new Bounds()
+                : new Bounds(Math.max(expandedMinX - 1, minX), Math.max(expandedMinY - 1, minY),
+                             Math.min(expandedMaxX + 1, maxX), Math.min(expandedMaxY + 1, maxY));
+        this.statistics = new SearchStatistics(expandedCount, generatedCount, this.open.getPeakSize(),
+                found || remainingTargets == 0
+                        ? SearchStatistics.TerminationReason.FOUND
+                        : SearchStatistics.TerminationReason.EXHAUSTED);
+        return found;
+    }
+
+    private void beginSearch() {
+        this.open.clear();
+        this.stamp++;
+
+        if (this.stamp == Integer.MAX_VALUE) {
+            Arrays.fill(this.seenStamps, 0);
+            Arrays.fill(this.closedStamps, 0);
+            this.stamp = 1;
+        }
+    }
+
+    private Path<Cell> buildPath(int destination) {
+        int length = 0;
+
+        for (int index = destination; index != NO_PARENT; index = this.parents[index]) {
+            length++;
+        }
+
+        final int[] indices = new int[length];
+        int position = length;
+
+        for (int index = destination; index != NO_PARENT; index = this.parents[index]) {
+            indices[--position] = index;
+        }
+
+        Path<Cell> path = new Path<>(this.board.getCell(indices[0]));
+
+        for (int i = 1; i < length; i++) {
+            path = new Path<>(this.board.getCell(indices[i]), path, this.costs[indices[i]]);
+        }
+
+        return path;
+    }
+}
@@ -0,0 +1,447 @@
+package net.smackem.mavenfx.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Hierarchical path-finding (HPA*) on a {@link Board}.
+ * <p>
+ * The board is split into square clusters. Each border between two
+ * adjacent clusters gets a few entrances, a pair of cells facing each other
+ * across the border. The cheapest costs between the entrance cells of a
+ * cluster are precomputed, which yields a small abstract graph. A query
+ * searches the abstract graph and then refines the result with A*
+ * restricted to the clusters the abstract path passes through.
+ * <p>
+ * The abstraction is built lazily and kept between queries. When a weight
+ * changes, {@link #invalidate(int, int)} marks only the cluster containing
+ * the cell and, for cells on a cluster border, the border and the cluster
+ * on its other side for rebuilding. When the {@link CostModel} of the board
+ * changes, all clusters are rebuilt.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author pbo
+ */
+final class HierarchicalSearch {
+    static final int CLUSTER_SIZE = 32;
+    private static final int ENTRANCE_SPACING = 16;
+    private static final int[] EMPTY = new int[0];
+    private final Board board;
+    private final GridSearch search;
+    private final int width;
+    private final int height;
+    private final int clusterColumns;
+    private final int clusterRows;
+    private final Cluster[] clusters;
+    private final Border[] leftBorders;
+    private final Border[] topBorders;
+    private int rebuildCount;
+    private CostModel costModel;
+    private SearchStatistics statistics = new SearchStatistics(SearchStatistics.TerminationReason.EXHAUSTED);
+
+    HierarchicalSearch(Board board, GridSearch search) {
+        this.board = board;
+        this.search = search;
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+        this.clusterColumns = (this.width + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.clusterRows = (this.height + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+
+        final int count = this.clusterColumns * this.clusterRows;
+        this.clusters = new Cluster[count];
+        this.leftBorders = new Border[count];
+        this.topBorders = new Border[count];
+
+        for (int cy = 0; cy < this.clusterRows; cy++) {
+            for (int cx = 0; cx < this.clusterColumns; cx++) {
+                final int index = cy * this.clusterColumns + cx;
+                this.clusters[index] = new Cluster(cx * CLUSTER_SIZE, cy * CLUSTER_SIZE,
+                        Math.min((cx + 1) * CLUSTER_SIZE, this.width) - 1,
+                        Math.min((cy + 1) * CLUSTER_SIZE, this.height) - 1);
+                this.leftBorders[index] = cx > 0 ? new Border() : null;
+                this.topBorders[index] = cy > 0 ? new Border() : null;
+            }
+        }
+    }
+
+    /**
+     * Marks the parts of the abstraction that depend on the weight of the
+     * specified cell for rebuilding.
+     */
+    void invalidate(int col, int row) {
+        final int cx = col / CLUSTER_SIZE;
+        final int cy = row / CLUSTER_SIZE;
+        final int index = cy * this.clusterColumns + cx;
+        final Cluster cluster = this.clusters[index];
+
+        cluster.dirty = true;
+
+        if (col == cluster.minX && cx > 0) {
+            this.leftBorders[index].dirty = true;
+            this.clusters[index - 1].dirty = true;
+        }
+        if (col == cluster.maxX && cx < this.clusterColumns - 1) {
+            this.leftBorders[index + 1].dirty = true;
+            this.clusters[index + 1].dirty = true;
+        }
+        if (row == cluster.minY && cy > 0) {
+            this.topBorders[index].dirty = true;
+            this.clusters[index - this.clusterColumns].dirty = true;
+        }
+        if (row == cluster.maxY && cy < this.clusterRows - 1) {
+            this.topBorders[index + this.clusterColumns].dirty = true;
+            this.clusters[index + this.clusterColumns].dirty = true;
+        }
+    }
+
+    /**
+     * @return the number of clusters rebuilt since this instance has been
+     *      created.
+     */
+    int getRebuildCount() {
+        return this.rebuildCount;
+    }
+
+    /**
+     * Finds a path from {@code origin} to {@code destination}.
+     *
+     * @return the path or {@code null} if there is no path.
+     */
+    Path<Cell> findPath(int origin, int destination) {
+        final Cluster originCluster = getCluster(origin);
+        final Cluster destCluster = getCluster(destination);
+
+        if (Math.abs(originCluster.minX - destCluster.minX) <= CLUSTER_SIZE
+                && Math.abs(originCluster.minY - destCluster.minY) <= CLUSTER_SIZE) {
+            // too close for the abstraction to pay off
+            final Path<Cell> path = this.search.findPath(origin, destination, null);
+            this.statistics = this.search.getStatistics();
+            return path;
+        }
+
+        update();
+
+        final SearchStatistics statistics = new SearchStatistics(SearchStatistics.TerminationReason.EXHAUSTED);
+        final double[] originCosts = new double[originCluster.nodes.length];
+        this.search.computeCosts(origin, originCluster.minX, originCluster.minY, originCluster.maxX, originCluster.maxY);
+        statistics.add(this.search.getStatistics());
+
+        for (int i = 0; i < originCosts.length; i++) {
+            originCosts[i] = this.search.getCost(originCluster.nodes[i]);
+        }
+
+        // a path and its reverse only differ in the weights of their first and last cells
+        final double[] destCosts = new double[destCluster.nodes.length];
+        this.search.computeCosts(destination, destCluster.minX, destCluster.minY, destCluster.maxX, destCluster.maxY);
+        statistics.add(this.search.getStatistics());
+
+        for (int i = 0; i < destCosts.length; i++) {
+            final int node = destCluster.nodes[i];
+            destCosts[i] = this.search.getCost(node) - this.board.weightAt(node) + this.board.weightAt(destination);
+        }
+
+        final Path<Integer> abstractPath = Path.findPath(origin, destination,
+                (path, node) -> calculateAbstractCost(path.getHead(), node, origin, originCosts, destination, destCosts),
+                node -> calculateDistance(node, destination),
+                node -> collectAbstractNeighbours(node, origin, destination));
+
+        this.statistics = statistics;
+
+        if (abstractPath == null) {
+            return null;
+        }
+
+        final BitSet corridor = new BitSet(this.width * this.height);
+
+        for (final Integer node : abstractPath.getNodes()) {
+            final Cluster cluster = getCluster(node);
+
+            for (int row = cluster.minY; row <= cluster.maxY; row++) {
+                corridor.set(row * this.width + cluster.minX, row * this.width + cluster.maxX + 1);
+            }
+        }
+
+        Path<Cell> path = this.search.findPath(origin, destination, null, corridor);
+        statistics.add(this.search.getStatistics());
+
+        if (path == null) {
+            path = this.search.findPath(origin, destination, null);
+            statistics.add(this.search.getStatistics());
+        }
+
+        statistics.setTerminationReason(this.search.getStatistics().getTerminationReason());
+        return path;
+    }
+
+    /**
+     * @return the statistics of the searches on the board run by the last
+     *      query, without wall time. The search on the abstract graph is
+     *      not included.
+     */
+    SearchStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private Cluster getCluster(int index) {
+        final int cx = index % this.width / CLUSTER_SIZE;
+        final int cy = index / this.width / CLUSTER_SIZE;
+        return this.clusters[cy * this.clusterColumns + cx];
+    }
+
+    private double calculateDistance(int index1, int index2) {
+        final double dx = index1 % this.width - index2 % this.width;
+        final double dy = index1 / this.width - index2 / this.width;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private Collection<Integer> collectAbstractNeighbours(int node, int origin, int destination) {
+        final Collection<Integer> neighbours = new ArrayList<>();
+        final Cluster cluster = getCluster(node);
+        final boolean isEntrance = cluster.indexOf(node) >= 0;
+
+        if (node == origin || isEntrance) {
+            for (final int other : cluster.nodes) {
+                if (other != node) {
+                    neighbours.add(other);
+                }
+            }
+        }
+
+        if (isEntrance) {
+            collectPartners(node, cluster, neighbours);
+        }
+
+        if (isEntrance && cluster == getCluster(destination)) {
+            neighbours.add(destination);
+        }
+
+        return neighbours;
+    }
+
+    private void collectPartners(int node, Cluster cluster, Collection<Integer> partners) {
+        final int index = getClusterIndex(cluster);
+        final int cx = index % this.clusterColumns;
+        final int cy = index / this.clusterColumns;
+
+        if (cx > 0) {
+            collectPartners(node, this.leftBorders[index], partners);
+        }
+        if (cx < this.clusterColumns - 1) {
+            collectPartners(node, this.leftBorders[index + 1], partners);
+        }
+        if (cy > 0) {
+            collectPartners(node, this.topBorders[index], partners);
+        }
+        if (cy < this.clusterRows - 1) {
+            collectPartners(node, this.topBorders[index + this.clusterColumns], partners);
+        }
+    }
+
+    private static void collectPartners(int node, Border border, Collection<Integer> partners) {
+        final int[] pairs = border.pairs;
+
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (pairs[i] == node) {
+                partners.add(pairs[i + 1]);
+            } else if (pairs[i + 1] == node) {
+                partners.add(pairs[i]);
+            }
+        }
+    }
+
+    private int getClusterIndex(Cluster cluster) {
+        return cluster.minY / CLUSTER_SIZE * this.clusterColumns + cluster.minX / CLUSTER_SIZE;
+    }
+
+    private double calculateAbstractCost(int from, int to, int origin, double[] originCosts,
+                                         int destination, double[] destCosts) {
+        final Cluster fromCluster = getCluster(from);
+        final Cluster toCluster = getCluster(to);
+
+        if (fromCluster != toCluster) {
+            return this.board.calculateEdgeWeight(-1, from, to);
+        }
+
+        if (from == origin) {
+            return originCosts[fromCluster.indexOf(to)];
+        }
+
+        if (to == destination) {
+            return destCosts[toCluster.indexOf(from)];
+        }
+
+        final int n = fromCluster.nodes.length;
+        return fromCluster.distances[fromCluster.indexOf(from) * n + fromCluster.indexOf(to)];
+    }
+
+    private void update() {
+        final CostModel costModel = this.board.getCostModel();
+
+        // the costs between entrances depend on the cost model, the entrances do not
+        if (costModel != this.costModel) {
+            this.costModel = costModel;
+
+            for (final Cluster cluster : this.clusters) {
+                cluster.dirty = true;
+            }
+        }
+
+        for (int index = 0; index < this.clusters.length; index++) {
+            if (this.leftBorders[index] != null && this.leftBorders[index].dirty) {
+                rebuildLeftBorder(index);
+            }
+            if (this.topBorders[index] != null && this.topBorders[index].dirty) {
+                rebuildTopBorder(index);
+            }
+        }
+
+        for (int index = 0; index < this.clusters.length; index++) {
+            if (this.clusters[index].dirty) {
+                rebuildCluster(index);
+            }
+        }
+    }
+
+    private void rebuildLeftBorder(int index) {
+        final Cluster cluster = this.clusters[index];
+        final int x = cluster.minX;
+        final int[] pairs = new int[2 * ((cluster.maxY - cluster.minY) / ENTRANCE_SPACING + 1)];
+        int count = 0;
+
+        for (int first = cluster.minY; first <= cluster.maxY; first += ENTRANCE_SPACING) {
+            final int last = Math.min(first + ENTRANCE_SPACING - 1, cluster.maxY);
+            final int y = findEntrance(first, last, i -> i * this.width + x - 1, 1);
+            pairs[count++] = y * this.width + x - 1;
+            pairs[count++] = y * this.width + x;
+        }
+
+        this.leftBorders[index].pairs = pairs;
+        this.leftBorders[index].dirty = false;
+    }
+
+    private void rebuildTopBorder(int index) {
+        final Cluster cluster = this.clusters[index];
+        final int y = cluster.minY;
+        final int[] pairs = new int[2 * ((cluster.maxX - cluster.minX) / ENTRANCE_SPACING + 1)];
+        int count = 0;
+
+        for (int first = cluster.minX; first <= cluster.maxX; first += ENTRANCE_SPACING) {
+            final int last = Math.min(first + ENTRANCE_SPACING - 1, cluster.maxX);
+            final int x = findEntrance(first, last, i -> (y - 1) * this.width + i, this.width);
+            pairs[count++] = (y - 1) * this.width + x;
+            pairs[count++] = y * this.width + x;
+        }
+
+        this.topBorders[index].pairs = pairs;
+        this.topBorders[index].dirty = false;
+    }
+
+    /**
+     * @param outerIndex
+     *      Maps a position along the border to the index of the cell on
+     *      the outer side of the border.
+     *
+     * @param stride
+     *      The index offset from the outer cell to the inner cell.
+     *
+     * @return the position with the lowest sum of weights, preferring
+     *      positions closer to the middle of the range.
+     */
+    private int findEntrance(int first, int last, Functions.IntegerMapper outerIndex, int stride) {
+        final int middle = (first + last) / 2;
+        int best = middle;
+        long bestWeight = Long.MAX_VALUE;
+
+        for (int position = first; position <= last; position++) {
+            final int outer = outerIndex.apply(position);
+            final long weight = (long) this.board.weightAt(outer) + this.board.weightAt(outer + stride);
+
+            if (weight < bestWeight
+                    || weight == bestWeight && Math.abs(position - middle) < Math.abs(best - middle)) {
+                best = position;
+                bestWeight = weight;
+            }
+        }
+
+        return best;
+    }
+
+    private void rebuildCluster(int index) {
+        final Cluster cluster = this.clusters[index];
+        final int cx = index % this.clusterColumns;
+        final int cy = index / this.clusterColumns;
+        int[] nodes = new int[0];
+
+        if (cx > 0) {
+            nodes = appendSide(nodes, this.leftBorders[index].pairs, 1);
+        }
+        if (cx < this.clusterColumns - 1) {
+            nodes = appendSide(nodes, this.leftBorders[index + 1].pairs, 0);
+        }
+        if (cy > 0) {
+            nodes = appendSide(nodes, this.topBorders[index].pairs, 1);
+        }
+        if (cy < this.clusterRows - 1) {
+            nodes = appendSide(nodes, this.topBorders[index + this.clusterColumns].pairs, 0);
+        }
+
+        nodes = Arrays.stream(nodes).sorted().distinct().toArray();
+
+        final int n = nodes.length;
+        final double[] distances = new double[n * n];
+
+        for (int i = 0; i < n; i++) {
+            this.search.computeCosts(nodes[i], cluster.minX, cluster.minY, cluster.maxX, cluster.maxY);
+
+            for (int j = 0; j < n; j++) {
+                distances[i * n + j] = this.search.getCost(nodes[j]);
+            }
+        }
+
+        cluster.nodes = nodes;
+        cluster.distances = distances;
+        cluster.dirty = false;
+        this.rebuildCount++;
+    }
+
+    private static int[] appendSide(int[] nodes, int[] pairs, int side) {
+        final int[] result = Arrays.copyOf(nodes, nodes.length + pairs.length / 2);
+
+        for (int i = 0; i < pairs.length / 2; i++) {
+            result[nodes.length + i] = pairs[2 * i + side];
+        }
+
+        return result;
+    }
+
+    private static final class Border {
+        int[] pairs = EMPTY;
+        boolean dirty = true;
+    }
+
+    private static final class Cluster {
+        final int minX;
+        final int minY;
+        final int maxX;
+        final int maxY;
+        int[] nodes = EMPTY;
+        double[] distances;
+        boolean dirty = true;
+
+        Cluster(int minX, int minY, int maxX, int maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        int indexOf(int node) {
+            return Arrays.binarySearch(this.nodes, node);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package net.smackem.mavenfx.model;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DirectColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Creates boards from image files. Each cell covers a block of
+ * {@code scale x scale} pixels; its weight falls from
+ * {@link Board#OBSTACLE_WEIGHT} for black to {@code 0} for white following
+ * the brightness (the maximum of red, green and blue) of the block average.
+ * Transparent pixels count as white.
+ * <p>
+ * Images whose reader can decode any band of rows directly, like TIFF, are
+ * decoded band by band, so that only a few bands of pixels are in memory
+ * at a time. Other formats like PNG and JPEG can only be decoded from the
+ * top, so they are decoded once as a whole. Either way, the bands are
+ * downsampled in parallel straight into the weights of the board.
+ *
+ * @author pbo
+ */
+public final class ImageImporter {
+    public static final int DEFAULT_SCALE = 8;
+
+    /**
+     * Keeps the sums of a block within an {@code int}.
+     */
+    public static final int MAX_SCALE = 1024;
+
+    /**
+     * The number of board rows downsampled by one task.
+     */
+    private static final int BAND_HEIGHT = 16;
+
+    private final int scale;
+
+    public ImageImporter(int scale) {
+        if (scale < 1 || scale > MAX_SCALE)
+            throw new IllegalArgumentException("Invalid scale");
+
+        this.scale = scale;
+    }
+
+    public int getScale() {
+        return this.scale;
+    }
+
+    /**
+     * Creates a board from {@code file} using the common fork-join pool.
+     *
+     * @see #importBoard(File, ForkJoinPool)
+     */
+    public Board importBoard(File file) throws IOException {
+        return importBoard(file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a board from {@code file}, downsampling on {@code pool}. The
+     * image is decoded on the calling thread.
+     *
+     * @throws IOException
+     *      if {@code file} cannot be read or is not an image in a format
+     *      supported by {@link ImageIO}.
+     */
+    public Board importBoard(File file, ForkJoinPool pool) throws IOException {
+        Objects.requireNonNull(file);
+        Objects.requireNonNull(pool);
+
+        try (final ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null)
+                throw new IOException("Cannot read " + file);
+
+            final Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+
+            if (readers.hasNext() == false)
+                throw new IOException(file + " is not a supported image");
+
+            final ImageReader reader = readers.next();
+
+            try {
+                reader.setInput(input, true, true);
+                return importBoard(reader, pool);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * @return the weight of a cell with the average color
+     *      {@code red}/{@code green}/{@code blue}, each in {@code 0..255}.
+     */
+    public static int calculateWeight(int red, int green, int blue) {
+        final int brightness = Math.max(red, Math.max(green, blue));
+        return Board.OBSTACLE_WEIGHT - brightness * Board.OBSTACLE_WEIGHT / 255;
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private Board importBoard(ImageReader reader, ForkJoinPool pool) throws IOException {
+        final int imageWidth = reader.getWidth(0);
+        final int imageHeight = reader.getHeight(0);
+        final int width = (imageWidth + this.scale - 1) / this.scale;
+        final int height = (imageHeight + this.scale - 1) / this.scale;
+
+        if ((long) width * height > Integer.MAX_VALUE)
+            throw new IOException("The image is too large for a board with scale " + this.scale);
+
+        final int[] weights = new int[width * height];
+        final int bandPixelRows = BAND_HEIGHT * this.scale;
+        final Deque<CompletableFuture<Void>> tasks = new ArrayDeque<>();
+
+        if (canReadBands(reader)) {
+            final ImageReadParam param = reader.getDefaultReadParam();
+
+            for (int row = 0; row < height; row += BAND_HEIGHT) {
+                final int pixelRow = row * this.scale;
+                final int bandRow = row;
+
+                param.setSourceRegion(new Rectangle(0, pixelRow,
+                        imageWidth, Math.min(bandPixelRows, imageHeight - pixelRow)));
+                final BufferedImage band = reader.read(0, param);
+
+                // bound the number of decoded bands waiting for a worker
+                while (tasks.size() >= pool.getParallelism() * 2) {
+                    join(tasks.removeFirst());
+                }
+
+                tasks.addLast(CompletableFuture.runAsync(() ->
+                        downsample(band, 0, bandRow, width, height, weights), pool));
+            }
+        } else {
+            final BufferedImage image = reader.read(0);
+
+            for (int row = 0; row < height; row += BAND_HEIGHT) {
+                final int bandRow = row;
+                tasks.addLast(CompletableFuture.runAsync(() ->
+                        downsample(image, bandRow * this.scale, bandRow, width, height, weights), pool));
+            }
+        }
+
+        while (tasks.isEmpty() == false) {
+            join(tasks.removeFirst());
+        }
+
+        return new Board(width, height, new ArrayWeightRaster(weights));
+    }
+
+    private static boolean canReadBands(ImageReader reader) throws IOException {
+        return reader.isImageTiled(0) || "tif".equalsIgnoreCase(reader.getFormatName());
+    }
+
+    private static void join(CompletableFuture<Void> task) throws IOException {
+        try {
+            task.join();
+        } catch (CompletionException e) {
+            throw new IOException("Error importing the image", e.getCause());
+        }
+    }
+
+    /**
+     * Computes the weights of up to {@link #BAND_HEIGHT} board rows starting
+     * at {@code firstRow} from the pixels of {@code image} starting at
+     * {@code imageRow}.
+     */
+    private void downsample(BufferedImage image, int imageRow, int firstRow, int width, int height, int[] weights) {
+        final int imageWidth = image.getWidth();
+        final int[] pixels = new int[imageWidth * this.scale];
+        final int[] samples = isPlainRgb(image) ? new int[pixels.length * image.getRaster().getNumBands()] : null;
+        final int lastRow = Math.min(firstRow + BAND_HEIGHT, height);
+
+        for (int row = firstRow; row < lastRow; row++) {
+            final int y = imageRow + (row - firstRow) * this.scale;
+            final int pixelRows = Math.min(this.scale, image.getHeight() - y);
+
+            readPixels(image, y, pixelRows, pixels, samples);
+
+            for (int col = 0; col < width; col++) {
+                final int firstX = col * this.scale;
+                final int lastX = Math.min(firstX + this.scale, imageWidth);
+                int red = 0;
+                int green = 0;
+                int blue = 0;
+
+                for (int offset = 0; offset < pixelRows * imageWidth; offset += imageWidth) {
+                    for (int x = firstX; x < lastX; x++) {
+                        final int pixel = pixels[offset + x];
+                        final int alpha = pixel >>> 24;
+
+                        if (alpha == 0xff) {
+                            red += (pixel >> 16) & 0xff;
+                            green += (pixel >> 8) & 0xff;
+                            blue += pixel & 0xff;
+                        } else {
+                            // blend onto white
+                            final int white = 255 * (255 - alpha);
+                            red += (((pixel >> 16) & 0xff) * alpha + white) / 255;
+                            green += (((pixel >> 8) & 0xff) * alpha + white) / 255;
+                            blue += ((pixel & 0xff) * alpha + white) / 255;
+                        }
+                    }
+                }
+
+                final int count = pixelRows * (lastX - firstX);
+                weights[row * width + col] = calculateWeight(red / count, green / count, blue / count);
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the samples of {@code image} are red, green,
+     *      blue and optionally non-premultiplied alpha with 8 bits each.
+     */
+    private static boolean isPlainRgb(BufferedImage image) {
+        final ColorModel colorModel = image.getColorModel();
+
+        if ((colorModel instanceof ComponentColorModel || colorModel instanceof DirectColorModel) == false
+                || colorModel.getColorSpace().isCS_sRGB() == false
+                || colorModel.isAlphaPremultiplied()
+                || colorModel.getNumComponents() != image.getRaster().getNumBands()) {
+            return false;
+        }
+
+        for (final int size : colorModel.getComponentSize()) {
+            if (size != 8) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads {@code rows} rows starting at {@code y} as ARGB into
+     * {@code pixels}. Plain RGB images are read from the raster into
+     * {@code samples}, which is much faster than converting each pixel
+     * through the color model.
+     */
+    private static void readPixels(BufferedImage image, int y, int rows, int[] pixels, int[] samples) {
+        final int width = image.getWidth();
+
+        if (samples == null) {
+            image.getRGB(0, y, width, rows, pixels, 0, width);
+            return;
+        }
+
+        image.getRaster().getPixels(0, y, width, rows, samples);
+
+        final int count = width * rows;
+
+        if (image.getRaster().getNumBands() == 4) {
+            for (int i = 0, j = 0; i < count; i++, j += 4) {
+                pixels[i] = samples[j + 3] << 24 | samples[j] << 16 | samples[j + 1] << 8 | samples[j + 2];
+            }
+        } else {
+            for (int i = 0, j = 0; i < count; i++, j += 3) {
+                pixels[i] = 0xff000000 | samples[j] << 16 | samples[j + 1] << 8 | samples[j + 2];
+            }
+        }
+    }
+}
@@ -0,0 +1,623 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Lifelong Planning A* (LPA*) on a {@link Board}.
+ * <p>
+ * Keeps the costs found by the last query when the next query asks for the
+ * same origin and destination. Cells whose weights have changed in between
+ * are reported via {@link #invalidate(int, int)}; the next query repairs
+ * only the costs that depend on them instead of searching from scratch.
+ * <p>
+ * Since the cost of an edge depends on the direction the path entered its
+ * origin cell, the search runs on states made of a cell and the direction
+ * it was entered from. This makes the costs exact for the {@link CostModel}
+ * of the board, so that the result is never more expensive than the one
+ * of {@link GridSearch}. A state has the index
+ * {@code cell * CostModel.DIRECTION_COUNT + direction}, with the direction
+ * indices of {@link CostModel}; the origin is the only cell with a state
+ * for {@link CostModel#NO_DIRECTION}. The costs are discarded when the cost
+ * model of the board changes.
+ * <p>
+ * The costs are only kept for the cells the search has reached, in blocks
+ * of {@link CostModel#DIRECTION_COUNT} states that are allocated in the
+ * order the cells are reached. An index per cell points to the block of
+ * the cell and is only valid if the block points back to the cell, so that
+ * a query with new endpoints drops all blocks without clearing anything.
+ * Besides these 4 bytes per cell, the search takes about {@code 9 * 20}
+ * bytes per cell reached.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author pbo
+ */
+final class IncrementalSearch {
+    private static final int STATES_PER_CELL = CostModel.DIRECTION_COUNT;
+    private static final int NO_DIRECTION = CostModel.NO_DIRECTION;
+    private static final int NONE = -1;
+    private static final int INITIAL_BLOCK_CAPACITY = 1024;
+    private final Board board;
+    private final int width;
+    private final int height;
+    private final int goalCell;
+    private final int[] blocks;
+    private final OpenList open = new OpenList();
+    private final BitSet changedCells = new BitSet();
+    private int[] blockCells = new int[INITIAL_BLOCK_CAPACITY];
+    private double[] g = new double[INITIAL_BLOCK_CAPACITY * STATES_PER_CELL];
+    private double[] rhs = new double[INITIAL_BLOCK_CAPACITY * STATES_PER_CELL];
+    private int blockCount;
+    private int goal;
+    private CostModel costModel;
+    private int origin = NONE;
+    private int destination = NONE;
+    private int expandedCount;
+    private long generatedCount;
+    private SearchStatistics statistics = new SearchStatistics(SearchStatistics.TerminationReason.EXHAUSTED);
+
+    IncrementalSearch(Board board) {
+        this.board = board;
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+
+        // the goal is a virtual state following all states of the destination cell
+        this.goalCell = this.width * this.height;
+        this.blocks = new int[this.goalCell + 1];
+    }
+
+    /**
+     * Records that the weight of the specified cell has changed. The costs
+     * depending on it are repaired by the next query.
+     */
+    void invalidate(int col, int row) {
+        if (this.origin != NONE) {
+            this.changedCells.set(row * this.width + col);
+        }
+    }
+
+    /**
+     * Finds the cheapest path from {@code origin} to {@code destination},
+     * reusing the costs of the last query if it had the same endpoints.
+     *
+     * @return the path or {@code null} if there is no path.
+     */
+    Path<Cell> findPath(int origin, int destination) {
+        this.generatedCount = 0;
+        this.open.resetPeakSize();
+
+        if (origin != this.origin || destination != this.destination || this.board.getCostModel() != this.costModel) {
+            reset(origin, destination);
+        } else {
+            for (int cell = this.changedCells.nextSetBit(0); cell >= 0; cell = this.changedCells.nextSetBit(cell + 1)) {
+                final int block = findBlock(cell);
+
+                // without a block, no predecessor of the cell has been expanded yet
+                if (block == NONE) {
+                    continue;
+                }
+
+                // the weight of a cell is part of the cost of all edges entering it
+                for (int direction = 0; direction < STATES_PER_CELL; direction++) {
+                    if (direction == NO_DIRECTION) {
+                        continue;
+                    }
+
+                    final int slot = block * STATES_PER_CELL + direction;
+                    this.rhs[slot] = calculateRhs(cell, direction);
+                    updateOpen(slot);
+                }
+            }
+        }
+
+        this.changedCells.clear();
+
+        final int expandedBefore = this.expandedCount;
+        computeCosts();
+
+        final boolean found = this.g[this.goal] < Double.POSITIVE_INFINITY;
+        this.statistics = new SearchStatistics(this.expandedCount - expandedBefore, this.generatedCount,
+                this.open.getPeakSize(),
+                found ? SearchStatistics.TerminationReason.FOUND : SearchStatistics.TerminationReason.EXHAUSTED);
+
+        return found ? buildPath() : null;
+    }
+
+    /**
+     * @return the number of states expanded since the endpoints last changed.
+     */
+    int getExpandedCount() {
+        return this.expandedCount;
+    }
+
+    /**
+     * @return the statistics of the last query, without wall time. Only
+     *      counts the work done to repair the costs of the previous query.
+     */
+    SearchStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private void reset(int origin, int destination) {
+        this.costModel = this.board.getCostModel();
+        this.origin = origin;
+        this.destination = destination;
+        this.expandedCount = 0;
+        this.open.clear();
+        this.blockCount = 0;
+        this.goal = addBlock(this.goalCell) * STATES_PER_CELL;
+
+        final int start = addBlock(origin) * STATES_PER_CELL + NO_DIRECTION;
+        this.rhs[start] = 0.0;
+        updateOpen(start);
+    }
+
+    /**
+     * @return the block of {@code cell} or {@link #NONE} if the cell has
+     *      not been reached since the endpoints last changed.
+     */
+    private int findBlock(int cell) {
+        final int block = this.blocks[cell];
+        return block < this.blockCount && this.blockCells[block] == cell ? block : NONE;
+    }
+
+    /**
+     * @return the block of {@code cell}, which is added with infinite costs
+     *      if the cell has not been reached yet.
+     */
+    private int addBlock(int cell) {
+        final int existing = findBlock(cell);
+
+        if (existing != NONE) {
+            return existing;
+        }
+
+        if (this.blockCount == this.blockCells.length) {
+            final int capacity = this.blockCount * 2;
+            this.blockCells = Arrays.copyOf(this.blockCells, capacity);
+            this.g = Arrays.copyOf(this.g, capacity * STATES_PER_CELL);
+            this.rhs = Arrays.copyOf(this.rhs, capacity * STATES_PER_CELL);
+        }
+
+        final int block = this.blockCount++;
+        this.blocks[cell] = block;
+        this.blockCells[block] = cell;
+        Arrays.fill(this.g, block * STATES_PER_CELL, (block + 1) * STATES_PER_CELL, Double.POSITIVE_INFINITY);
+        Arrays.fill(this.rhs, block * STATES_PER_CELL, (block + 1) * STATES_PER_CELL, Double.POSITIVE_INFINITY);
+        return block;
+    }
+
+    private int getCell(int slot) {
+        return this.blockCells[slot / STATES_PER_CELL];
+    }
+
+    private void computeCosts() {
+        while (this.open.isEmpty() == false) {
+            Board.checkInterrupted();
+            final double goalCost = Math.min(this.g[this.goal], this.rhs[this.goal]);
+            final double key = this.open.peekKey();
+
+            // unlike plain LPA*, keys equal to the key of the goal are expanded as well:
+            // the goal is reached from the destination states at no cost, so those
+            // states share its key and may still be inconsistent
+            if (this.rhs[this.goal] == this.g[this.goal]
+                    && (key > goalCost || key == goalCost && this.open.peekSecondaryKey() > goalCost)) {
+                break;
+            }
+
+            final int slot = this.open.poll();
+            this.expandedCount++;
+
+            if (slot == this.goal) {
+                this.g[slot] = this.g[slot] > this.rhs[slot] ? this.rhs[slot] : Double.POSITIVE_INFINITY;
+                this.rhs[slot] = calculateGoalRhs();
+                updateOpen(slot);
+                continue;
+            }
+
+            final int cell = getCell(slot);
+            final int direction = slot % STATES_PER_CELL;
+            final int x = cell % this.width;
+            final int y = cell / this.width;
+
+            if (this.g[slot] > this.rhs[slot]) {
+                this.g[slot] = this.rhs[slot];
+
+                for (int d = 0; d < STATES_PER_CELL; d++) {
+                    final int nx = x + getDx(d);
+                    final int ny = y + getDy(d);
+
+                    if (this.costModel.isAllowed(d) == false || nx < 0 || nx >= this.width || ny < 0 || ny >= this.height) {
+                        continue;
+                    }
+
+                    final int neighbour = ny * this.width + nx;
+                    final int successor = addBlock(neighbour) * STATES_PER_CELL + d;
+                    final double cost = this.g[slot] + calculateEdgeCost(direction, d, neighbour);
+
+                    if (cost < this.rhs[successor]) {
+                        this.rhs[successor] = cost;
+                        updateOpen(successor);
+                    }
+                }
+
+                if (cell == this.destination && this.g[slot] < this.rhs[this.goal]) {
+                    this.rhs[this.goal] = this.g[slot];
+                    updateOpen(this.goal);
+                }
+            } else {
+                final double oldCost = this.g[slot];
+                this.g[slot] = Double.POSITIVE_INFINITY;
+
+                for (int d = 0; d < STATES_PER_CELL; d++) {
+                    final int nx = x + getDx(d);
+                    final int ny = y + getDy(d);
+
+                    if (this.costModel.isAllowed(d) == false || nx < 0 || nx >= this.width || ny < 0 || ny >= this.height) {
+                        continue;
+                    }
+
+                    final int neighbour = ny * this.width + nx;
+                    final int block = findBlock(neighbour);
+
+                    if (block == NONE) {
+                        continue;
+                    }
+
+                    final int successor = block * STATES_PER_CELL + d;
+
+                    // only successors that were reached through this state lose their cost
+                    if (this.rhs[successor] == oldCost + calculateEdgeCost(direction, d, neighbour)) {
+                        this.rhs[successor] = calculateRhs(neighbour, d);
+                        updateOpen(successor);
+                    }
+                }
+
+                if (cell == this.destination && this.rhs[this.goal] == oldCost) {
+                    this.rhs[this.goal] = calculateGoalRhs();
+                    updateOpen(this.goal);
+                }
+
+                if (direction != NO_DIRECTION || cell != this.origin) {
+                    this.rhs[slot] = calculateRhs(cell, direction);
+                }
+
+                updateOpen(slot);
+            }
+        }
+    }
+
+    /**
+     * @return the cost of the cheapest path to the state of {@code cell}
+     *      entered in {@code direction} via the current costs of its
+     *      predecessors.
+     */
+    private double calculateRhs(int cell, int direction) {
+        if (direction == NO_DIRECTION) {
+            return cell == this.origin ? 0.0 : Double.POSITIVE_INFINITY;
+        }
+
+        final int px = cell % this.width - getDx(direction);
+        final int py = cell / this.width - getDy(direction);
+
+        if (this.costModel.isAllowed(direction) == false || px < 0 || px >= this.width || py < 0 || py >= this.height) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        final int block = findBlock(py * this.width + px);
+
+        if (block == NONE) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double result = Double.POSITIVE_INFINITY;
+
+        for (int d = 0; d < STATES_PER_CELL; d++) {
+            final double cost = this.g[block * STATES_PER_CELL + d];
+
+            if (cost < result) {
+                result = Math.min(result, cost + calculateEdgeCost(d, direction, cell));
+            }
+        }
+
+        return result;
+    }
+
+    private static int getDx(int direction) {
+        return direction % 3 - 1;
+    }
+
+    private static int getDy(int direction) {
+        return direction / 3 - 1;
+    }
+
+    /**
+     * @return the cost of a step in {@code direction} into {@code cell},
+     *      entered from a cell entered in {@code previousDirection}.
+     */
+    private double calculateEdgeCost(int previousDirection, int direction, int cell) {
+        return this.costModel.getEdgeCost(previousDirection, direction) + this.board.weightAt(cell);
+    }
+
+    private double calculateGoalRhs() {
+        final int block = findBlock(this.destination);
+
+        if (block == NONE) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double result = Double.POSITIVE_INFINITY;
+
+        for (int d = 0; d < STATES_PER_CELL; d++) {
+            result = Math.min(result, this.g[block * STATES_PER_CELL + d]);
+        }
+
+        return result;
+    }
+
+    private void updateOpen(int slot) {
+        final double cost = Math.min(this.g[slot], this.rhs[slot]);
+
+        if (this.g[slot] == this.rhs[slot]) {
+            this.open.remove(slot);
+        } else {
+            this.open.put(slot, cost + estimate(slot), cost);
+            this.generatedCount++;
+        }
+    }
+
+    private double estimate(int slot) {
+        if (slot == this.goal) {
+            return 0.0;
+        }
+
+        final int cell = getCell(slot);
+        final double dx = cell % this.width - this.destination % this.width;
+        final double dy = cell / this.width - this.destination / this.width;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Follows the cheapest predecessors back from the goal.
+     */
+    private Path<Cell> buildPath() {
+        final int block = findBlock(this.destination);
+        int last = NONE;
+
+        for (int d = 0; d < STATES_PER_CELL; d++) {
+            final int candidate = block * STATES_PER_CELL + d;
+
+            if (last == NONE || this.g[candidate] < this.g[last]) {
+                last = candidate;
+            }
+        }
+
+        int length = 0;
+
+        for (int slot = last; slot != NONE; slot = cheapestPredecessor(slot)) {
+            length++;
+        }
+
+        final int[] slots = new int[length];
+        int position = length;
+
+        for (int slot = last; slot != NONE; slot = cheapestPredecessor(slot)) {
+            slots[--position] = slot;
+        }
+
+        Path<Cell> path = new Path<>(this.board.getCell(getCell(slots[0])));
+        double cost = 0.0;
+
+        for (int i = 1; i < length; i++) {
+            final int cell = getCell(slots[i]);
+            cost += calculateEdgeCost(slots[i - 1] % STATES_PER_CELL, slots[i] % STATES_PER_CELL, cell);
+            path = new Path<>(this.board.getCell(cell), path, cost);
+        }
+
+        return path;
+    }
+
+    /**
+     * @return the predecessor of the state in {@code slot} on its cheapest
+     *      path or {@link #NONE} for the state of the origin.
+     */
+    private int cheapestPredecessor(int slot) {
+        final int cell = getCell(slot);
+        final int direction = slot % STATES_PER_CELL;
+
+        if (direction == NO_DIRECTION) {
+            return NONE;
+        }
+
+        final int block = findBlock(cell - getDx(direction) - getDy(direction) * this.width);
+        int result = NONE;
+        double resultCost = Double.POSITIVE_INFINITY;
+
+        for (int d = 0; d < STATES_PER_CELL; d++) {
+            final int candidate = block * STATES_PER_CELL + d;
+
+            if (this.g[candidate] == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+
+            final double cost = this.g[candidate] + calculateEdgeCost(d, direction, cell);
+
+            if (cost < resultCost) {
+                result = candidate;
+                resultCost = cost;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * An indexed binary min-heap like {@link IndexedMinHeap}, but ordered by
+     * a pair of keys compared lexicographically, as LPA* requires.
+     */
+    private static final class OpenList {
+        private static final int ABSENT = -1;
+        private int[] positions = new int[1024];
+        private int[] ids = new int[1024];
+        private double[] keys = new double[1024];
+        private double[] secondaryKeys = new double[1024];
+        private int size;
+        private int peakSize;
+
+        OpenList() {
+            Arrays.fill(this.positions, ABSENT);
+        }
+
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        int getPeakSize() {
+            return this.peakSize;
+        }
+
+        /**
+         * Starts tracking the peak size anew from the current size.
+         */
+        void resetPeakSize() {
+            this.peakSize = this.size;
+        }
+
+        double peekKey() {
+            return this.keys[0];
+        }
+
+        double peekSecondaryKey() {
+            return this.secondaryKeys[0];
+        }
+
+        void put(int id, double key, double secondaryKey) {
+            if (id >= this.positions.length) {
+                final int oldLength = this.positions.length;
+                this.positions = Arrays.copyOf(this.positions, Math.max(id + 1, oldLength * 2));
+                Arrays.fill(this.positions, oldLength, this.positions.length, ABSENT);
+            }
+
+            final int position = this.positions[id];
+
+            if (position == ABSENT) {
+                if (this.size == this.ids.length) {
+                    this.ids = Arrays.copyOf(this.ids, this.size * 2);
+                    this.keys = Arrays.copyOf(this.keys, this.size * 2);
+                    this.secondaryKeys = Arrays.copyOf(this.secondaryKeys, this.size * 2);
+                }
+
+                this.size++;
+                this.peakSize = Math.max(this.peakSize, this.size);
+                siftUp(this.size - 1, id, key, secondaryKey);
+            } else if (less(key, secondaryKey, this.keys[position], this.secondaryKeys[position])) {
+                siftUp(position, id, key, secondaryKey);
+            } else {
+                siftDown(position, id, key, secondaryKey);
+            }
+        }
+
+        int poll() {
+            final int result = this.ids[0];
+            this.positions[result] = ABSENT;
+            this.size--;
+
+            if (this.size > 0) {
+                siftDown(0, this.ids[this.size], this.keys[this.size], this.secondaryKeys[this.size]);
+            }
+
+            return result;
+        }
+
+        void remove(int id) {
+            final int position = id < this.positions.length ? this.positions[id] : ABSENT;
+
+            if (position == ABSENT) {
+                return;
+            }
+
+            this.positions[id] = ABSENT;
+            this.size--;
+
+            if (position < this.size) {
+                final int lastId = this.ids[this.size];
+                final double lastKey = this.keys[this.size];
+                final double lastSecondaryKey = this.secondaryKeys[this.size];
+
+                if (less(lastKey, lastSecondaryKey, this.keys[position], this.secondaryKeys[position])) {
+                    siftUp(position, lastId, lastKey, lastSecondaryKey);
+                } else {
+                    siftDown(position, lastId, lastKey, lastSecondaryKey);
+                }
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < this.size; i++) {
+                this.positions[this.ids[i]] = ABSENT;
+            }
+
+            this.size = 0;
+            this.peakSize = 0;
+        }
+
+        private static boolean less(double key1, double secondaryKey1, double key2, double secondaryKey2) {
+            return key1 < key2 || key1 == key2 && secondaryKey1 < secondaryKey2;
+        }
+
+        private void siftUp(int position, int id, double key, double secondaryKey) {
+            while (position > 0) {
+                final int parent = (position - 1) >>> 1;
+
+                if (less(key, secondaryKey, this.keys[parent], this.secondaryKeys[parent]) == false) {
+                    break;
+                }
+
+                move(parent, position);
+                position = parent;
+            }
+
+            place(position, id, key, secondaryKey);
+        }
+
+        private void siftDown(int position, int id, double key, double secondaryKey) {
+            final int half = this.size >>> 1;
+
+            while (position < half) {
+                int child = 2 * position + 1;
+
+                if (child + 1 < this.size && less(this.keys[child + 1], this.secondaryKeys[child + 1],
+                        this.keys[child], this.secondaryKeys[child])) {
+                    child++;
+                }
+
+                if (less(this.keys[child], this.secondaryKeys[child], key, secondaryKey) == false) {
+                    break;
+                }
+
+                move(child, position);
+                position = child;
+            }
+
+            place(position, id, key, secondaryKey);
+        }
+
+        private void move(int from, int to) {
+            final int id = this.ids[from];
+            this.ids[to] = id;
+            this.keys[to] = this.keys[from];
+            this.secondaryKeys[to] = this.secondaryKeys[from];
+            this.positions[id] = to;
+        }
+
+        private void place(int position, int id, double key, double secondaryKey) {
+            this.ids[position] = id;
+            this.keys[position] = key;
+            this.secondaryKeys[position] = secondaryKey;
+            this.positions[id] = position;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of {@code int} ids with {@code double} priorities that
+ * supports changing the priority of an id already contained in the heap.
+ * <p>
+ * Each id is contained at most once, so the heap never grows beyond the
+ * number of distinct ids inserted since the last {@link #clear()}. Ids must
+ * be non-negative; the heap grows to accommodate larger ids on demand.
+ *
+ * @author pbo
+ */
+final class IndexedMinHeap {
+    private static final int ABSENT = -1;
+    private int[] ids;
+    private double[] keys;
+    private int[] positions;
+    private int size;
+    private int peakSize;
+
+    IndexedMinHeap(int idCapacity) {
+        final int capacity = Math.max(idCapacity, 16);
+        this.ids = new int[Math.min(capacity, 1024)];
+        this.keys = new double[this.ids.length];
+        this.positions = new int[capacity];
+        Arrays.fill(this.positions, ABSENT);
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the maximum number of ids contained at the same time since
+     *      the last {@link #clear()}.
+     */
+    int getPeakSize() {
+        return this.peakSize;
+    }
+
+    boolean contains(int id) {
+        return id < this.positions.length && this.positions[id] != ABSENT;
+    }
+
+    /**
+     * Inserts {@code id} with the specified priority or, if it is already
+     * contained, replaces its priority.
+     */
+    void put(int id, double key) {
+        if (id >= this.positions.length) {
+            final int oldLength = this.positions.length;
+            this.positions = Arrays.copyOf(this.positions, Math.max(id + 1, oldLength * 2));
+            Arrays.fill(this.positions, oldLength, this.positions.length, ABSENT);
+        }
+
+        final int position = this.positions[id];
+
+        if (position == ABSENT) {
+            if (this.size == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, this.size * 2);
+                this.keys = Arrays.copyOf(this.keys, this.size * 2);
+            }
+
+            this.size++;
+            this.peakSize = Math.max(this.peakSize, this.size);
+            siftUp(this.size - 1, id, key);
+        } else if (key < this.keys[position]) {
+            siftUp(position, id, key);
+        } else {
+            siftDown(position, id, key);
+        }
+    }
+
+    double peekKey() {
+        return this.keys[0];
+    }
+
+    int peek() {
+        return this.ids[0];
+    }
+
+    /**
+     * Removes the id with the lowest priority from the heap.
+     *
+     * @return the removed id.
+     */
+    int poll() {
+        final int result = this.ids[0];
+        this.positions[result] = ABSENT;
+        this.size--;
+
+        if (this.size > 0) {
+            siftDown(0, this.ids[this.size], this.keys[this.size]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes {@code id} from the heap if it is contained.
+     */
+    void remove(int id) {
+        if (contains(id) == false) {
+            return;
+        }
+
+        final int position = this.positions[id];
+        this.positions[id] = ABSENT;
+        this.size--;
+
+        if (position < this.size) {
+            final int lastId = this.ids[this.size];
+            final double lastKey = this.keys[this.size];
+
+            if (lastKey < this.keys[position]) {
+                siftUp(position, lastId, lastKey);
+            } else {
+                siftDown(position, lastId, lastKey);
+            }
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.positions[this.ids[i]] = ABSENT;
+        }
+
+        this.size = 0;
+        this.peakSize = 0;
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private void siftUp(int position, int id, double key) {
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+
+            if (this.keys[parent] <= key) {
+                break;
+            }
+
+            move(parent, position);
+            position = parent;
+        }
+
+        place(position, id, key);
+    }
+
+    private void siftDown(int position, int id, double key) {
+        final int half = this.size >>> 1;
+
+        while (position < half) {
+            int child = 2 * position + 1;
+
+            if (child + 1 < this.size && this.keys[child + 1] < this.keys[child]) {
+                child++;
+            }
+
+            if (key <= this.keys[child]) {
+                break;
+            }
+
+            move(child, position);
+            position = child;
+        }
+
+        place(position, id, key);
+    }
+
+    private void move(int from, int to) {
+        final int id = this.ids[from];
+        this.ids[to] = id;
+        this.keys[to] = this.keys[from];
+        this.positions[id] = to;
+    }
+
+    private void place(int position, int id, double key) {
+        this.ids[position] = id;
+        this.keys[position] = key;
+        this.positions[id] = position;
+    }
+}
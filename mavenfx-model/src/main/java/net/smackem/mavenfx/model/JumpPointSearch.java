@@ -0,0 +1,336 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Arrays;
+
+/**
+ * Jump Point Search on the 8-connected grid of a {@link Board}.
+ * <p>
+ * In regions where all cells have a weight of {@code 0} (or are
+ * obstacles), the search only generates jump points and skips over the
+ * cells in between. Cells with a positive weight below
+ * {@link Board#OBSTACLE_WEIGHT} end a jump, and cells next to them are
+ * expanded like in plain A*, so that varying weights are still accounted
+ * for. Cells with a weight of at least {@link Board#OBSTACLE_WEIGHT} are
+ * impassable.
+ * <p>
+ * The search itself runs on simplified octile costs (see {@link #DIAGONAL_COST})
+ * plus cell weights, so the result may be somewhat more expensive than the
+ * one of {@link SearchMode#ASTAR}. The total cost of the returned path is
+ * calculated with the full cost model of {@link Board}.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author pbo
+ */
+final class JumpPointSearch {
+    private static final int NO_PARENT = -1;
+    private static final int NONE = -1;
+
+    /**
+     * The cost of a diagonal step during the search. Pruning relies on an
+     * octile geometry where a diagonal step is cheaper than two straight
+     * steps, which the penalized diagonals of {@link Board} are not, and on
+     * costs that do not depend on the direction a cell was entered from.
+     */
+    private static final double DIAGONAL_COST = 1.99;
+    private final Board board;
+    private final int width;
+    private final int height;
+    private final double[] costs;
+    private final int[] parents;
+    private final int[] seenStamps;
+    private final int[] closedStamps;
+    private final IndexedMinHeap open;
+    private final int[] successors = new int[8];
+    private int stamp;
+    private int destination;
+    private SearchStatistics statistics = new SearchStatistics(SearchStatistics.TerminationReason.EXHAUSTED);
+
+    JumpPointSearch(Board board) {
+        this.board = board;
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+
+        final int size = this.width * this.height;
+        this.costs = new double[size];
+        this.parents = new int[size];
+        this.seenStamps = new int[size];
+        this.closedStamps = new int[size];
+        this.open = new IndexedMinHeap(size);
+    }
+
+    /**
+     * Finds the cheapest path from {@code origin} to {@code destination}.
+     *
+     * @return the path or {@code null} if there is no path.
+     */
+    Path<Cell> findPath(int origin, int destination) {
+        beginSearch();
+        this.destination = destination;
+
+        final int destX = destination % this.width;
+        final int destY = destination / this.width;
+        long expandedCount = 0;
+        long generatedCount = 0;
+
+        this.costs[origin] = 0.0;
+        this.parents[origin] = NO_PARENT;
+        this.seenStamps[origin] = this.stamp;
+        this.open.put(origin, 0.0);
+
+        while (this.open.isEmpty() == false) {
+            Board.checkInterrupted();
+            final int current = this.open.poll();
+
+            if (current == destination) {
+                this.statistics = new SearchStatistics(expandedCount, generatedCount, this.open.getPeakSize(),
+                        SearchStatistics.TerminationReason.FOUND);
+                return buildPath(destination);
+            }
+
+            this.closedStamps[current] = this.stamp;
+            expandedCount++;
+
+            final int count = collectSuccessors(current);
+
+            for (int i = 0; i < count; i++) {
+                final int successor = this.successors[i];
+
+                if (this.closedStamps[successor] == this.stamp) {
+                    continue;
+                }
+
+                final double cost = this.costs[current] + calculateSegmentCost(current, successor);
+
+                if (this.seenStamps[successor] != this.stamp || cost < this.costs[successor]) {
+                    this.seenStamps[successor] = this.stamp;
+                    this.costs[successor] = cost;
+                    this.parents[successor] = current;
+                    generatedCount++;
+
+                    final int dx = Math.abs(successor % this.width - destX);
+                    final int dy = Math.abs(successor / this.width - destY);
+                    this.open.put(successor, cost + Math.abs(dx - dy) + Math.min(dx, dy) * DIAGONAL_COST);
+                }
+            }
+        }
+
+        this.statistics = new SearchStatistics(expandedCount, generatedCount, this.open.getPeakSize(),
+                SearchStatistics.TerminationReason.EXHAUSTED);
+        return null;
+    }
+
+    /**
+     * @return the statistics of the last search, without wall time.
+     */
+    SearchStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private void beginSearch() {
+        this.open.clear();
+        this.stamp++;
+
+        if (this.stamp == Integer.MAX_VALUE) {
+            Arrays.fill(this.seenStamps, 0);
+            Arrays.fill(this.closedStamps, 0);
+            this.stamp = 1;
+        }
+    }
+
+    private int collectSuccessors(int index) {
+        final int x = index % this.width;
+        final int y = index / this.width;
+        final int parent = this.parents[index];
+        int count = 0;
+
+        if (isPlain(x, y) == false) {
+            // varying weights around: expand like plain A*
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    if ((dx != 0 || dy != 0) && isPassable(x + dx, y + dy)) {
+                        this.successors[count++] = index + dy * this.width + dx;
+                    }
+                }
+            }
+
+            return count;
+        }
+
+        if (parent == NO_PARENT) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    if (dx != 0 || dy != 0) {
+                        count = addJump(count, x, y, dx, dy);
+                    }
+                }
+            }
+
+            return count;
+        }
+
+        final int dx = Integer.signum(x - parent % this.width);
+        final int dy = Integer.signum(y - parent / this.width);
+
+        if (dx != 0 && dy != 0) {
+            count = addJump(count, x, y, 0, dy);
+            count = addJump(count, x, y, dx, 0);
+            count = addJump(count, x, y, dx, dy);
+
+            if (isPassable(x - dx, y) == false) {
+                count = addJump(count, x, y, -dx, dy);
+            }
+            if (isPassable(x, y - dy) == false) {
+                count = addJump(count, x, y, dx, -dy);
+            }
+        } else if (dy == 0) {
+            count = addJump(count, x, y, dx, 0);
+
+            if (isPassable(x, y + 1) == false) {
+                count = addJump(count, x, y, dx, 1);
+            }
+            if (isPassable(x, y - 1) == false) {
+                count = addJump(count, x, y, dx, -1);
+            }
+        } else {
+            count = addJump(count, x, y, 0, dy);
+
+            if (isPassable(x + 1, y) == false) {
+                count = addJump(count, x, y, 1, dy);
+            }
+            if (isPassable(x - 1, y) == false) {
+                count = addJump(count, x, y, -1, dy);
+            }
+        }
+
+        return count;
+    }
+
+    private int addJump(int count, int x, int y, int dx, int dy) {
+        final int jumpPoint = jump(x, y, dx, dy);
+
+        if (jumpPoint != NONE) {
+            this.successors[count++] = jumpPoint;
+        }
+
+        return count;
+    }
+
+    private int jump(int x, int y, int dx, int dy) {
+        while (true) {
+            x += dx;
+            y += dy;
+
+            if (isPassable(x, y) == false) {
+                return NONE;
+            }
+
+            final int index = y * this.width + x;
+
+            if (index == this.destination || isPlain(x, y) == false) {
+                return index;
+            }
+
+            if (dx != 0 && dy != 0) {
+                if ((isPassable(x - dx, y + dy) && isPassable(x - dx, y) == false)
+                        || (isPassable(x + dx, y - dy) && isPassable(x, y - dy) == false)) {
+                    return index;
+                }
+
+                if (jump(x, y, dx, 0) != NONE || jump(x, y, 0, dy) != NONE) {
+                    return index;
+                }
+            } else if (dy == 0) {
+                if ((isPassable(x + dx, y + 1) && isPassable(x, y + 1) == false)
+                        || (isPassable(x + dx, y - 1) && isPassable(x, y - 1) == false)) {
+                    return index;
+                }
+            } else {
+                if ((isPassable(x + 1, y + dy) && isPassable(x + 1, y) == false)
+                        || (isPassable(x - 1, y + dy) && isPassable(x - 1, y) == false)) {
+                    return index;
+                }
+            }
+        }
+    }
+
+    private boolean isPassable(int x, int y) {
+        return x >= 0 && x < this.width && y >= 0 && y < this.height
+                && this.board.weightAt(y * this.width + x) < Board.OBSTACLE_WEIGHT;
+    }
+
+    /**
+     * @return {@code true} if neither the cell nor any of its neighbours
+     *      has a weight between {@code 0} and {@link Board#OBSTACLE_WEIGHT}.
+     */
+    private boolean isPlain(int x, int y) {
+        final int firstX = Math.max(x - 1, 0);
+        final int lastX = Math.min(x + 1, this.width - 1);
+        final int firstY = Math.max(y - 1, 0);
+        final int lastY = Math.min(y + 1, this.height - 1);
+
+        for (int ny = firstY; ny <= lastY; ny++) {
+            for (int nx = firstX; nx <= lastX; nx++) {
+                final int weight = this.board.weightAt(ny * this.width + nx);
+
+                if (weight != 0 && weight < Board.OBSTACLE_WEIGHT) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private int getStep(int from, int to) {
+        final int dx = Integer.signum(to % this.width - from % this.width);
+        final int dy = Integer.signum(to / this.width - from / this.width);
+        return dy * this.width + dx;
+    }
+
+    private double calculateSegmentCost(int from, int to) {
+        final int step = getStep(from, to);
+        final double stepCost = step == 1 || step == -1 || step == this.width || step == -this.width
+                ? 1.0
+                : DIAGONAL_COST;
+        double cost = 0.0;
+
+        for (int index = from; index != to; index += step) {
+            cost += stepCost + this.board.weightAt(index + step);
+        }
+
+        return cost;
+    }
+
+    private Path<Cell> buildPath(int destination) {
+        int jumpPointCount = 0;
+
+        for (int index = destination; index != NO_PARENT; index = this.parents[index]) {
+            jumpPointCount++;
+        }
+
+        final int[] jumpPoints = new int[jumpPointCount];
+        int position = jumpPointCount;
+
+        for (int index = destination; index != NO_PARENT; index = this.parents[index]) {
+            jumpPoints[--position] = index;
+        }
+
+        Path<Cell> path = new Path<>(this.board.getCell(jumpPoints[0]));
+        int previous = NO_PARENT;
+
+        for (int i = 1; i < jumpPointCount; i++) {
+            final int step = getStep(jumpPoints[i - 1], jumpPoints[i]);
+
+            for (int index = jumpPoints[i - 1]; index != jumpPoints[i]; index += step) {
+                final double edgeCost = this.board.calculateEdgeWeight(previous, index, index + step);
+                path = path.addStep(this.board.getCell(index + step), edgeCost);
+                previous = index;
+            }
+        }
+
+        return path;
+    }
+}
@@ -0,0 +1,248 @@
+package net.smackem.mavenfx.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A* guided by landmarks and the triangle inequality (ALT) on a
+ * {@link Board}.
+ * <p>
+ * For a few landmark cells on the border of the board, the costs of the
+ * cheapest paths from the landmark to all cells are precomputed with
+ * Dijkstra. Given the cost {@code d(L, v)} from a landmark {@code L}, the
+ * triangle inequality yields lower bounds for the cost from any cell
+ * {@code v} to the destination {@code t}:
+ * {@code d(L, t) - d(L, v)} and {@code d(v, L) - d(t, L)}. The largest of
+ * these bounds is usually much closer to the actual cost than the euclidean
+ * distance, since it accounts for the weights of the cells in between.
+ * <p>
+ * The tables are computed with edge costs that leave out the penalty for
+ * changing direction, so that they do not depend on the direction a cell
+ * is entered from and never exceed the costs used by {@link GridSearch}.
+ * Without that penalty, a path and its reverse only differ in the weights
+ * of their first and last cells, so that {@code d(v, L)} follows from
+ * {@code d(L, v)} and one table per landmark suffices.
+ * <p>
+ * The tables of all landmarks are computed in parallel when the first
+ * query after creating the instance or after a change of a weight or of
+ * the {@link CostModel} is run.
+ * They take {@code 8 * LANDMARK_COUNT} bytes per cell.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author pbo
+ */
+final class LandmarkSearch {
+    static final int LANDMARK_COUNT = 8;
+    private final Board board;
+    private final GridSearch search;
+    private final int width;
+    private final int height;
+    private final int[] landmarks;
+    private final double[][] tables;
+    private boolean valid;
+    private CostModel costModel;
+    private int buildCount;
+
+    LandmarkSearch(Board board, GridSearch search) {
+        this.board = board;
+        this.search = search;
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+        this.landmarks = selectLandmarks(this.width, this.height);
+        this.tables = new double[this.landmarks.length][];
+    }
+
+    /**
+     * Marks the tables for rebuilding. The arguments are ignored; the
+     * signature matches {@link Board.WeightListener}.
+     */
+    void invalidate(int col, int row) {
+        this.valid = false;
+    }
+
+    /**
+     * @return the number of times the tables have been built since this
+     *      instance has been created.
+     */
+    int getBuildCount() {
+        return this.buildCount;
+    }
+
+    /**
+     * Finds the cheapest path from {@code origin} to {@code destination}.
+     *
+     * @return the path or {@code null} if there is no path.
+     */
+    Path<Cell> findPath(int origin, int destination) {
+        update();
+
+        final double[] destinationCosts = getCosts(destination);
+        return this.search.findPath(origin, destination, null,
+                index -> calculateBound(index, destination, destinationCosts));
+    }
+
+    /**
+     * @return the statistics of the last search, without building the
+     *      tables and without wall time.
+     */
+    SearchStatistics getStatistics() {
+        return this.search.getStatistics();
+    }
+
+    /**
+     * @return a lower bound of the cost of the cheapest path from
+     *      {@code origin} to {@code destination}, as used to guide the
+     *      search. Builds the tables if necessary.
+     */
+    double estimate(int origin, int destination) {
+        update();
+        return calculateBound(origin, destination, getCosts(destination));
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    /**
+     * Places the landmarks at the corners and the middles of the edges of
+     * the board, so that for most queries one of them lies roughly behind
+     * the origin or the destination.
+     */
+    private static int[] selectLandmarks(int width, int height) {
+        final int[][] positions = {
+                { 0, 0 }, { width / 2, 0 }, { width - 1, 0 },
+                { width - 1, height / 2 }, { width - 1, height - 1 },
+                { width / 2, height - 1 }, { 0, height - 1 }, { 0, height / 2 },
+        };
+        final int[] landmarks = new int[LANDMARK_COUNT];
+        int count = 0;
+
+        for (final int[] position : positions) {
+            final int index = position[1] * width + position[0];
+            boolean duplicate = false;
+
+            for (int i = 0; i < count; i++) {
+                duplicate |= landmarks[i] == index;
+            }
+
+            if (duplicate == false) {
+                landmarks[count++] = index;
+            }
+        }
+
+        return Arrays.copyOf(landmarks, count);
+    }
+
+    private double[] getCosts(int index) {
+        final double[] costs = new double[this.tables.length];
+
+        for (int i = 0; i < this.tables.length; i++) {
+            costs[i] = this.tables[i][index];
+        }
+
+        return costs;
+    }
+
+    /**
+     * @return the largest of the euclidean distance and the landmark bounds
+     *      {@code d(L, t) - d(L, v)} and {@code d(v, L) - d(t, L)}.
+     */
+    private double calculateBound(int index, int destination, double[] destinationCosts) {
+        final double dx = index % this.width - destination % this.width;
+        final double dy = index / this.width - destination / this.width;
+        final int weightDifference = this.board.weightAt(destination) - this.board.weightAt(index);
+        double bound = Math.sqrt(dx * dx + dy * dy);
+
+        for (int i = 0; i < destinationCosts.length; i++) {
+            final double cost = this.tables[i][index];
+            bound = Math.max(bound, destinationCosts[i] - cost);
+            bound = Math.max(bound, cost - destinationCosts[i] + weightDifference);
+        }
+
+        return bound;
+    }
+
+    private void update() {
+        final CostModel costModel = this.board.getCostModel();
+
+        if (this.valid && costModel == this.costModel) {
+            return;
+        }
+
+        this.valid = false;
+        this.costModel = costModel;
+        final Thread caller = Thread.currentThread();
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < this.landmarks.length; i++) {
+            final int landmark = i;
+            tasks.add(ForkJoinTask.adapt(() -> computeTable(landmark, caller)));
+        }
+
+        ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+        this.valid = true;
+        this.buildCount++;
+    }
+
+    /**
+     * Computes the costs from the landmark to all cells with Dijkstra,
+     * without penalties for changing direction.
+     *
+     * @throws CancellationException
+     *      if {@code caller} has been interrupted.
+     */
+    private void computeTable(int landmarkIndex, Thread caller) {
+        final int size = this.width * this.height;
+        double[] costs = this.tables[landmarkIndex];
+
+        if (costs == null) {
+            costs = new double[size];
+            this.tables[landmarkIndex] = costs;
+        }
+
+        final CostModel costModel = this.costModel;
+        final IndexedMinHeap open = new IndexedMinHeap(size);
+        final int landmark = this.landmarks[landmarkIndex];
+
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        costs[landmark] = 0.0;
+        open.put(landmark, 0.0);
+
+        while (open.isEmpty() == false) {
+            if (caller.isInterrupted())
+                throw new CancellationException("Search interrupted");
+
+            final int current = open.poll();
+            final double currentCost = costs[current];
+            final int x = current % this.width;
+            final int y = current / this.width;
+            final int firstX = Math.max(x - 1, 0);
+            final int lastX = Math.min(x + 1, this.width - 1);
+            final int firstY = Math.max(y - 1, 0);
+            final int lastY = Math.min(y + 1, this.height - 1);
+
+            for (int ny = firstY; ny <= lastY; ny++) {
+                int neighbour = ny * this.width + firstX;
+
+                for (int nx = firstX; nx <= lastX; nx++, neighbour++) {
+                    final int direction = CostModel.getDirection(nx - x, ny - y);
+
+                    if (costModel.isAllowed(direction) == false) {
+                        continue;
+                    }
+
+                    final double cost = currentCost + costModel.getStepCost(direction) + this.board.weightAt(neighbour);
+
+                    if (cost < costs[neighbour]) {
+                        costs[neighbour] = cost;
+                        open.put(neighbour, cost);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package net.smackem.mavenfx.model;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link WeightRaster} mapped from a file. The operating system loads the
+ * pages of the file when they are first read, so opening is independent of
+ * the size of the raster.
+ * <p>
+ * A single mapping cannot exceed 2 GB, so the raster is mapped in segments
+ * of {@code 2^SEGMENT_SHIFT} weights.
+ *
+ * @author pbo
+ */
+final class MappedWeightRaster implements WeightRaster {
+    private static final int SEGMENT_SHIFT = 28;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+    private final IntBuffer[] segments;
+    private final int size;
+
+    /**
+     * Maps {@code size} little-endian weights starting at {@code position}.
+     * The mapping stays valid after {@code channel} has been closed.
+     */
+    MappedWeightRaster(FileChannel channel, FileChannel.MapMode mode, long position, int size) throws IOException {
+        final int segmentCount = (int) (((long) size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        this.segments = new IntBuffer[segmentCount];
+        this.size = size;
+
+        for (int i = 0; i < segmentCount; i++) {
+            final long first = (long) i << SEGMENT_SHIFT;
+            final long length = Math.min(size - first, 1L << SEGMENT_SHIFT);
+
+            this.segments[i] = channel.map(mode, position + first * Integer.BYTES, length * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer();
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public int get(int index) {
+        return this.segments[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+    }
+
+    @Override
+    public void set(int index, int weight) {
+        this.segments[index >>> SEGMENT_SHIFT].put(index & SEGMENT_MASK, weight);
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return this.segments.length > 0 && this.segments[0].isReadOnly();
+    }
+}
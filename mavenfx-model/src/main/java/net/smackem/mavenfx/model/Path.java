@@ -1,24 +1,33 @@
 package net.smackem.mavenfx.model;
 
 //closed = {}
-//q = emptyqueue;
-//q.enqueue(0.0, makepath(start))
-//while q is not empty
-//    p = q.dequeueCheapest
-//    if closed contains p.last then continue;
-//    if p.last == destination then return p
-//    closed.add(p.last)
-//    foreach n in p.last.neighbours
-//        newpath = p.continuepath(n)
-//        q.enqueue(newpath.TotalCost + estimateCost(n, destination), newpath)
+//open = indexed heap, at most one entry per node
+//open.put(origin, 0.0)
+//while open is not empty
+//    n = open.pollCheapest
+//    p = bestPath(n)
+//    if n == destination then return p
+//    closed.add(n)
+//    foreach m in n.neighbours not in closed
+//        cost = p.TotalCost + distance(p, m)
+//        if cost < bestCost(m) then
+//            bestPath(m) = p.continuepath(m)
+//            open.put(m, cost + estimateCost(m, destination))
 //return null
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.PriorityQueue;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 /**
@@ -28,6 +37,7 @@ public final class Path<TNode> {
     private final TNode head;
     private final Path<TNode> tail;
     private final double totalCost;
+    private final int length;
 
     @FunctionalInterface
     public interface DistanceFunc<TNode> {
@@ -47,17 +57,46 @@ public final class Path<TNode> {
     }
 
     /**
-     * @return an immutable collection containing the {@code TNode}s
-     *      that make up this path.
+     * @return the number of nodes of this path.
+     */
+    public int getLength() {
+        return this.length;
+    }
+
+    /**
+     * @return an immutable view of the {@code TNode}s that make up this
+     *      path, starting with the head. The view walks the path on demand
+     *      and does not copy it.
      */
     public Collection<TNode> getNodes() {
-        final Collection<TNode> collection = new LinkedList<>();
+        return new AbstractCollection<TNode>() {
+            @Override
+            public Iterator<TNode> iterator() {
+                return new Iterator<TNode>() {
+                    private Path<TNode> next = Path.this;
 
-        for (Path<TNode> p = this; p != null; p = p.tail) {
-            collection.add(p.head);
-        }
+                    @Override
+                    public boolean hasNext() {
+                        return this.next != null;
+                    }
 
-        return Collections.unmodifiableCollection(collection);
+                    @Override
+                    public TNode next() {
+                        if (this.next == null)
+                            throw new NoSuchElementException();
+
+                        final TNode node = this.next.head;
+                        this.next = this.next.tail;
+                        return node;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return Path.this.length;
+            }
+        };
     }
 
     public static <TNode> Path<TNode> findPath(TNode origin,
@@ -71,43 +110,181 @@ public final class Path<TNode> {
         Objects.requireNonNull(estimate);
         Objects.requireNonNull(neighbours);
 
-        final Set<TNode> closed = new HashSet<>();
-        final PriorityQueue<PrioritizedPath<TNode>> open = new PriorityQueue<>();
+        // nodes are mapped to consecutive ids so that the open set can be
+        // keyed by id and per-node state can live in arrays
+        final Map<TNode, Integer> ids = new HashMap<>();
+        final List<TNode> nodes = new ArrayList<>();
+        final List<Path<TNode>> parents = new ArrayList<>();
+        final IndexedMinHeap open = new IndexedMinHeap(64);
+        final BitSet closed = new BitSet();
+        double[] costs = new double[64];
 
-        open.add(new PrioritizedPath<>(0.0, new Path<>(origin)));
+        ids.put(origin, 0);
+        nodes.add(origin);
+        parents.add(null);
+        open.put(0, 0.0);
 
         while (open.isEmpty() == false) {
-            final Path<TNode> path = open.poll().path;
-
-            if (closed.contains(path.head)) {
-                continue;
-            }
+            final int id = open.poll();
+            final Path<TNode> parent = parents.get(id);
+            final Path<TNode> path = parent == null
+                    ? new Path<>(origin)
+                    : new Path<>(nodes.get(id), parent, costs[id]);
 
             if (Objects.equals(path.head, destination)) {
                 return path;
             }
 
-            closed.add(path.head);
+            closed.set(id);
 
             for (final TNode node : neighbours.apply(path.head)) {
-                final double d = distance.calc(path, node);
-                final Path<TNode> newPath = path.addStep(node, d);
+                Integer nodeId = ids.get(node);
+                final boolean isNew = nodeId == null;
+
+                if (isNew) {
+                    nodeId = ids.size();
+                    ids.put(node, nodeId);
+                    nodes.add(node);
+                    parents.add(null);
+
+                    if (nodeId == costs.length) {
+                        costs = Arrays.copyOf(costs, nodeId * 2);
+                    }
+                } else if (closed.get(nodeId)) {
+                    continue;
+                }
 
-                open.add(new PrioritizedPath<>(newPath.totalCost + estimate.apply(node), newPath));
+                final double cost = path.totalCost + distance.calc(path, node);
+
+                if (isNew || cost < costs[nodeId]) {
+                    costs[nodeId] = cost;
+                    parents.set(nodeId, path);
+                    open.put(nodeId, cost + estimate.apply(node));
+                }
             }
         }
 
         return null;
     }
 
+    /**
+     * Finds the cheapest path from {@code origin} to {@code destination} by
+     * searching forward from {@code origin} and backward from {@code destination}
+     * at the same time.
+     * <p>
+     * Both searches order their nodes by the average of the forward and the
+     * backward estimate, which keeps the two frontiers consistent with each
+     * other: the search stops as soon as the smallest keys of the two open
+     * sets add up to the cost of the best path found where the frontiers
+     * touched. Like {@link #findPath}, the result is only guaranteed to be
+     * optimal for edge costs that do not depend on the path.
+     *
+     * @param distance
+     *      Calculates the cost of the edge from the head of a path to the
+     *      specified node.
+     *
+     * @param reverseDistance
+     *      Calculates the cost of the edge from the specified node to the
+     *      head of a path leading backward to {@code destination}, where the
+     *      path continues with the tail of the specified path.
+     *
+     * @param estimate
+     *      Estimates the cost from a node to {@code destination}.
+     *
+     * @param reverseEstimate
+     *      Estimates the cost from {@code origin} to a node.
+     *
+     * @param neighbours
+     *      Returns the neighbours of a node. Edges must be symmetric: a node
+     *      must be a neighbour of each of its neighbours.
+     *
+     * @param parallel
+     *      {@code true} to run the backward search on another thread.
+     *
+     * @return the path or {@code null} if there is no path.
+     */
+    public static <TNode> Path<TNode> findPathBidirectional(TNode origin,
+                                                            TNode destination,
+                                                            DistanceFunc<TNode> distance,
+                                                            DistanceFunc<TNode> reverseDistance,
+                                                            Function<TNode, Double> estimate,
+                                                            Function<TNode, Double> reverseEstimate,
+                                                            Function<TNode, Collection<TNode>> neighbours,
+                                                            boolean parallel) {
+        return findPathBidirectional(origin, destination, distance, reverseDistance,
+                estimate, reverseEstimate, neighbours, parallel, null);
+    }
+
     /////////////////////////////////////////////////////////////////
 
-    private Path(TNode head, Path<TNode> tail, double totalCost) {
+    /**
+     * Like {@link #findPathBidirectional(Object, Object, DistanceFunc, DistanceFunc,
+     * Function, Function, Function, boolean)}, but adds the work done to
+     * {@code statistics} and sets its termination reason unless it is
+     * {@code null}.
+     */
+    static <TNode> Path<TNode> findPathBidirectional(TNode origin,
+                                                     TNode destination,
+                                                     DistanceFunc<TNode> distance,
+                                                     DistanceFunc<TNode> reverseDistance,
+                                                     Function<TNode, Double> estimate,
+                                                     Function<TNode, Double> reverseEstimate,
+                                                     Function<TNode, Collection<TNode>> neighbours,
+                                                     boolean parallel,
+                                                     SearchStatistics statistics) {
+        Objects.requireNonNull(origin);
+        Objects.requireNonNull(destination);
+        Objects.requireNonNull(distance);
+        Objects.requireNonNull(reverseDistance);
+        Objects.requireNonNull(estimate);
+        Objects.requireNonNull(reverseEstimate);
+        Objects.requireNonNull(neighbours);
+
+        final Function<TNode, Double> potential = node -> (estimate.apply(node) - reverseEstimate.apply(node)) / 2;
+        final Meeting<TNode> meeting = new Meeting<>(distance);
+        final Frontier<TNode> forward = new Frontier<>(origin, destination, distance,
+                potential, meeting, neighbours, false);
+        final Frontier<TNode> backward = new Frontier<>(destination, origin, reverseDistance,
+                node -> -potential.apply(node), meeting, neighbours, true);
+        forward.other = backward;
+        backward.other = forward;
+
+        if (parallel) {
+            final CompletableFuture<Void> backwardTask = CompletableFuture.runAsync(backward::run);
+            forward.run();
+            backwardTask.join();
+        } else {
+            while (true) {
+                final Frontier<TNode> frontier = forward.open.size() <= backward.open.size() ? forward : backward;
+
+                if (frontier.step() == false) {
+                    break;
+                }
+            }
+        }
+
+        if (statistics != null) {
+            final SearchStatistics.TerminationReason reason = meeting.best != null
+                    ? SearchStatistics.TerminationReason.FOUND
+                    : SearchStatistics.TerminationReason.EXHAUSTED;
+            statistics.add(new SearchStatistics(
+                    forward.expandedCount + backward.expandedCount,
+                    forward.generatedCount + backward.generatedCount,
+                    forward.open.getPeakSize() + backward.open.getPeakSize(),
+                    reason));
+            statistics.setTerminationReason(reason);
+        }
+
+        return meeting.best;
+    }
+
+    Path(TNode head, Path<TNode> tail, double totalCost) {
         Objects.requireNonNull(head);
 
         this.head = head;
         this.tail = tail;
         this.totalCost = totalCost;
+        this.length = tail != null ? tail.length + 1 : 1;
     }
 
     Path(TNode head) {
@@ -118,18 +295,185 @@ public final class Path<TNode> {
         return new Path<>(step, this, this.totalCost + stepCost);
     }
 
-    private static class PrioritizedPath<TNode> implements Comparable<PrioritizedPath<TNode>> {
-        final double estimatedCost;
-        final Path<TNode> path;
+    /**
+     * Keeps the cheapest path found where the forward and the backward
+     * search of {@link #findPathBidirectional} touched.
+     */
+    private static final class Meeting<TNode> {
+        final DistanceFunc<TNode> distance;
+        volatile Path<TNode> best;
+        volatile boolean done;
 
-        PrioritizedPath(double estimatedCost, Path<TNode> path) {
-            this.estimatedCost = estimatedCost;
-            this.path = path;
+        Meeting(DistanceFunc<TNode> distance) {
+            this.distance = distance;
         }
 
-        @Override
-        public int compareTo(PrioritizedPath<TNode> o) {
-            return Double.compare(this.estimatedCost, o.estimatedCost);
+        double getBestCost() {
+            final Path<TNode> path = this.best;
+            return path != null ? path.totalCost : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Extends {@code forwardPath} with the nodes of {@code backwardPath}.
+         * The total cost is recalculated with the forward distance function.
+         */
+        void offer(Path<TNode> forwardPath, Path<TNode> backwardPath) {
+            Path<TNode> path = forwardPath;
+
+            for (Path<TNode> p = backwardPath; p != null; p = p.tail) {
+                path = path.addStep(p.head, this.distance.calc(path, p.head));
+            }
+
+            synchronized (this) {
+                if (path.totalCost < getBestCost()) {
+                    this.best = path;
+                }
+            }
+        }
+    }
+
+    /**
+     * One direction of {@link #findPathBidirectional}. Open nodes are keyed
+     * by their cost plus the potential relative to the start node, so the
+     * keys of both directions are measured on the same scale.
+     */
+    private static final class Frontier<TNode> {
+        final TNode start;
+        final TNode target;
+        final DistanceFunc<TNode> distance;
+        final Function<TNode, Double> potential;
+        final Function<TNode, Collection<TNode>> neighbours;
+        final Meeting<TNode> meeting;
+        final boolean backward;
+        final double startPotential;
+        final Map<TNode, Integer> ids = new HashMap<>();
+        final List<TNode> nodes = new ArrayList<>();
+        final List<Path<TNode>> parents = new ArrayList<>();
+        final BitSet closedIds = new BitSet();
+        final Map<TNode, Path<TNode>> closed = new ConcurrentHashMap<>();
+        final IndexedMinHeap open = new IndexedMinHeap(64);
+        double[] costs = new double[64];
+        long expandedCount;
+        long generatedCount;
+        volatile double radius;
+        Frontier<TNode> other;
+
+        Frontier(TNode start,
+                 TNode target,
+                 DistanceFunc<TNode> distance,
+                 Function<TNode, Double> potential,
+                 Meeting<TNode> meeting,
+                 Function<TNode, Collection<TNode>> neighbours,
+                 boolean backward) {
+            this.start = start;
+            this.target = target;
+            this.distance = distance;
+            this.potential = potential;
+            this.neighbours = neighbours;
+            this.meeting = meeting;
+            this.backward = backward;
+            this.startPotential = potential.apply(start);
+            this.ids.put(start, 0);
+            this.nodes.add(start);
+            this.parents.add(null);
+            this.open.put(0, 0.0);
+        }
+
+        void run() {
+            while (step()) {
+                // until either direction decides to stop
+            }
+        }
+
+        /**
+         * Expands the node with the smallest key.
+         *
+         * @return {@code false} if the search is complete.
+         */
+        boolean step() {
+            if (this.meeting.done) {
+                return false;
+            }
+
+            // the other direction has closed all nodes with keys below its radius,
+            // so no path through the open nodes can be cheaper than the best one.
+            if (this.open.isEmpty()
+                    || this.open.peekKey() + this.other.radius
+                        + this.startPotential + this.other.startPotential >= this.meeting.getBestCost()) {
+                this.meeting.done = true;
+                return false;
+            }
+
+            this.radius = this.open.peekKey();
+
+            final int id = this.open.poll();
+            final TNode node = this.nodes.get(id);
+            final Path<TNode> parent = this.parents.get(id);
+            final Path<TNode> path = parent == null
+                    ? new Path<>(node)
+                    : new Path<>(node, parent, this.costs[id]);
+
+            this.closedIds.set(id);
+            this.closed.put(node, path);
+            this.expandedCount++;
+
+            final Path<TNode> otherPath = Objects.equals(node, this.target)
+                    ? new Path<>(node)
+                    : this.other.closed.get(node);
+
+            if (otherPath != null && path.totalCost + otherPath.totalCost < this.meeting.getBestCost()) {
+                join(path.tail, otherPath);
+            }
+
+            for (final TNode neighbour : this.neighbours.apply(node)) {
+                Integer neighbourId = this.ids.get(neighbour);
+
+                if (neighbourId == null) {
+                    neighbourId = this.nodes.size();
+                    this.ids.put(neighbour, neighbourId);
+                    this.nodes.add(neighbour);
+                    this.parents.add(null);
+
+                    if (neighbourId == this.costs.length) {
+                        this.costs = Arrays.copyOf(this.costs, neighbourId * 2);
+                    }
+
+                    this.costs[neighbourId] = Double.POSITIVE_INFINITY;
+                } else if (this.closedIds.get(neighbourId)) {
+                    continue;
+                }
+
+                final double cost = path.totalCost + this.distance.calc(path, neighbour);
+                final Path<TNode> neighbourOtherPath = this.other.closed.get(neighbour);
+
+                if (neighbourOtherPath != null && cost + neighbourOtherPath.totalCost < this.meeting.getBestCost()) {
+                    join(path, neighbourOtherPath);
+                }
+
+                if (cost < this.costs[neighbourId]) {
+                    this.costs[neighbourId] = cost;
+                    this.parents.set(neighbourId, path);
+                    this.open.put(neighbourId, cost + this.potential.apply(neighbour) - this.startPotential);
+                    this.generatedCount++;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Offers the path made of {@code path} of this direction and
+         * {@code otherPath} of the other direction, which continues where
+         * {@code path} ends.
+         */
+        private void join(Path<TNode> path, Path<TNode> otherPath) {
+            if (this.backward) {
+                this.meeting.offer(otherPath, path);
+            } else if (path == null) {
+                this.meeting.offer(new Path<>(otherPath.head), otherPath.tail);
+            } else {
+                this.meeting.offer(path, otherPath);
+            }
         }
     }
 }
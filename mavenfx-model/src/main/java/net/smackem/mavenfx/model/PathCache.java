@@ -0,0 +1,163 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A bounded cache of the results of {@link Board#findPaths(Cell, Cell, int)},
+ * evicting the least recently used result when full.
+ * <p>
+ * Each result is stored together with the board version it is valid for and
+ * the rectangle of cells whose weights the search has read. When the weight
+ * of a cell changes, only the results whose rectangle contains the cell are
+ * dropped; all others remain valid for the new board version, since the
+ * search would read exactly the same weights and find the same paths.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author pbo
+ */
+public final class PathCache {
+    private final Board board;
+    private final int capacity;
+    private final Map<Key, CachedResult> results;
+    private long hitCount;
+    private long missCount;
+
+    PathCache(Board board, int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Invalid capacity");
+
+        this.board = Objects.requireNonNull(board);
+        this.capacity = capacity;
+        this.results = new LinkedHashMap<Key, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+                return size() > PathCache.this.capacity;
+            }
+        };
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * @return the number of cached results.
+     */
+    public int size() {
+        return this.results.size();
+    }
+
+    /**
+     * @return the number of lookups answered from the cache.
+     */
+    public long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * @return the number of lookups that had to search.
+     */
+    public long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * Removes all cached results. Does not reset the counters.
+     */
+    public void clear() {
+        this.results.clear();
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    /**
+     * @return the cached paths or {@code null} if there is no valid result
+     *      for the specified query.
+     */
+    List<Path<Cell>> get(int origin, int destination, int maxPathCount) {
+        final CachedResult result = this.results.get(new Key(origin, destination, maxPathCount));
+
+        if (result == null || result.version != this.board.getSearchVersion()) {
+            this.missCount++;
+            return null;
+        }
+
+        this.hitCount++;
+        return result.paths;
+    }
+
+    /**
+     * Stores the paths found for the specified query at the current board version.
+     *
+     * @param explored
+     *      The cells whose weights the search has read.
+     */
+    void put(int origin, int destination, int maxPathCount, List<Path<Cell>> paths, Bounds explored) {
+        this.results.put(new Key(origin, destination, maxPathCount),
+                new CachedResult(paths, explored, this.board.getSearchVersion()));
+    }
+
+    /**
+     * Drops the results that depend on the weight of the specified cell and
+     * moves the others to the current board version.
+     */
+    void invalidate(int col, int row) {
+        final long version = this.board.getSearchVersion();
+
+        for (final Iterator<CachedResult> iterator = this.results.values().iterator(); iterator.hasNext(); ) {
+            final CachedResult result = iterator.next();
+
+            if (result.explored.contains(col, row)) {
+                iterator.remove();
+            } else {
+                result.version = version;
+            }
+        }
+    }
+
+    private static final class Key {
+        final int origin;
+        final int destination;
+        final int maxPathCount;
+
+        Key(int origin, int destination, int maxPathCount) {
+            this.origin = origin;
+            this.destination = destination;
+            this.maxPathCount = maxPathCount;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Key == false) {
+                return false;
+            }
+
+            final Key other = (Key) obj;
+            return this.origin == other.origin
+                    && this.destination == other.destination
+                    && this.maxPathCount == other.maxPathCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return (this.origin * 31 + this.destination) * 31 + this.maxPathCount;
+        }
+    }
+
+    private static final class CachedResult {
+        final List<Path<Cell>> paths;
+        final Bounds explored;
+        long version;
+
+        CachedResult(List<Path<Cell>> paths, Bounds explored, long version) {
+            this.paths = paths;
+            this.explored = explored;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Objects;
+
+/**
+ * A pair of cells to find the cheapest path between, used to search many
+ * paths at once with {@link Board#findPathsAsync(java.util.List, java.util.concurrent.ForkJoinPool)}.
+ *
+ * @author pbo
+ */
+public final class RouteQuery {
+    private final Cell origin;
+    private final Cell destination;
+
+    public RouteQuery(Cell origin, Cell destination) {
+        this.origin = Objects.requireNonNull(origin);
+        this.destination = Objects.requireNonNull(destination);
+    }
+
+    public Cell getOrigin() {
+        return this.origin;
+    }
+
+    public Cell getDestination() {
+        return this.destination;
+    }
+
+    @Override
+    public String toString() {
+        return "RouteQuery[" + this.origin.getX() + "/" + this.origin.getY()
+                + " -> " + this.destination.getX() + "/" + this.destination.getY() + "]";
+    }
+}
@@ -0,0 +1,77 @@
+package net.smackem.mavenfx.model;
+
+/**
+ * The strategies available for searching paths on a {@link Board}.
+ *
+ * @author pbo
+ */
+public enum SearchMode {
+    /**
+     * A* over the 8-connected grid. Every cell is passable; the weight of
+     * a cell is added to the cost of entering it.
+     */
+    ASTAR,
+
+    /**
+     * Jump Point Search. Skips over symmetric paths in regions of weight
+     * {@code 0} and falls back to plain A* steps next to cells of varying
+     * weight. Cells with a weight of at least {@link Board#OBSTACLE_WEIGHT}
+     * are impassable. Requires a {@link CostModel} with
+     * {@link CostModel.Connectivity#EIGHT}.
+     */
+    JUMP_POINT,
+
+    /**
+     * Hierarchical A* (HPA*). Searches a cached abstraction of the board
+     * made of clusters and their entrances, then refines the path with A*
+     * restricted to the clusters along the abstract path. Faster than
+     * {@link #ASTAR} for long distances, but the result may be more
+     * expensive.
+     */
+    HIERARCHICAL,
+
+    /**
+     * Bidirectional A*. Searches from both ends at the same time and stops
+     * as soon as no path through the unexplored frontiers can beat the best
+     * path found where the two searches met. Uses the same costs as
+     * {@link #ASTAR}.
+     */
+    BIDIRECTIONAL,
+
+    /**
+     * Like {@link #BIDIRECTIONAL}, but runs the backward search on another
+     * thread.
+     */
+    PARALLEL_BIDIRECTIONAL,
+
+    /**
+     * Lifelong Planning A* (LPA*). Keeps its search state between queries
+     * with the same origin and destination and, after weights have changed,
+     * repairs only the costs depending on the changed cells. Uses the same
+     * costs as {@link #ASTAR}, but accounts for the penalty for changing
+     * direction exactly, so that the result may be slightly cheaper.
+     */
+    INCREMENTAL,
+
+    /**
+     * A* guided by landmarks and the triangle inequality (ALT). The costs
+     * from a few landmark cells to all cells are precomputed, which gives
+     * much tighter estimates than the euclidean distance on weighted
+     * terrain, so that far fewer cells are expanded. Uses the same costs
+     * as {@link #ASTAR}. The precomputed costs are rebuilt by the first
+     * search after weights have changed, which takes about as long as
+     * a few searches across the whole board.
+     */
+    LANDMARK,
+
+    /**
+     * A* with all costs scaled to fixed-point integers and a bucket queue
+     * (Dial's algorithm) instead of a binary heap, so that adding and
+     * removing nodes takes constant time. Uses the same costs as
+     * {@link #ASTAR}, except that the costs of a step are rounded to two
+     * decimals. The costs of the result are exact, but the result may be
+     * more expensive than the one of {@link #ASTAR} by up to {@code 0.015}
+     * per step.
+     */
+    FIXED_POINT,
+}
@@ -0,0 +1,39 @@
+package net.smackem.mavenfx.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The paths found by a query together with the {@link SearchStatistics}
+ * describing the work done to find them.
+ *
+ * @author pbo
+ */
+public final class SearchResult {
+    private final List<Path<Cell>> paths;
+    private final SearchStatistics statistics;
+
+    SearchResult(List<Path<Cell>> paths, SearchStatistics statistics) {
+        this.paths = Collections.unmodifiableList(Objects.requireNonNull(paths));
+        this.statistics = Objects.requireNonNull(statistics);
+    }
+
+    /**
+     * @return the paths found, cheapest first. Empty if there is no path.
+     */
+    public List<Path<Cell>> getPaths() {
+        return this.paths;
+    }
+
+    /**
+     * @return the cheapest path or {@code null} if there is no path.
+     */
+    public Path<Cell> getPath() {
+        return this.paths.isEmpty() ? null : this.paths.get(0);
+    }
+
+    public SearchStatistics getStatistics() {
+        return this.statistics;
+    }
+}
@@ -0,0 +1,130 @@
+package net.smackem.mavenfx.model;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes the work done to answer a query. Queries that run several
+ * searches, like {@link Board#findPathsWithStatistics(Cell, Cell, int)},
+ * report the totals of all searches.
+ *
+ * @author pbo
+ */
+public final class SearchStatistics {
+    private long expandedCount;
+    private long generatedCount;
+    private int peakOpenSize;
+    private long stalePopCount;
+    private long wallTimeNanos;
+    private TerminationReason terminationReason;
+
+    /**
+     * The reasons for a query to end.
+     */
+    public enum TerminationReason {
+        /**
+         * All requested paths have been found.
+         */
+        FOUND,
+
+        /**
+         * Everything reachable has been explored without finding all
+         * requested paths.
+         */
+        EXHAUSTED,
+
+        /**
+         * The result has been taken from the {@link PathCache} without searching.
+         */
+        CACHED,
+    }
+
+    SearchStatistics(TerminationReason terminationReason) {
+        this.terminationReason = terminationReason;
+    }
+
+    SearchStatistics(long expandedCount, long generatedCount, int peakOpenSize, TerminationReason terminationReason) {
+        this.expandedCount = expandedCount;
+        this.generatedCount = generatedCount;
+        this.peakOpenSize = peakOpenSize;
+        this.terminationReason = terminationReason;
+    }
+
+    SearchStatistics(long expandedCount, long generatedCount, int peakOpenSize, long stalePopCount,
+                     TerminationReason terminationReason) {
+        this(expandedCount, generatedCount, peakOpenSize, terminationReason);
+        this.stalePopCount = stalePopCount;
+    }
+
+    /**
+     * @return the number of nodes removed from the open set and expanded.
+     */
+    public long getExpandedCount() {
+        return this.expandedCount;
+    }
+
+    /**
+     * @return the number of times a node has been added to the open set or
+     *      has had its priority lowered.
+     */
+    public long getGeneratedCount() {
+        return this.generatedCount;
+    }
+
+    /**
+     * @return the maximum number of nodes contained in the open set at the
+     *      same time. For searches running several open sets at once, like
+     *      the bidirectional ones, the sum of their maximums.
+     */
+    public int getPeakOpenSize() {
+        return this.peakOpenSize;
+    }
+
+    /**
+     * @return the number of outdated entries removed from the open set and
+     *      skipped. Always {@code 0} for open sets that update the priority
+     *      of a contained node in place.
+     */
+    public long getStalePopCount() {
+        return this.stalePopCount;
+    }
+
+    public long getWallTimeNanos() {
+        return this.wallTimeNanos;
+    }
+
+    public TerminationReason getTerminationReason() {
+        return this.terminationReason;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s in %.1f ms: %d expanded, %d generated, peak open %d, %d stale",
+                this.terminationReason,
+                this.wallTimeNanos / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                this.expandedCount,
+                this.generatedCount,
+                this.peakOpenSize,
+                this.stalePopCount);
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    /**
+     * Adds the counts of {@code other} to this instance. The peak open set
+     * size becomes the larger one of both.
+     */
+    void add(SearchStatistics other) {
+        this.expandedCount += other.expandedCount;
+        this.generatedCount += other.generatedCount;
+        this.peakOpenSize = Math.max(this.peakOpenSize, other.peakOpenSize);
+        this.stalePopCount += other.stalePopCount;
+    }
+
+    void setWallTimeNanos(long wallTimeNanos) {
+        this.wallTimeNanos = wallTimeNanos;
+    }
+
+    void setTerminationReason(TerminationReason terminationReason) {
+        this.terminationReason = terminationReason;
+    }
+}
@@ -0,0 +1,22 @@
+package net.smackem.mavenfx.model;
+
+/**
+ * The storage of the cell weights of a {@link Board}, indexed by
+ * {@code row * width + col}.
+ *
+ * @author pbo
+ */
+interface WeightRaster {
+    int size();
+
+    int get(int index);
+
+    void set(int index, int weight);
+
+    /**
+     * @return {@code true} if {@link #set(int, int)} always fails.
+     */
+    default boolean isReadOnly() {
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class AlternativeRoutesTest {
+    @Test
+    public void testSameCostsAsUnguidedSearch() {
+        final Random random = new Random(23);
+        final Board board = GridSearchTest.createRandomBoard(random, 80, 60);
+        final GridSearch search = new GridSearch(board);
+        final AlternativeRoutes routes = new AlternativeRoutes(board, new GridSearch(board));
+
+        for (int i = 0; i < 10; i++) {
+            final int origin = random.nextInt(80 * 60);
+            final int destination = random.nextInt(80 * 60);
+            final List<Path<Cell>> paths = routes.findPaths(origin, destination, 4);
+            final BitSet usedCells = new BitSet();
+
+            assertThat(paths, hasSize(4));
+
+            for (final Path<Cell> path : paths) {
+                final Path<Cell> expected = search.findPath(origin, destination, usedCells);
+
+                GridSearchTest.assertValidPath(path, board.getCell(origin), board.getCell(destination));
+                assertThat(path.getTotalCost(), closeTo(expected.getTotalCost(), 1.0));
+
+                for (Path<Cell> p = path; p != null; p = p.getTail()) {
+                    usedCells.set(board.indexOf(p.getHead()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPathsDoNotShareCells() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(7), 50, 50);
+        final Cell origin = board.getCell(3, 25);
+        final Cell destination = board.getCell(46, 20);
+        final BitSet usedCells = new BitSet();
+
+        for (final Path<Cell> path : board.findPaths(origin, destination, 5)) {
+            for (Path<Cell> p = path.getTail(); p != null && p.getTail() != null; p = p.getTail()) {
+                final int index = board.indexOf(p.getHead());
+                assertThat(usedCells.get(index), is(false));
+                usedCells.set(index);
+            }
+        }
+
+        assertThat(usedCells.isEmpty(), is(false));
+    }
+
+    @Test
+    public void testEnclosedOrigin() {
+        final Board board = new Board(10, 10);
+        final Cell origin = board.getCell(0, 0);
+        final Cell destination = board.getCell(9, 9);
+        final Object[] paths = board.findPaths(origin, destination, 5).toArray();
+
+        // the origin has only three neighbours
+        assertThat(paths.length, is(3));
+    }
+}
@@ -0,0 +1,86 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class BatchRouterTest {
+    @Test
+    public void testResultsInQueryOrder() throws Exception {
+        final Random random = new Random(19);
+        final Board board = GridSearchTest.createRandomBoard(random, 80, 60);
+        final List<RouteQuery> queries = new ArrayList<>();
+
+        // single queries and a group sharing an origin, interleaved
+        final Cell sharedOrigin = board.getCell(40, 30);
+
+        for (int i = 0; i < 24; i++) {
+            final Cell origin = i % 2 == 0 ? sharedOrigin : board.getCell(random.nextInt(80), random.nextInt(60));
+            queries.add(new RouteQuery(origin, board.getCell(random.nextInt(80), random.nextInt(60))));
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(3);
+
+        try {
+            final List<Path<Cell>> paths = board.findPathsAsync(queries, pool).get(30, TimeUnit.SECONDS);
+
+            assertThat(paths, hasSize(queries.size()));
+
+            for (int i = 0; i < queries.size(); i++) {
+                final RouteQuery query = queries.get(i);
+                final Path<Cell> expected = board.findPath(query.getOrigin(), query.getDestination());
+
+                GridSearchTest.assertValidPath(paths.get(i), query.getOrigin(), query.getDestination());
+                assertThat(paths.get(i).getTotalCost(), closeTo(expected.getTotalCost(), 1.0));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final Board board = new Board(50, 50);
+        final List<RouteQuery> queries = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            queries.add(new RouteQuery(board.getCell(i % 50, 0), board.getCell(49 - i % 50, 49)));
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        try {
+            // keep the only worker busy until the batch has been cancelled
+            pool.execute(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            final CompletableFuture<List<Path<Cell>>> future = board.findPathsAsync(queries, pool);
+
+            assertThat(future.cancel(true), is(true));
+            latch.countDown();
+
+            assertThat(future.isCancelled(), is(true));
+            assertThat(pool.awaitQuiescence(10, TimeUnit.SECONDS), is(true));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class BidirectionalSearchTest {
+    @Test
+    public void testComparableToAStar() {
+        assertComparableToAStar(SearchMode.BIDIRECTIONAL);
+    }
+
+    @Test
+    public void testParallelComparableToAStar() {
+        assertComparableToAStar(SearchMode.PARALLEL_BIDIRECTIONAL);
+    }
+
+    @Test
+    public void testSameCell() {
+        final Board board = new Board(10, 10);
+        final Cell cell = board.getCell(4, 4);
+        final Path<Cell> path = board.findPath(cell, cell, SearchMode.BIDIRECTIONAL);
+
+        assertThat(path.getHead(), is(cell));
+        assertThat(path.getTail(), nullValue());
+    }
+
+    @Test
+    public void testReverseEdgeWeightsAddUp() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(3), 40, 30);
+        final Path<Cell> path = board.findPath(board.getCell(2, 3), board.getCell(37, 25));
+        Path<Cell> reverse = null;
+        double reverseCost = 0.0;
+
+        for (Path<Cell> p = path; p != null; p = p.getTail()) {
+            if (reverse != null) {
+                reverseCost += Board.calculateReverseEdgeWeight(reverse, p.getHead());
+            }
+
+            reverse = reverse == null ? new Path<>(p.getHead()) : reverse.addStep(p.getHead(), 0.0);
+        }
+
+        assertThat(reverseCost, closeTo(path.getTotalCost(), 1e-9));
+    }
+
+    private static void assertComparableToAStar(SearchMode mode) {
+        final Random random = new Random(17);
+        final Board board = GridSearchTest.createRandomBoard(random, 120, 90);
+
+        for (int i = 0; i < 20; i++) {
+            final Cell origin = board.getCell(random.nextInt(120), random.nextInt(90));
+            final Cell destination = board.getCell(random.nextInt(120), random.nextInt(90));
+            final Path<Cell> expected = board.findPath(origin, destination, SearchMode.ASTAR);
+            final Path<Cell> actual = board.findPath(origin, destination, mode);
+
+            GridSearchTest.assertValidPath(actual, origin, destination);
+            assertThat(actual.getTotalCost(), closeTo(expected.getTotalCost(), 1.0));
+        }
+    }
+}
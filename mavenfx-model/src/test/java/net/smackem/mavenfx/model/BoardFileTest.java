@@ -0,0 +1,151 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class BoardFileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final Board board = GridSearchTest.createRandomBoard(new Random(41), 70, 50);
+        final File file = this.folder.newFile("board.mfxb");
+
+        BoardFile.save(board, file);
+        final Board opened = BoardFile.open(file);
+
+        assertThat(file.length(), is(32L + 70 * 50 * 4));
+        assertThat(opened.getWidth(), is(70));
+        assertThat(opened.getHeight(), is(50));
+
+        for (int row = 0; row < 50; row++) {
+            for (int col = 0; col < 70; col++) {
+                assertThat(opened.getWeight(col, row), is(board.getWeight(col, row)));
+            }
+        }
+
+        final Path<Cell> expected = board.findPath(board.getCell(2, 3), board.getCell(65, 44));
+        final Path<Cell> actual = opened.findPath(opened.getCell(2, 3), opened.getCell(65, 44));
+
+        assertThat(actual.getTotalCost(), is(expected.getTotalCost()));
+    }
+
+    @Test
+    public void testChangesAreNotWrittenBack() throws IOException {
+        final Board board = new Board(10, 10);
+        final File file = this.folder.newFile("board.mfxb");
+        BoardFile.save(board, file);
+
+        final Board opened = BoardFile.open(file);
+        opened.setWeight(4, 5, 123);
+
+        assertThat(opened.getWeight(4, 5), is(123));
+        assertThat(BoardFile.open(file).getWeight(4, 5), is(0));
+    }
+
+    @Test
+    public void testSaveToOpenedFile() throws IOException {
+        final Board board = GridSearchTest.createRandomBoard(new Random(43), 300, 200);
+        final File file = this.folder.newFile("board.mfxb");
+        BoardFile.save(board, file);
+
+        final Board opened = BoardFile.open(file);
+        opened.setWeight(150, 100, 77);
+        BoardFile.save(opened, file);
+        final Board reopened = BoardFile.open(file);
+
+        assertThat(file.length(), is(32L + 300 * 200 * 4));
+        assertThat(this.folder.getRoot().list(), arrayContaining("board.mfxb"));
+
+        for (int row = 0; row < 200; row++) {
+            for (int col = 0; col < 300; col++) {
+                assertThat(reopened.getWeight(col, row), is(opened.getWeight(col, row)));
+            }
+        }
+
+        assertThat(reopened.getWeight(150, 100), is(77));
+        assertThat(opened.getWeight(299, 199), is(board.getWeight(299, 199)));
+    }
+
+    @Test
+    public void testEditReadOnlyFile() throws IOException {
+        final Board board = GridSearchTest.createRandomBoard(new Random(44), 100, 80);
+        final File file = this.folder.newFile("board.mfxb");
+        BoardFile.save(board, file);
+        assertThat(file.setWritable(false), is(true));
+
+        final Board opened = BoardFile.open(file);
+        opened.setWeight(4, 5, 123);
+        opened.setWeight(99, 79, 7);
+
+        assertThat(opened.getWeight(4, 5), is(123));
+        assertThat(opened.getWeight(99, 79), is(7));
+        assertThat(opened.getWeight(5, 5), is(board.getWeight(5, 5)));
+        assertThat(BoardFile.open(file).getWeight(4, 5), is(board.getWeight(4, 5)));
+    }
+
+    @Test
+    public void testEditReadOnlyMapping() throws IOException {
+        final Board board = GridSearchTest.createRandomBoard(new Random(45), 100, 80);
+        final File file = this.folder.newFile("board.mfxb");
+        BoardFile.save(board, file);
+
+        final Board opened;
+
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            opened = new Board(100, 80, new MappedWeightRaster(channel, FileChannel.MapMode.READ_ONLY, 32, 100 * 80));
+        }
+
+        opened.setWeight(4, 5, 123);
+        final Board snapshot = opened.snapshot();
+        opened.setWeight(99, 79, 7);
+
+        for (int index = 0; index < 100 * 80; index++) {
+            final int expected = index == 5 * 100 + 4 ? 123
+                    : index == 100 * 80 - 1 ? 7
+                    : board.weightAt(index);
+            assertThat(opened.weightAt(index), is(expected));
+        }
+
+        assertThat(snapshot.getWeight(4, 5), is(123));
+        assertThat(snapshot.getWeight(99, 79), is(board.getWeight(99, 79)));
+
+        assertThat(BoardFile.open(file).getWeight(4, 5), is(board.getWeight(4, 5)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testWrongMagic() throws IOException {
+        final File file = this.folder.newFile("image.png");
+        Files.write(file.toPath(), new byte[64]);
+
+        BoardFile.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        final File file = this.folder.newFile("board.mfxb");
+        BoardFile.save(new Board(10, 10), file);
+
+        try (final RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 4);
+        }
+
+        BoardFile.open(file);
+    }
+}
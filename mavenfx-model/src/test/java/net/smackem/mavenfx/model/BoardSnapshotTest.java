@@ -0,0 +1,150 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class BoardSnapshotTest {
+    @Test
+    public void testSnapshotIsIsolatedFromChanges() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(43), 100, 80);
+        board.setCostModel(CostModel.DEFAULT.withTurnPenalty(0.5));
+        final Board snapshot = board.snapshot();
+        final Path<Cell> expected = snapshot.findPath(snapshot.getCell(0, 0), snapshot.getCell(99, 79));
+
+        for (int row = 0; row < 80; row++) {
+            board.setWeight(50, row, 999);
+        }
+
+        assertThat(snapshot.isSnapshot(), is(true));
+        assertThat(board.isSnapshot(), is(false));
+        assertThat(snapshot.getCostModel(), is(board.getCostModel()));
+        assertThat(snapshot.getWeight(50, 40), is(not(999)));
+        assertThat(snapshot.findPath(snapshot.getCell(0, 0), snapshot.getCell(99, 79)).getTotalCost(),
+                is(expected.getTotalCost()));
+        assertThat(board.findPath(board.getCell(0, 0), board.getCell(99, 79)).getTotalCost(),
+                greaterThan(expected.getTotalCost()));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsReadOnly() {
+        new Board(10, 10).snapshot().setWeight(1, 1, 1);
+    }
+
+    @Test
+    public void testChangesReachSearchStateAtNextSearch() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(47), 120, 90);
+        final Cell origin = board.getCell(5, 45);
+        final Cell destination = board.getCell(115, 45);
+
+        for (final SearchMode mode : new SearchMode[] {
+                SearchMode.INCREMENTAL, SearchMode.LANDMARK, SearchMode.HIERARCHICAL }) {
+            board.findPath(origin, destination, mode);
+
+            for (int row = 0; row < 85; row++) {
+                board.setWeight(60, row, 900 + row % 7);
+            }
+
+            final Path<Cell> expected = board.findPath(origin, destination, SearchMode.ASTAR);
+            final Path<Cell> actual = board.findPath(origin, destination, mode);
+
+            GridSearchTest.assertValidPath(actual, origin, destination);
+            assertThat(mode.toString(), actual.getTotalCost(), lessThanOrEqualTo(expected.getTotalCost() * 1.1));
+        }
+    }
+
+    @Test
+    public void testSearchWhileChanging() throws Exception {
+        final Board board = GridSearchTest.createRandomBoard(new Random(53), 200, 150);
+        final Cell origin = board.getCell(0, 75);
+        final Cell destination = board.getCell(199, 75);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            final Future<?> search = executor.submit(() -> {
+                for (int i = 0; i < 10; i++) {
+                    assertConnected(board.findPath(origin, destination, SearchMode.INCREMENTAL), origin, destination);
+                }
+            });
+
+            for (int i = 0; search.isDone() == false; i++) {
+                board.setWeight(100, i % 150, i % 300 < 150 ? 900 : 0);
+            }
+
+            search.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final Path<Cell> expected = board.findPath(origin, destination, SearchMode.ASTAR);
+        final Path<Cell> actual = board.findPath(origin, destination, SearchMode.INCREMENTAL);
+
+        GridSearchTest.assertValidPath(actual, origin, destination);
+        assertThat(actual.getTotalCost(), lessThanOrEqualTo(expected.getTotalCost() + 1e-6));
+    }
+
+    @Test
+    public void testBatchSearchesWeightsAtCall() throws Exception {
+        final Board board = GridSearchTest.createRandomBoard(new Random(59), 120, 90);
+        final Cell origin = board.getCell(5, 45);
+        final Cell destination = board.getCell(115, 45);
+        final double expectedCost = board.findPath(origin, destination, SearchMode.ASTAR).getTotalCost();
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        try {
+            pool.execute(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            final CompletableFuture<List<Path<Cell>>> paths = board.findPathsAsync(
+                    Arrays.asList(new RouteQuery(origin, destination)), pool);
+
+            for (int row = 0; row < 90; row++) {
+                board.setWeight(60, row, 999);
+            }
+
+            latch.countDown();
+            final Path<Cell> actual = paths.get().get(0);
+
+            assertConnected(actual, origin, destination);
+            assertThat(actual.getTotalCost(), is(expectedCost));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private static void assertConnected(Path<Cell> path, Cell origin, Cell destination) {
+        assertThat(path.getHead(), is(destination));
+
+        Path<Cell> p = path;
+
+        for (; p.getTail() != null; p = p.getTail()) {
+            assertThat(Math.abs(p.getHead().getX() - p.getTail().getHead().getX()), lessThanOrEqualTo(1));
+            assertThat(Math.abs(p.getHead().getY() - p.getTail().getHead().getY()), lessThanOrEqualTo(1));
+            assertThat(p.getTotalCost(), greaterThan(p.getTail().getTotalCost()));
+        }
+
+        assertThat(p.getHead(), is(origin));
+    }
+}
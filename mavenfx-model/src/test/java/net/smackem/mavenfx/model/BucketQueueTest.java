@@ -0,0 +1,76 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class BucketQueueTest {
+    @Test
+    public void testPollOrder() {
+        final BucketQueue queue = new BucketQueue(16);
+        queue.add(3, 3);
+        queue.add(1, 1);
+        queue.add(7, 7);
+        queue.add(5, 5);
+
+        assertThat(queue.poll(), is(1));
+        assertThat(queue.poll(), is(3));
+        assertThat(queue.poll(), is(5));
+        assertThat(queue.poll(), is(7));
+        assertThat(queue.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testDuplicateIds() {
+        final BucketQueue queue = new BucketQueue(16);
+        queue.add(1, 10);
+        queue.add(1, 4);
+
+        assertThat(queue.size(), is(2));
+        assertThat(queue.peekKey(), is(4L));
+        assertThat(queue.poll(), is(1));
+        assertThat(queue.peekKey(), is(10L));
+        assertThat(queue.poll(), is(1));
+        assertThat(queue.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testMonotoneRandomOrder() {
+        final Random random = new Random(13);
+        final BucketQueue queue = new BucketQueue(16);
+        final PriorityQueue<Long> expected = new PriorityQueue<>();
+        long lastKey = 0;
+
+        for (int i = 0; i < 20000; i++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                // occasionally far ahead to make the ring grow
+                final long key = lastKey + (random.nextInt(100) == 0 ? random.nextInt(5000) : random.nextInt(50));
+                queue.add((int) key, key);
+                expected.add(key);
+            } else {
+                lastKey = expected.poll();
+                assertThat(queue.peekKey(), is(lastKey));
+                assertThat((long) queue.poll(), is(lastKey));
+            }
+        }
+
+        assertThat(queue.size(), is(expected.size()));
+        assertThat(queue.getBucketCount(), greaterThanOrEqualTo(4096));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testKeyBelowLastPolled() {
+        final BucketQueue queue = new BucketQueue(16);
+        queue.add(1, 10);
+        queue.add(2, 20);
+        queue.poll();
+        queue.add(3, 5);
+    }
+}
@@ -0,0 +1,81 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+/**
+ * @author pbo
+ */
+public class CancellationTest {
+    @After
+    public void clearInterrupt() {
+        Thread.interrupted();
+    }
+
+    @Test
+    public void testInterruptedSearchesThrow() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(47), 60, 40);
+        final Cell origin = board.getCell(1, 1);
+        final Cell destination = board.getCell(58, 38);
+
+        for (final SearchMode mode : SearchMode.values()) {
+            if (mode == SearchMode.BIDIRECTIONAL || mode == SearchMode.PARALLEL_BIDIRECTIONAL) {
+                continue;
+            }
+
+            Thread.currentThread().interrupt();
+
+            try {
+                board.findPath(origin, destination, mode);
+                fail(mode + " did not throw");
+            } catch (CancellationException e) {
+                // expected
+            }
+
+            assertThat(mode.toString(), Thread.interrupted(), is(true));
+        }
+
+        Thread.currentThread().interrupt();
+
+        try {
+            board.findPaths(origin, destination, 3);
+            fail("findPaths did not throw");
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSearchAfterCancellation() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(53), 200, 200);
+        final Cell origin = board.getCell(2, 3);
+        final Cell destination = board.getCell(190, 195);
+        final Path<Cell> expected = new IncrementalSearch(board).findPath(board.indexOf(origin), board.indexOf(destination));
+
+        // cancel the incremental repair after the weights have changed
+        board.findPath(origin, destination, SearchMode.INCREMENTAL);
+        board.setWeight(100, 100, Board.OBSTACLE_WEIGHT);
+        Thread.currentThread().interrupt();
+
+        try {
+            board.findPath(origin, destination, SearchMode.INCREMENTAL);
+            fail("INCREMENTAL did not throw");
+        } catch (CancellationException e) {
+            // expected
+        }
+
+        Thread.interrupted();
+        board.setWeight(100, 100, 0);
+
+        final Path<Cell> actual = board.findPath(origin, destination, SearchMode.INCREMENTAL);
+        GridSearchTest.assertValidPath(actual, origin, destination);
+        assertThat(actual.getTotalCost(), closeTo(expected.getTotalCost(), 1e-9));
+    }
+}
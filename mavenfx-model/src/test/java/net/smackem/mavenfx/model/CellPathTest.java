@@ -0,0 +1,69 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class CellPathTest {
+    @Test
+    public void testCopiesPath() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(3), 60, 40);
+        final Cell origin = board.getCell(2, 35);
+        final Cell destination = board.getCell(55, 4);
+        final Path<Cell> path = board.findPath(origin, destination);
+        final CellPath cellPath = CellPath.of(path);
+        final List<Cell> expected = new ArrayList<>(path.getNodes());
+        Collections.reverse(expected);
+
+        assertThat(cellPath.size(), is(path.getLength()));
+        assertThat(cellPath.getTotalCost(), is(path.getTotalCost()));
+        assertThat(cellPath.getOrigin(), is(origin));
+        assertThat(cellPath.getDestination(), is(destination));
+        assertThat(cellPath.getCells(), is(expected));
+
+        for (int position = 0; position < cellPath.size(); position++) {
+            assertThat(cellPath.getX(position), is(expected.get(position).getX()));
+            assertThat(cellPath.getY(position), is(expected.get(position).getY()));
+            assertThat(cellPath.getCell(position), is(expected.get(position)));
+        }
+    }
+
+    @Test
+    public void testReverseIteration() {
+        final Board board = new Board(10, 10);
+        final CellPath cellPath = CellPath.of(board.findPath(board.getCell(0, 0), board.getCell(3, 0)));
+        final List<Cell> reversed = new ArrayList<>();
+
+        for (final ListIterator<Cell> iterator = cellPath.getCells().listIterator(cellPath.size()); iterator.hasPrevious(); ) {
+            reversed.add(iterator.previous());
+        }
+
+        assertThat(reversed, contains(board.getCell(3, 0), board.getCell(2, 0), board.getCell(1, 0), board.getCell(0, 0)));
+    }
+
+    @Test
+    public void testEquals() {
+        final Board board = new Board(10, 10);
+        final Cell origin = board.getCell(1, 1);
+        final Cell destination = board.getCell(8, 6);
+
+        assertThat(CellPath.of(board.findPath(origin, destination)), is(CellPath.of(board.findPath(origin, destination))));
+        assertThat(CellPath.of(board.findPath(origin, destination)), not(CellPath.of(board.findPath(destination, origin))));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCellsAreImmutable() {
+        final Board board = new Board(10, 10);
+        CellPath.of(board.findPath(board.getCell(0, 0), board.getCell(3, 0))).getCells().set(0, board.getCell(5, 5));
+    }
+}
@@ -0,0 +1,121 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.nio.ReadOnlyBufferException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class CopyOnWriteWeightRasterTest {
+    private static final int SIZE = 5 << CopyOnWriteWeightRaster.CHUNK_SHIFT;
+
+    @Test
+    public void testWritesThroughUntilFirstSnapshot() {
+        final int[] weights = new int[SIZE];
+        final CopyOnWriteWeightRaster raster = new CopyOnWriteWeightRaster(new ArrayWeightRaster(weights));
+
+        raster.set(7, 3);
+
+        assertThat(weights[7], is(3));
+        assertThat(raster.getOwnedChunkCount(), is(0));
+    }
+
+    @Test
+    public void testForEachDifference() {
+        final CopyOnWriteWeightRaster raster = new CopyOnWriteWeightRaster(new ArrayWeightRaster(new int[SIZE]));
+        final CopyOnWriteWeightRaster first = raster.snapshot();
+        raster.set(9, 1);
+        raster.set(10, 2);
+        raster.set(10, 0);
+        raster.set(SIZE - 2, 3);
+        final CopyOnWriteWeightRaster second = raster.snapshot();
+        final List<Integer> differences = new ArrayList<>();
+
+        second.forEachDifference(first, differences::add);
+
+        assertThat(differences, contains(9, SIZE - 2));
+    }
+
+    @Test
+    public void testSnapshotsKeepTheirWeights() {
+        final int[] weights = new int[SIZE];
+        final CopyOnWriteWeightRaster raster = new CopyOnWriteWeightRaster(new ArrayWeightRaster(weights));
+        raster.set(7, 3);
+
+        final CopyOnWriteWeightRaster first = raster.snapshot();
+        raster.set(7, 4);
+        raster.set(SIZE - 1, 5);
+        final CopyOnWriteWeightRaster second = raster.snapshot();
+        raster.set(SIZE - 1, 6);
+
+        assertThat(weights[7], is(3));
+        assertThat(first.get(7), is(3));
+        assertThat(first.get(SIZE - 1), is(0));
+        assertThat(second.get(7), is(4));
+        assertThat(second.get(SIZE - 1), is(5));
+        assertThat(raster.get(7), is(4));
+        assertThat(raster.get(SIZE - 1), is(6));
+    }
+
+    @Test
+    public void testChangesCopyOnlyTheirChunks() {
+        final CopyOnWriteWeightRaster raster = new CopyOnWriteWeightRaster(new ArrayWeightRaster(new int[SIZE]));
+        raster.snapshot();
+
+        raster.set(1, 1);
+        raster.set(2, 1);
+        assertThat(raster.getOwnedChunkCount(), is(1));
+
+        raster.set(SIZE - 1, 1);
+        assertThat(raster.getOwnedChunkCount(), is(2));
+
+        raster.snapshot();
+        assertThat(raster.getOwnedChunkCount(), is(0));
+
+        raster.set(3, 1);
+        assertThat(raster.getOwnedChunkCount(), is(1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsReadOnly() {
+        new CopyOnWriteWeightRaster(new ArrayWeightRaster(new int[SIZE])).snapshot().set(0, 1);
+    }
+
+    @Test
+    public void testReadOnlyBaseIsCopied() {
+        final CopyOnWriteWeightRaster raster = new CopyOnWriteWeightRaster(new WeightRaster() {
+            @Override
+            public int size() {
+                return SIZE;
+            }
+
+            @Override
+            public int get(int index) {
+                return index;
+            }
+
+            @Override
+            public void set(int index, int weight) {
+                throw new ReadOnlyBufferException();
+            }
+
+            @Override
+            public boolean isReadOnly() {
+                return true;
+            }
+        });
+        raster.set(5, -1);
+
+        assertThat(raster.isReadOnly(), is(false));
+        assertThat(raster.getOwnedChunkCount(), is(1));
+        assertThat(raster.get(5), is(-1));
+        assertThat(raster.get(6), is(6));
+        assertThat(raster.get(SIZE - 1), is(SIZE - 1));
+    }
+}
@@ -0,0 +1,101 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class CostModelTest {
+    @Test
+    public void testDefaultEdgeWeights() {
+        final Board board = new Board(10, 10);
+        board.setWeight(5, 5, 3);
+        board.setWeight(6, 6, 7);
+        final int center = 4 * 10 + 4;
+
+        assertThat(board.calculateEdgeWeight(-1, center, center + 1), closeTo(1.0, 1e-9));
+        assertThat(board.calculateEdgeWeight(-1, center, center + 11), closeTo(Math.sqrt(2.0) + 0.7 + 3, 1e-9));
+        assertThat(board.calculateEdgeWeight(center, center + 11, center + 22), closeTo(Math.sqrt(2.0) + 0.7 + 7, 1e-9));
+        assertThat(board.calculateEdgeWeight(center - 1, center, center + 11), closeTo(Math.sqrt(2.0) + 0.9 + 3, 1e-9));
+    }
+
+    @Test
+    public void testPenalties() {
+        final Board board = new Board(10, 10);
+        final int center = 4 * 10 + 4;
+        board.setCostModel(new CostModel(CostModel.Connectivity.EIGHT, 2.0, 0.5));
+
+        assertThat(board.calculateEdgeWeight(center - 1, center, center + 1), closeTo(1.0, 1e-9));
+        assertThat(board.calculateEdgeWeight(center - 1, center, center + 10), closeTo(1.5, 1e-9));
+        assertThat(board.calculateEdgeWeight(center - 1, center, center + 11), closeTo(Math.sqrt(2.0) + 2.5, 1e-9));
+    }
+
+    @Test
+    public void testFourConnectivity() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(37), 80, 60);
+        final Cell origin = board.getCell(3, 4);
+        final Cell destination = board.getCell(70, 55);
+        board.setCostModel(CostModel.DEFAULT.withConnectivity(CostModel.Connectivity.FOUR));
+
+        for (final SearchMode mode : SearchMode.values()) {
+            if (mode == SearchMode.JUMP_POINT) {
+                continue;
+            }
+
+            final Path<Cell> path = board.findPath(origin, destination, mode);
+            GridSearchTest.assertValidPath(path, origin, destination);
+            assertStraight(path);
+        }
+
+        for (final Path<Cell> path : board.findPaths(origin, destination, 3)) {
+            assertStraight(path);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testJumpPointRequiresEightConnectivity() {
+        final Board board = new Board(10, 10);
+        board.setCostModel(CostModel.DEFAULT.withConnectivity(CostModel.Connectivity.FOUR));
+        board.findPath(board.getCell(0, 0), board.getCell(9, 9), SearchMode.JUMP_POINT);
+    }
+
+    @Test
+    public void testChangeDiscardsSearchState() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(41), 120, 100);
+        final Cell origin = board.getCell(2, 2);
+        final Cell destination = board.getCell(110, 90);
+
+        for (final SearchMode mode : new SearchMode[] {
+                SearchMode.INCREMENTAL, SearchMode.LANDMARK, SearchMode.FIXED_POINT, SearchMode.HIERARCHICAL }) {
+            board.setCostModel(CostModel.DEFAULT);
+            board.findPath(origin, destination, mode);
+            board.setCostModel(CostModel.DEFAULT.withDiagonalPenalty(50.0));
+
+            final Path<Cell> expected = board.findPath(origin, destination, SearchMode.ASTAR);
+            final Path<Cell> actual = board.findPath(origin, destination, mode);
+
+            GridSearchTest.assertValidPath(actual, origin, destination);
+            assertThat(mode.toString(), actual.getTotalCost(), lessThanOrEqualTo(expected.getTotalCost() * 1.1));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativePenalty() {
+        CostModel.DEFAULT.withTurnPenalty(-0.1);
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private static void assertStraight(Path<Cell> path) {
+        for (Path<Cell> p = path; p.getTail() != null; p = p.getTail()) {
+            final Cell cell = p.getHead();
+            final Cell previous = p.getTail().getHead();
+            assertThat(Math.abs(cell.getX() - previous.getX()) + Math.abs(cell.getY() - previous.getY()), is(1));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class FixedPointSearchTest {
+    @Test
+    public void testComparableToAStar() {
+        final Random random = new Random(23);
+        final Board board = GridSearchTest.createRandomBoard(random, 200, 150);
+
+        for (int i = 0; i < 20; i++) {
+            final Cell origin = board.getCell(random.nextInt(200), random.nextInt(150));
+            final Cell destination = board.getCell(random.nextInt(200), random.nextInt(150));
+            final Path<Cell> expected = board.findPath(origin, destination, SearchMode.ASTAR);
+            final Path<Cell> actual = board.findPath(origin, destination, SearchMode.FIXED_POINT);
+            final int steps = expected.getNodes().size() + actual.getNodes().size();
+
+            GridSearchTest.assertValidPath(actual, origin, destination);
+            // ties between partial paths may be broken differently
+            assertThat(actual.getTotalCost(),
+                    closeTo(expected.getTotalCost(), 1.0 + steps * FixedPointSearch.TOLERANCE));
+        }
+    }
+
+    @Test
+    public void testCostsAreExact() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(29), 60, 40);
+        final Path<Cell> path = board.findPath(board.getCell(0, 0), board.getCell(59, 39), SearchMode.FIXED_POINT);
+        double cost = 0.0;
+
+        for (Path<Cell> p = path; p.getTail() != null; p = p.getTail()) {
+            cost += Board.calculateEdgeWeight(p.getTail(), p.getHead());
+        }
+
+        assertThat(path.getTotalCost(), closeTo(cost, 1e-9));
+    }
+
+    @Test
+    public void testStatistics() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(31), 100, 100);
+        final SearchStatistics statistics = board.findPathWithStatistics(
+                board.getCell(0, 0), board.getCell(99, 99), SearchMode.FIXED_POINT).getStatistics();
+
+        assertThat(statistics.getTerminationReason(), is(SearchStatistics.TerminationReason.FOUND));
+        assertThat(statistics.getExpandedCount(), greaterThan(0L));
+        assertThat(statistics.getGeneratedCount(),
+                greaterThanOrEqualTo(statistics.getExpandedCount() + statistics.getStalePopCount()));
+    }
+}
@@ -0,0 +1,152 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class FlowFieldTest {
+    @Test
+    public void testPathsMatchIncrementalSearch() {
+        final Random random = new Random(17);
+        final Board board = GridSearchTest.createRandomBoard(random, 80, 60);
+        final Cell destination = board.getCell(61, 44);
+        final FlowField field = board.createFlowField(destination);
+
+        for (int i = 0; i < 15; i++) {
+            final Cell origin = board.getCell(random.nextInt(80), random.nextInt(60));
+            final Path<Cell> expected = board.findPath(origin, destination, SearchMode.INCREMENTAL);
+            final Path<Cell> actual = field.getPath(origin);
+
+            GridSearchTest.assertValidPath(actual, origin, destination);
+            assertThat(actual.getTotalCost(), closeTo(expected.getTotalCost(), 1e-6));
+            assertThat(field.getCost(origin), closeTo(actual.getTotalCost(), 1e-6));
+
+            if (origin.equals(destination) == false) {
+                assertThat(field.getNextCell(origin), is(secondCell(actual)));
+            }
+        }
+
+        assertThat(field.getNextCell(destination), nullValue());
+        assertThat(field.getPath(destination).getTotalCost(), is(0.0));
+    }
+
+    @Test
+    public void testRepairedFieldMatchesFreshField() {
+        final Random random = new Random(23);
+        final Board board = GridSearchTest.createRandomBoard(random, 60, 45);
+        final Cell destination = board.getCell(12, 30);
+        final FlowField field = board.createFlowField(destination);
+
+        for (int round = 0; round < 20; round++) {
+            // paint a short stroke of obstacles or erase one, sometimes across the destination
+            final int col = round % 5 == 4 ? 10 : random.nextInt(60);
+            final int row = round % 5 == 4 ? 30 : random.nextInt(45);
+            final int weight = round % 3 == 2 ? 0 : Board.OBSTACLE_WEIGHT;
+
+            for (int i = 0; i < 6 && col + i < 60; i++) {
+                board.setWeight(col + i, row, weight);
+            }
+
+            final FlowField expected = board.createFlowField(destination);
+
+            for (int y = 0; y < 45; y++) {
+                for (int x = 0; x < 60; x++) {
+                    final Cell cell = board.getCell(x, y);
+                    assertThat(cell + " in round " + round, field.getCost(cell),
+                            closeTo(expected.getCost(cell), 1e-6));
+                }
+            }
+
+            final Cell origin = board.getCell(random.nextInt(60), random.nextInt(45));
+            GridSearchTest.assertValidPath(field.getPath(origin), origin, destination);
+        }
+
+        assertThat(field.getBuildCount(), is(1));
+    }
+
+    @Test
+    public void testRepairVisitsFewerStates() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(5), 120, 120);
+        final FlowField field = board.createFlowField(board.getCell(100, 100));
+        final long initialCount = field.getStatistics().getExpandedCount();
+
+        for (int col = 10; col < 15; col++) {
+            board.setWeight(col, 20, Board.OBSTACLE_WEIGHT);
+        }
+
+        field.update();
+
+        assertThat(field.getStatistics().getExpandedCount(), lessThan(initialCount / 4));
+        assertThat(field.getBuildCount(), is(1));
+    }
+
+    @Test
+    public void testRegion() {
+        final Random random = new Random(29);
+        final Board board = GridSearchTest.createRandomBoard(random, 80, 60);
+        final Cell destination = board.getCell(30, 20);
+        final FlowField full = board.createFlowField(destination);
+        final FlowField region = board.createFlowField(destination, 20, 10, 49, 39);
+
+        assertThat(region.contains(board.getCell(20, 39)), is(true));
+        assertThat(region.contains(board.getCell(50, 20)), is(false));
+        assertThat(region.getPath(board.getCell(50, 20)), nullValue());
+        assertThat(region.getCost(board.getCell(19, 20)), is(Double.POSITIVE_INFINITY));
+
+        for (int i = 0; i < 10; i++) {
+            final Cell origin = board.getCell(20 + random.nextInt(30), 10 + random.nextInt(30));
+            final Path<Cell> path = region.getPath(origin);
+
+            if (path == null) {
+                continue;
+            }
+
+            GridSearchTest.assertValidPath(path, origin, destination);
+            assertThat(path.getTotalCost(), greaterThanOrEqualTo(full.getCost(origin) - 1e-6));
+
+            for (final Cell cell : path.getNodes()) {
+                assertThat(region.contains(cell), is(true));
+            }
+        }
+    }
+
+    @Test
+    public void testCostModelChangeRecomputesField() {
+        final Random random = new Random(37);
+        final Board board = GridSearchTest.createRandomBoard(random, 50, 40);
+        final Cell destination = board.getCell(45, 5);
+        final FlowField field = board.createFlowField(destination);
+
+        board.setCostModel(CostModel.DEFAULT.withConnectivity(CostModel.Connectivity.FOUR).withTurnPenalty(1.5));
+
+        final Cell origin = board.getCell(3, 35);
+        final Path<Cell> expected = board.findPath(origin, destination, SearchMode.INCREMENTAL);
+
+        assertThat(field.getPath(origin).getTotalCost(), closeTo(expected.getTotalCost(), 1e-6));
+        assertThat(field.getBuildCount(), is(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDestinationOutsideRegion() {
+        final Board board = new Board(20, 20);
+        board.createFlowField(board.getCell(15, 15), 0, 0, 9, 9);
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private static Cell secondCell(Path<Cell> path) {
+        Path<Cell> p = path;
+
+        while (p.getTail().getTail() != null) {
+            p = p.getTail();
+        }
+
+        return p.getHead();
+    }
+}
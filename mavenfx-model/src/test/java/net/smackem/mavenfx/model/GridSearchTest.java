@@ -0,0 +1,94 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class GridSearchTest {
+    @Test
+    public void testSameCostAsGenericSearch() {
+        final Random random = new Random(42);
+        final Board board = createRandomBoard(random, 40, 30);
+
+        for (int i = 0; i < 20; i++) {
+            final Cell origin = board.getCell(random.nextInt(40), random.nextInt(30));
+            final Cell destination = board.getCell(random.nextInt(40), random.nextInt(30));
+
+            final Path<Cell> expected = Path.findPath(origin, destination,
+                    Board::calculateEdgeWeight,
+                    cell -> Board.calculateDistance(cell, destination),
+                    board::collectNeighbours);
+            final Path<Cell> actual = board.findPath(origin, destination);
+
+            // ties between partial paths may be broken differently
+            assertThat(actual.getTotalCost(), closeTo(expected.getTotalCost(), 1.0));
+            assertValidPath(actual, origin, destination);
+        }
+    }
+
+    @Test
+    public void testOriginIsDestination() {
+        final Board board = new Board(5, 5);
+        final Cell cell = board.getCell(2, 2);
+        final Path<Cell> path = board.findPath(cell, cell);
+
+        assertThat(path.getNodes(), contains(cell));
+        assertThat(path.getTotalCost(), is(0.0));
+    }
+
+    @Test
+    public void testFindPathsDoNotShareCells() {
+        final Board board = new Board(20, 20);
+        final Cell origin = board.getCell(0, 10);
+        final Cell destination = board.getCell(19, 10);
+        final Object[] paths = board.findPaths(origin, destination, 3).toArray();
+
+        assertThat(paths.length, is(3));
+
+        @SuppressWarnings("unchecked")
+        final Path<Cell> first = (Path<Cell>) paths[0];
+        @SuppressWarnings("unchecked")
+        final Path<Cell> second = (Path<Cell>) paths[1];
+
+        for (final Cell cell : second.getNodes()) {
+            if (cell.equals(origin) == false && cell.equals(destination) == false) {
+                assertThat(first.getNodes(), not(hasItem(cell)));
+            }
+        }
+    }
+
+    static void assertValidPath(Path<Cell> path, Cell origin, Cell destination) {
+        assertThat(path.getHead(), is(destination));
+
+        Path<Cell> p = path;
+
+        while (p.getTail() != null) {
+            final Cell cell = p.getHead();
+            final Cell previous = p.getTail().getHead();
+
+            assertThat(Math.abs(cell.getX() - previous.getX()), lessThanOrEqualTo(1));
+            assertThat(Math.abs(cell.getY() - previous.getY()), lessThanOrEqualTo(1));
+            assertThat(p.getTotalCost(),
+                    closeTo(p.getTail().getTotalCost() + Board.calculateEdgeWeight(p.getTail(), cell), 1e-6));
+            p = p.getTail();
+        }
+
+        assertThat(p.getHead(), is(origin));
+    }
+
+    static Board createRandomBoard(Random random, int width, int height) {
+        final int[] buffer = new int[width * height];
+
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = random.nextInt(10) == 0 ? 1000 : random.nextInt(4) == 0 ? random.nextInt(50) : 0;
+        }
+
+        return Board.fromBuffer(buffer, width, height, value -> value);
+    }
+}
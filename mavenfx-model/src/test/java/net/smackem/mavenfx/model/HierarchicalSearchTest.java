@@ -0,0 +1,74 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class HierarchicalSearchTest {
+    @Test
+    public void testComparableToAStar() {
+        final Random random = new Random(5);
+        final Board board = GridSearchTest.createRandomBoard(random, 200, 150);
+
+        for (int i = 0; i < 10; i++) {
+            final Cell origin = board.getCell(random.nextInt(200), random.nextInt(150));
+            final Cell destination = board.getCell(random.nextInt(200), random.nextInt(150));
+            final Path<Cell> expected = board.findPath(origin, destination, SearchMode.ASTAR);
+            final Path<Cell> actual = board.findPath(origin, destination, SearchMode.HIERARCHICAL);
+
+            GridSearchTest.assertValidPath(actual, origin, destination);
+            assertThat(actual.getTotalCost(), lessThanOrEqualTo(expected.getTotalCost() * 1.1));
+        }
+    }
+
+    @Test
+    public void testEditsRebuildOnlyAffectedClusters() {
+        final Board board = new Board(160, 160);
+        final HierarchicalSearch search = new HierarchicalSearch(board, new GridSearch(board));
+        final int origin = 0;
+        final int destination = 160 * 160 - 1;
+
+        board.addWeightListener(search::invalidate);
+        search.findPath(origin, destination);
+        assertThat(search.getRebuildCount(), is(25));
+
+        // inside a cluster
+        board.setWeight(40, 40, 500);
+        search.findPath(origin, destination);
+        assertThat(search.getRebuildCount(), is(26));
+
+        // on the border between two clusters
+        board.setWeight(63, 40, 500);
+        search.findPath(origin, destination);
+        assertThat(search.getRebuildCount(), is(28));
+
+        // unchanged weight
+        board.setWeight(63, 40, 500);
+        search.findPath(origin, destination);
+        assertThat(search.getRebuildCount(), is(28));
+    }
+
+    @Test
+    public void testAvoidsPaintedWall() {
+        final Board board = new Board(160, 160);
+        final Cell origin = board.getCell(0, 80);
+        final Cell destination = board.getCell(159, 80);
+
+        board.findPath(origin, destination, SearchMode.HIERARCHICAL);
+
+        for (int row = 0; row < 150; row++) {
+            board.setWeight(80, row, Board.OBSTACLE_WEIGHT);
+        }
+
+        final Path<Cell> path = board.findPath(origin, destination, SearchMode.HIERARCHICAL);
+
+        GridSearchTest.assertValidPath(path, origin, destination);
+        assertThat(path.getTotalCost(), lessThan((double) Board.OBSTACLE_WEIGHT));
+    }
+}
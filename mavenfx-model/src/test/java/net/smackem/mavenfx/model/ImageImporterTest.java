@@ -0,0 +1,110 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class ImageImporterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCalculateWeight() {
+        assertThat(ImageImporter.calculateWeight(0, 0, 0), is(Board.OBSTACLE_WEIGHT));
+        assertThat(ImageImporter.calculateWeight(255, 255, 255), is(0));
+        assertThat(ImageImporter.calculateWeight(0, 255, 0), is(0));
+        assertThat(ImageImporter.calculateWeight(51, 0, 0), is(800));
+    }
+
+    @Test
+    public void testBoxFilter() throws IOException {
+        final BufferedImage image = new BufferedImage(10, 5, BufferedImage.TYPE_INT_RGB);
+
+        // left half white, right half black; a quarter of the middle block is white
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 5; x++) {
+                image.setRGB(x, y, 0xffffff);
+            }
+        }
+
+        final Board board = new ImageImporter(4).importBoard(write(image, "png"));
+
+        assertThat(board.getWidth(), is(3));
+        assertThat(board.getHeight(), is(2));
+        assertThat(board.getWeight(0, 0), is(0));
+        assertThat(board.getWeight(1, 0), is(ImageImporter.calculateWeight(63, 63, 63)));
+        assertThat(board.getWeight(2, 0), is(Board.OBSTACLE_WEIGHT));
+        assertThat(board.getWeight(0, 1), is(0));
+        assertThat(board.getWeight(2, 1), is(Board.OBSTACLE_WEIGHT));
+    }
+
+    @Test
+    public void testTransparentIsWhite() throws IOException {
+        final BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+        final Board board = new ImageImporter(2).importBoard(write(image, "png"));
+
+        assertThat(board.getWeight(0, 0), is(0));
+        assertThat(board.getWeight(1, 1), is(0));
+    }
+
+    @Test
+    public void testFormatsAgree() throws IOException {
+        final Random random = new Random(43);
+        final BufferedImage image = new BufferedImage(301, 203, BufferedImage.TYPE_INT_RGB);
+
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+
+        final ImageImporter importer = new ImageImporter(3);
+        final Board fromPng = importer.importBoard(write(image, "png"));
+        final Board fromTiff = importer.importBoard(write(image, "tif"));
+        final Board fromBmp = importer.importBoard(write(image, "bmp"));
+
+        assertThat(fromPng.getWidth(), is(101));
+        assertThat(fromPng.getHeight(), is(68));
+
+        for (int row = 0; row < fromPng.getHeight(); row++) {
+            for (int col = 0; col < fromPng.getWidth(); col++) {
+                assertThat(fromTiff.getWeight(col, row), is(fromPng.getWeight(col, row)));
+                assertThat(fromBmp.getWeight(col, row), is(fromPng.getWeight(col, row)));
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAnImage() throws IOException {
+        final File file = this.folder.newFile("board.txt");
+        Files.write(file.toPath(), new byte[] { 1, 2, 3 });
+
+        new ImageImporter(ImageImporter.DEFAULT_SCALE).importBoard(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidScale() {
+        new ImageImporter(0);
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private File write(BufferedImage image, String format) throws IOException {
+        final File file = this.folder.newFile("image." + format);
+        assertThat(ImageIO.write(image, format, file), is(true));
+        return file;
+    }
+}
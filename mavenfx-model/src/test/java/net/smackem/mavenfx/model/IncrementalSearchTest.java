@@ -0,0 +1,83 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class IncrementalSearchTest {
+    @Test
+    public void testNotMoreExpensiveThanAStar() {
+        final Random random = new Random(31);
+        final Board board = GridSearchTest.createRandomBoard(random, 90, 70);
+
+        for (int i = 0; i < 10; i++) {
+            final Cell origin = board.getCell(random.nextInt(90), random.nextInt(70));
+            final Cell destination = board.getCell(random.nextInt(90), random.nextInt(70));
+            final Path<Cell> expected = board.findPath(origin, destination, SearchMode.ASTAR);
+            final Path<Cell> actual = board.findPath(origin, destination, SearchMode.INCREMENTAL);
+
+            GridSearchTest.assertValidPath(actual, origin, destination);
+            assertThat(actual.getTotalCost(), lessThanOrEqualTo(expected.getTotalCost() + 1e-9));
+            assertThat(actual.getTotalCost(), greaterThan(expected.getTotalCost() - 1.0));
+        }
+    }
+
+    @Test
+    public void testRepairedPathsMatchFreshSearch() {
+        final Random random = new Random(13);
+        final Board board = GridSearchTest.createRandomBoard(random, 70, 50);
+        final IncrementalSearch search = new IncrementalSearch(board);
+        final int origin = 3 * 70 + 2;
+        final int destination = 45 * 70 + 66;
+
+        board.addWeightListener(search::invalidate);
+        search.findPath(origin, destination);
+
+        for (int round = 0; round < 30; round++) {
+            // paint a short stroke of obstacles or erase one
+            final int col = random.nextInt(70);
+            final int row = random.nextInt(50);
+            final int weight = round % 3 == 2 ? 0 : Board.OBSTACLE_WEIGHT;
+
+            for (int i = 0; i < 6 && col + i < 70; i++) {
+                board.setWeight(col + i, row, weight);
+            }
+
+            final Path<Cell> actual = search.findPath(origin, destination);
+            final Path<Cell> expected = new IncrementalSearch(board).findPath(origin, destination);
+
+            GridSearchTest.assertValidPath(actual, board.getCell(origin), board.getCell(destination));
+            assertThat(actual.getTotalCost(), closeTo(expected.getTotalCost(), 1e-9));
+        }
+    }
+
+    @Test
+    public void testRepairExpandsFewerStates() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(41), 120, 120);
+        final IncrementalSearch search = new IncrementalSearch(board);
+        final int origin = 10 * 120 + 5;
+        final int destination = 110 * 120 + 114;
+
+        board.addWeightListener(search::invalidate);
+        search.findPath(origin, destination);
+        final int initialCount = search.getExpandedCount();
+
+        for (int col = 50; col < 55; col++) {
+            board.setWeight(col, 60, Board.OBSTACLE_WEIGHT);
+        }
+
+        final Path<Cell> path = search.findPath(origin, destination);
+        final IncrementalSearch fresh = new IncrementalSearch(board);
+        final Path<Cell> expected = fresh.findPath(origin, destination);
+
+        GridSearchTest.assertValidPath(path, board.getCell(origin), board.getCell(destination));
+        assertThat(path.getTotalCost(), closeTo(expected.getTotalCost(), 1e-9));
+        assertThat(search.getExpandedCount() - initialCount, lessThan(fresh.getExpandedCount() / 2));
+    }
+}
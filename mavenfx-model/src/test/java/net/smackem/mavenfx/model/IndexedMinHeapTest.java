@@ -0,0 +1,76 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class IndexedMinHeapTest {
+    @Test
+    public void testPollOrder() {
+        final IndexedMinHeap heap = new IndexedMinHeap(10);
+        heap.put(3, 3.0);
+        heap.put(1, 1.0);
+        heap.put(7, 7.0);
+        heap.put(5, 5.0);
+
+        assertThat(heap.poll(), is(1));
+        assertThat(heap.poll(), is(3));
+        assertThat(heap.poll(), is(5));
+        assertThat(heap.poll(), is(7));
+        assertThat(heap.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testChangeKey() {
+        final IndexedMinHeap heap = new IndexedMinHeap(10);
+        heap.put(1, 10.0);
+        heap.put(2, 20.0);
+        heap.put(3, 30.0);
+        heap.put(3, 5.0);
+        heap.put(1, 25.0);
+
+        assertThat(heap.size(), is(3));
+        assertThat(heap.getPeakSize(), is(3));
+        assertThat(heap.poll(), is(3));
+        assertThat(heap.poll(), is(2));
+        assertThat(heap.poll(), is(1));
+    }
+
+    @Test
+    public void testRemoveAndGrow() {
+        final IndexedMinHeap heap = new IndexedMinHeap(4);
+        final Random random = new Random(7);
+        final List<Double> expected = new ArrayList<>();
+
+        for (int id = 0; id < 500; id++) {
+            final double key = random.nextDouble();
+            heap.put(id, key);
+
+            if (id % 3 != 0) {
+                expected.add(key);
+            }
+        }
+
+        for (int id = 0; id < 500; id += 3) {
+            heap.remove(id);
+            assertThat(heap.contains(id), is(false));
+        }
+
+        expected.sort(null);
+
+        for (final double key : expected) {
+            assertThat(heap.peekKey(), is(key));
+            heap.poll();
+        }
+
+        assertThat(heap.isEmpty(), is(true));
+    }
+}
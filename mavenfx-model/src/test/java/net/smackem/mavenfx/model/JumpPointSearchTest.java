@@ -0,0 +1,96 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class JumpPointSearchTest {
+    @Test
+    public void testComparableToAStar() {
+        final Random random = new Random(11);
+
+        for (int b = 0; b < 10; b++) {
+            final boolean mixed = b % 2 == 1;
+            final int[] buffer = new int[60 * 50];
+
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = random.nextInt(6) == 0 ? Board.OBSTACLE_WEIGHT
+                        : mixed && random.nextInt(8) == 0 ? random.nextInt(30) : 0;
+            }
+
+            final Board board = Board.fromBuffer(buffer, 60, 50, value -> value);
+
+            for (int i = 0; i < 30; i++) {
+                final Cell origin = board.getCell(random.nextInt(60), random.nextInt(50));
+                final Cell destination = board.getCell(random.nextInt(60), random.nextInt(50));
+
+                if (origin.getWeight() >= Board.OBSTACLE_WEIGHT || destination.getWeight() >= Board.OBSTACLE_WEIGHT) {
+                    continue;
+                }
+
+                final Path<Cell> expected = Path.findPath(origin, destination,
+                        Board::calculateEdgeWeight,
+                        cell -> Board.calculateDistance(cell, destination),
+                        cell -> passableNeighbours(board, cell));
+                final Path<Cell> actual = board.findPath(origin, destination, SearchMode.JUMP_POINT);
+
+                if (expected == null) {
+                    assertThat(actual, nullValue());
+                    continue;
+                }
+
+                GridSearchTest.assertValidPath(actual, origin, destination);
+                assertThat(actual.getTotalCost(), lessThanOrEqualTo(expected.getTotalCost() * 1.15));
+
+                for (final Cell cell : actual.getNodes()) {
+                    assertThat(cell.getWeight(), lessThan(Board.OBSTACLE_WEIGHT));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWall() {
+        final Board board = new Board(10, 10);
+
+        for (int row = 0; row < 9; row++) {
+            board.setWeight(5, row, Board.OBSTACLE_WEIGHT);
+        }
+
+        final Path<Cell> path = board.findPath(board.getCell(0, 0), board.getCell(9, 0), SearchMode.JUMP_POINT);
+
+        GridSearchTest.assertValidPath(path, board.getCell(0, 0), board.getCell(9, 0));
+        assertThat(path.getNodes(), hasItem(board.getCell(5, 9)));
+    }
+
+    @Test
+    public void testUnreachable() {
+        final Board board = new Board(10, 10);
+
+        for (int row = 0; row < 10; row++) {
+            board.setWeight(5, row, Board.OBSTACLE_WEIGHT);
+        }
+
+        assertThat(board.findPath(board.getCell(0, 0), board.getCell(9, 0), SearchMode.JUMP_POINT), nullValue());
+    }
+
+    private static Collection<Cell> passableNeighbours(Board board, Cell cell) {
+        final Collection<Cell> neighbours = new ArrayList<>();
+
+        for (final Cell neighbour : board.collectNeighbours(cell)) {
+            if (neighbour.getWeight() < Board.OBSTACLE_WEIGHT) {
+                neighbours.add(neighbour);
+            }
+        }
+
+        return neighbours;
+    }
+}
@@ -0,0 +1,71 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class LandmarkSearchTest {
+    @Test
+    public void testComparableToAStar() {
+        final Random random = new Random(17);
+        final Board board = GridSearchTest.createRandomBoard(random, 200, 150);
+
+        for (int i = 0; i < 10; i++) {
+            final Cell origin = board.getCell(random.nextInt(200), random.nextInt(150));
+            final Cell destination = board.getCell(random.nextInt(200), random.nextInt(150));
+            final SearchResult expected = board.findPathWithStatistics(origin, destination, SearchMode.ASTAR);
+            final SearchResult actual = board.findPathWithStatistics(origin, destination, SearchMode.LANDMARK);
+
+            GridSearchTest.assertValidPath(actual.getPath(), origin, destination);
+            assertThat(actual.getPath().getTotalCost(), closeTo(expected.getPath().getTotalCost(), 1.0));
+            assertThat(actual.getStatistics().getExpandedCount(),
+                    lessThanOrEqualTo(expected.getStatistics().getExpandedCount()));
+        }
+    }
+
+    @Test
+    public void testEstimateIsLowerBound() {
+        final Random random = new Random(19);
+        final Board board = GridSearchTest.createRandomBoard(random, 80, 60);
+        final LandmarkSearch search = new LandmarkSearch(board, new GridSearch(board));
+
+        for (int i = 0; i < 20; i++) {
+            final int origin = random.nextInt(80 * 60);
+            final int destination = random.nextInt(80 * 60);
+            final Path<Cell> exact = new IncrementalSearch(board).findPath(origin, destination);
+
+            assertThat(search.estimate(origin, destination), lessThanOrEqualTo(exact.getTotalCost() + 1e-9));
+        }
+    }
+
+    @Test
+    public void testEditsRebuildTablesLazily() {
+        final Board board = new Board(100, 100);
+        final LandmarkSearch search = new LandmarkSearch(board, new GridSearch(board));
+        final int origin = 50 * 100;
+        final int destination = 50 * 100 + 99;
+
+        board.addWeightListener(search::invalidate);
+        search.findPath(origin, destination);
+        search.findPath(destination, origin);
+        assertThat(search.getBuildCount(), is(1));
+
+        for (int row = 0; row < 95; row++) {
+            board.setWeight(50, row, Board.OBSTACLE_WEIGHT);
+        }
+
+        assertThat(search.getBuildCount(), is(1));
+
+        final Path<Cell> path = search.findPath(origin, destination);
+
+        assertThat(search.getBuildCount(), is(2));
+        GridSearchTest.assertValidPath(path, board.getCell(origin), board.getCell(destination));
+        assertThat(path.getTotalCost(), lessThan((double) Board.OBSTACLE_WEIGHT));
+    }
+}
@@ -0,0 +1,120 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class PathCacheTest {
+    @Test
+    public void testRepeatedQueryIsHit() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(3), 60, 40);
+        final Cell origin = board.getCell(5, 5);
+        final Cell destination = board.getCell(50, 30);
+        final PathCache cache = board.getPathCache();
+
+        final Collection<Path<Cell>> first = board.findPaths(origin, destination, 3);
+        final Collection<Path<Cell>> second = board.findPaths(origin, destination, 3);
+
+        assertThat(cache.getMissCount(), is(1L));
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(new ArrayList<>(second), equalTo(new ArrayList<>(first)));
+
+        // a different path count is a different query
+        board.findPaths(origin, destination, 2);
+        assertThat(cache.getMissCount(), is(2L));
+    }
+
+    @Test
+    public void testEditsInvalidateOnlyAffectedResults() {
+        final Board board = new Board(100, 100);
+        final Cell origin = board.getCell(2, 2);
+        final Cell destination = board.getCell(20, 10);
+        final Path<Cell> path = board.findPaths(origin, destination, 1).iterator().next();
+        final PathCache cache = board.getPathCache();
+
+        // far away from the explored area
+        board.setWeight(90, 90, 50);
+        board.findPaths(origin, destination, 1);
+        assertThat(cache.getHitCount(), is(1L));
+
+        // on the path
+        final Cell cell = new ArrayList<>(path.getNodes()).get(5);
+        board.setWeight(cell.getX(), cell.getY(), 50);
+        board.findPaths(origin, destination, 1);
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(2L));
+    }
+
+    @Test
+    public void testCachedResultsMatchFreshSearch() {
+        final Random random = new Random(17);
+        final Board board = GridSearchTest.createRandomBoard(random, 80, 60);
+        final List<Cell[]> queries = new ArrayList<>();
+
+        for (int i = 0; i < 6; i++) {
+            queries.add(new Cell[] {
+                    board.getCell(random.nextInt(80), random.nextInt(60)),
+                    board.getCell(random.nextInt(80), random.nextInt(60)) });
+        }
+
+        for (int round = 0; round < 20; round++) {
+            board.setWeight(random.nextInt(80), random.nextInt(60), random.nextInt(20));
+
+            for (final Cell[] query : queries) {
+                final Board copy = copyOf(board);
+                final List<Path<Cell>> expected = new ArrayList<>(copy.findPaths(
+                        copy.getCell(query[0].getX(), query[0].getY()),
+                        copy.getCell(query[1].getX(), query[1].getY()), 3));
+                final List<Path<Cell>> actual = new ArrayList<>(board.findPaths(query[0], query[1], 3));
+
+                assertThat(actual, hasSize(expected.size()));
+
+                for (int i = 0; i < expected.size(); i++) {
+                    assertThat(actual.get(i).getTotalCost(), is(expected.get(i).getTotalCost()));
+                }
+            }
+        }
+
+        assertThat(board.getPathCache().getHitCount(), greaterThan(0L));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        final Board board = new Board(Board.PATH_CACHE_CAPACITY + 1, 2);
+        final PathCache cache = board.getPathCache();
+
+        for (int col = 0; col <= Board.PATH_CACHE_CAPACITY; col++) {
+            board.findPaths(board.getCell(0, 0), board.getCell(col, 1), 1);
+        }
+
+        assertThat(cache.size(), is(Board.PATH_CACHE_CAPACITY));
+
+        // the first query has been evicted
+        board.findPaths(board.getCell(0, 0), board.getCell(0, 1), 1);
+        assertThat(cache.getHitCount(), is(0L));
+
+        board.findPaths(board.getCell(0, 0), board.getCell(Board.PATH_CACHE_CAPACITY, 1), 1);
+        assertThat(cache.getHitCount(), is(1L));
+    }
+
+    private static Board copyOf(Board board) {
+        final int[] buffer = new int[board.getWidth() * board.getHeight()];
+
+        for (int row = 0; row < board.getHeight(); row++) {
+            for (int col = 0; col < board.getWidth(); col++) {
+                buffer[row * board.getWidth() + col] = board.getWeight(col, row);
+            }
+        }
+
+        return Board.fromBuffer(buffer, board.getWidth(), board.getHeight(), value -> value);
+    }
+}
@@ -24,4 +24,21 @@ public class PathTest {
 
         assertThat(Arrays.asList(102, 101, 100), contains(end.getNodes().toArray()));
     }
+
+    @Test
+    public void testGetNodesIsView() {
+        final Path<Integer> begin = new Path<>(100);
+        final Path<Integer> end = begin.addStep(101, 1).addStep(102, 2);
+
+        assertThat(begin.getLength(), is(1));
+        assertThat(end.getLength(), is(3));
+        assertThat(end.getNodes().size(), is(3));
+        assertThat(end.getNodes(), contains(102, 101, 100));
+        assertThat(end.getNodes(), hasItem(101));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetNodesIsImmutable() {
+        new Path<>(100).getNodes().clear();
+    }
 }
@@ -0,0 +1,80 @@
+package net.smackem.mavenfx.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class SearchStatisticsTest {
+    @Test
+    public void testAllModes() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(29), 100, 80);
+        final Cell origin = board.getCell(3, 4);
+        final Cell destination = board.getCell(95, 70);
+
+        for (final SearchMode mode : SearchMode.values()) {
+            final SearchResult result = board.findPathWithStatistics(origin, destination, mode);
+            final SearchStatistics statistics = result.getStatistics();
+
+            assertThat(mode.toString(), result.getPaths(), hasSize(1));
+            assertThat(mode.toString(), statistics.getTerminationReason(), is(SearchStatistics.TerminationReason.FOUND));
+            assertThat(mode.toString(), statistics.getExpandedCount(), greaterThan(0L));
+            assertThat(mode.toString(), statistics.getGeneratedCount(), greaterThanOrEqualTo(statistics.getExpandedCount()));
+            assertThat(mode.toString(), statistics.getPeakOpenSize(), greaterThan(0));
+            assertThat(mode.toString(), statistics.getWallTimeNanos(), greaterThan(0L));
+        }
+    }
+
+    @Test
+    public void testExhausted() {
+        final Board board = new Board(10, 10);
+
+        for (int row = 0; row < 10; row++) {
+            board.setWeight(5, row, Board.OBSTACLE_WEIGHT);
+        }
+
+        final SearchResult result = board.findPathWithStatistics(
+                board.getCell(0, 0), board.getCell(9, 0), SearchMode.JUMP_POINT);
+
+        assertThat(result.getPath(), nullValue());
+        assertThat(result.getPaths(), empty());
+        assertThat(result.getStatistics().getTerminationReason(), is(SearchStatistics.TerminationReason.EXHAUSTED));
+        assertThat(result.getStatistics().getExpandedCount(), greaterThan(0L));
+    }
+
+    @Test
+    public void testFindPathsTotals() {
+        final Board board = GridSearchTest.createRandomBoard(new Random(37), 60, 60);
+        final Cell origin = board.getCell(5, 5);
+        final Cell destination = board.getCell(50, 55);
+
+        final SearchResult result = board.findPathsWithStatistics(origin, destination, 3);
+        final SearchResult single = board.findPathWithStatistics(origin, destination, SearchMode.ASTAR);
+
+        assertThat(result.getPaths(), hasSize(3));
+        assertThat(result.getStatistics().getTerminationReason(), is(SearchStatistics.TerminationReason.FOUND));
+        assertThat(result.getStatistics().getExpandedCount(),
+                greaterThan(single.getStatistics().getExpandedCount()));
+
+        final SearchResult cached = board.findPathsWithStatistics(origin, destination, 3);
+
+        assertThat(cached.getPaths(), equalTo(result.getPaths()));
+        assertThat(cached.getStatistics().getTerminationReason(), is(SearchStatistics.TerminationReason.CACHED));
+        assertThat(cached.getStatistics().getExpandedCount(), is(0L));
+    }
+
+    @Test
+    public void testFindPathsExhausted() {
+        final Board board = new Board(10, 10);
+        final SearchResult result = board.findPathsWithStatistics(board.getCell(0, 0), board.getCell(9, 9), 5);
+
+        // the origin has only three neighbours
+        assertThat(result.getPaths(), hasSize(3));
+        assertThat(result.getStatistics().getTerminationReason(), is(SearchStatistics.TerminationReason.EXHAUSTED));
+    }
+}
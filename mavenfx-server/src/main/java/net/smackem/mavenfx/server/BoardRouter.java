@@ -0,0 +1,185 @@
+package net.smackem.mavenfx.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import net.smackem.mavenfx.model.Board;
+import net.smackem.mavenfx.model.Cell;
+import net.smackem.mavenfx.model.Path;
+import net.smackem.mavenfx.model.RouteQuery;
+import net.smackem.mavenfx.model.SearchMode;
+
+/**
+ * Answers the route requests for one board served by a {@link RouteServer}.
+ * <p>
+ * Requests for a single path with {@link SearchMode#ASTAR} are collected
+ * for the batch window and then solved together with
+ * {@link Board#findPathsAsync(List, ForkJoinPool)}, which shares one
+ * search between the queries with the same origin and spreads the others
+ * across the pool. A batch is started early when it reaches the maximum
+ * batch size. All other requests keep search state in the board and are
+ * therefore solved one at a time on a thread of the board's own, so that
+ * they neither block the pool nor delay the batches. The batches may run
+ * meanwhile, since they keep their search state per pool thread. The
+ * results of the board's thread are handed back to the pool.
+ *
+ * @author pbo
+ */
+final class BoardRouter {
+    private final Board board;
+    private final ForkJoinPool pool;
+    private final ScheduledExecutorService scheduler;
+    private final ServerMetrics metrics;
+    private final long batchWindowMillis;
+    private final int maxBatchSize;
+    private final ExecutorService searchExecutor;
+    private final Object batchMonitor = new Object();
+    private List<PendingQuery> batch = new ArrayList<>();
+    private ScheduledFuture<?> scheduledBatch;
+
+    private static final class PendingQuery {
+        final RouteQuery query;
+        final CompletableFuture<Path<Cell>> future = new CompletableFuture<>();
+
+        PendingQuery(RouteQuery query) {
+            this.query = query;
+        }
+    }
+
+    BoardRouter(String name, Board board, ForkJoinPool pool, ScheduledExecutorService scheduler,
+                ServerMetrics metrics, ServerSettings settings) {
+        Objects.requireNonNull(name);
+        this.board = Objects.requireNonNull(board);
+        this.pool = Objects.requireNonNull(pool);
+        this.scheduler = Objects.requireNonNull(scheduler);
+        this.metrics = Objects.requireNonNull(metrics);
+        this.batchWindowMillis = settings.getBatchWindowMillis();
+        this.maxBatchSize = settings.getMaxBatchSize();
+        this.searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "board-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    Board getBoard() {
+        return this.board;
+    }
+
+    /**
+     * Starts finding the cheapest path from {@code origin} to
+     * {@code destination}.
+     *
+     * @return a future completed with the path or with {@code null} if there
+     *      is no path.
+     */
+    CompletableFuture<Path<Cell>> findPath(Cell origin, Cell destination, SearchMode mode) {
+        Objects.requireNonNull(mode);
+
+        if (mode != SearchMode.ASTAR) {
+            return runSerialized(() -> this.board.findPath(origin, destination, mode));
+        }
+
+        final PendingQuery pending = new PendingQuery(new RouteQuery(origin, destination));
+        List<PendingQuery> fullBatch = null;
+
+        synchronized (this.batchMonitor) {
+            this.batch.add(pending);
+
+            if (this.batch.size() >= this.maxBatchSize) {
+                fullBatch = takeBatch();
+            } else if (this.batch.size() == 1) {
+                this.scheduledBatch = this.scheduler.schedule(
+                        this::startScheduledBatch, this.batchWindowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (fullBatch != null) {
+            startBatch(fullBatch);
+        }
+
+        return pending.future;
+    }
+
+    /**
+     * Starts finding up to {@code maxPathCount} alternative paths from
+     * {@code origin} to {@code destination}.
+     *
+     * @see Board#findPaths(Cell, Cell, int)
+     */
+    CompletableFuture<List<Path<Cell>>> findPaths(Cell origin, Cell destination, int maxPathCount) {
+        return runSerialized(() -> new ArrayList<>(this.board.findPaths(origin, destination, maxPathCount)));
+    }
+
+    /**
+     * Stops the thread solving the requests that keep search state.
+     */
+    void shutdown() {
+        this.searchExecutor.shutdownNow();
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private <T> CompletableFuture<T> runSerialized(Supplier<T> search) {
+        return CompletableFuture.supplyAsync(search, this.searchExecutor)
+                .thenApplyAsync(result -> result, this.pool);
+    }
+
+    private void startScheduledBatch() {
+        final List<PendingQuery> queries;
+
+        synchronized (this.batchMonitor) {
+            queries = takeBatch();
+        }
+
+        startBatch(queries);
+    }
+
+    /**
+     * Must be called holding the batch monitor.
+     */
+    private List<PendingQuery> takeBatch() {
+        final List<PendingQuery> queries = this.batch;
+        this.batch = new ArrayList<>();
+
+        if (this.scheduledBatch != null) {
+            this.scheduledBatch.cancel(false);
+            this.scheduledBatch = null;
+        }
+
+        return queries;
+    }
+
+    private void startBatch(List<PendingQuery> queries) {
+        if (queries.isEmpty()) {
+            return;
+        }
+
+        this.metrics.batchStarted(queries.size());
+
+        final List<RouteQuery> routeQueries = new ArrayList<>(queries.size());
+
+        for (final PendingQuery pending : queries) {
+            routeQueries.add(pending.query);
+        }
+
+        this.board.findPathsAsync(routeQueries, this.pool).whenComplete((result, error) -> {
+            for (int i = 0; i < queries.size(); i++) {
+                if (error != null) {
+                    queries.get(i).future.completeExceptionally(error);
+                } else {
+                    queries.get(i).future.complete(result.get(i));
+                }
+            }
+        });
+    }
+}
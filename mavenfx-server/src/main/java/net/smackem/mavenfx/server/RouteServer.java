@@ -0,0 +1,488 @@
+package net.smackem.mavenfx.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.smackem.mavenfx.model.Board;
+import net.smackem.mavenfx.model.BoardFile;
+import net.smackem.mavenfx.model.Cell;
+import net.smackem.mavenfx.model.CellPath;
+import net.smackem.mavenfx.model.CostModel;
+import net.smackem.mavenfx.model.ImageImporter;
+import net.smackem.mavenfx.model.Path;
+import net.smackem.mavenfx.model.SearchMode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Answers route queries on a set of boards over HTTP, for other processes
+ * on the same machine. All responses are JSON:
+ * <pre>
+ * GET /boards                                        the served boards
+ * GET /path?board=b&amp;from=x,y&amp;to=x,y[&amp;mode=m]        the cheapest path
+ * GET /paths?board=b&amp;from=x,y&amp;to=x,y[&amp;count=n]       up to 16 alternative paths
+ * GET /metrics                                       counters and latencies
+ * </pre>
+ * Requests for {@code /path} and {@code /paths} are parsed on a single
+ * thread and then solved by a {@link BoardRouter}: A* requests on a
+ * fork-join pool of {@link ServerSettings#getThreadCount()} threads, all
+ * others on a thread per board. The pool writes the responses, so that no
+ * thread waits for a search. Once
+ * {@link ServerSettings#getMaxPendingRequests()} requests are pending,
+ * further route requests are rejected with status 503 until some have been
+ * answered.
+ *
+ * @author pbo
+ */
+public final class RouteServer {
+    private static final Logger log = LoggerFactory.getLogger(RouteServer.class);
+    private static final int DEFAULT_PATH_COUNT = 3;
+    private static final int MAX_PATH_COUNT = 16;
+
+    private static final String USAGE = String.join("\n",
+            "usage: mavenfx-server [options] [name=]board...",
+            "",
+            "  board                    an .mfxb board file or an image",
+            "",
+            "options:",
+            "  --port <n>               port to listen on (default: 8080)",
+            "  --threads <n>            number of search threads (default: number of processors)",
+            "  --max-pending <n>        pending requests above which requests are rejected (default: 1024)",
+            "  --batch-window <ms>      time to collect requests for a batch (default: 2)",
+            "  --max-batch <n>          batch size at which a batch is started early (default: 256)",
+            "  --scale <n>              pixels per cell when importing the following images (default: "
+                    + ImageImporter.DEFAULT_SCALE + ")");
+
+    private final ServerSettings settings;
+    private final Map<String, BoardRouter> routers = new LinkedHashMap<>();
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final Semaphore pendingPermits;
+    private final ForkJoinPool pool;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService dispatcher;
+    private final HttpServer server;
+
+    private static final class RequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Creates a server for {@code boards}, which are served under the names
+     * they are mapped to, and binds it to the loopback address.
+     */
+    public RouteServer(Map<String, Board> boards, ServerSettings settings) throws IOException {
+        Objects.requireNonNull(boards);
+        this.settings = Objects.requireNonNull(settings);
+        this.pendingPermits = new Semaphore(settings.getMaxPendingRequests());
+        this.pool = new ForkJoinPool(settings.getThreadCount());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "batch-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = Executors.newSingleThreadExecutor();
+
+        for (final Map.Entry<String, Board> entry : boards.entrySet()) {
+            this.routers.put(entry.getKey(),
+                    new BoardRouter(entry.getKey(), entry.getValue(), this.pool, this.scheduler, this.metrics, settings));
+        }
+
+        this.server = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), settings.getPort()), 0);
+        this.server.setExecutor(this.dispatcher);
+        this.server.createContext("/boards", exchange -> handleSync(exchange, this::listBoards));
+        this.server.createContext("/metrics", exchange -> handleSync(exchange, this::writeMetrics));
+        this.server.createContext("/path", exchange -> handleRoute(exchange, this::findPath));
+        this.server.createContext("/paths", exchange -> handleRoute(exchange, this::findPaths));
+    }
+
+    public void start() {
+        this.server.start();
+        log.info("listening on port {} with {}", getPort(), this.settings);
+    }
+
+    /**
+     * Stops accepting requests, waits up to {@code delaySeconds} for the
+     * responses being written and shuts down all threads.
+     */
+    public void stop(int delaySeconds) {
+        this.server.stop(delaySeconds);
+        this.dispatcher.shutdownNow();
+        this.scheduler.shutdownNow();
+        this.pool.shutdownNow();
+
+        for (final BoardRouter router : this.routers.values()) {
+            router.shutdown();
+        }
+    }
+
+    /**
+     * @return the port the server is bound to.
+     */
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    public static void main(String[] args) throws IOException {
+        ServerSettings settings = ServerSettings.DEFAULT;
+        int scale = ImageImporter.DEFAULT_SCALE;
+        final Map<String, Board> boards = new LinkedHashMap<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                final String arg = args[i];
+
+                switch (arg) {
+                    case "--port":
+                        settings = settings.withPort(parseOption(arg, value(args, ++i, arg)));
+                        break;
+                    case "--threads":
+                        settings = settings.withThreadCount(parseOption(arg, value(args, ++i, arg)));
+                        break;
+                    case "--max-pending":
+                        settings = settings.withMaxPendingRequests(parseOption(arg, value(args, ++i, arg)));
+                        break;
+                    case "--batch-window":
+                        settings = settings.withBatchWindowMillis(parseOption(arg, value(args, ++i, arg)));
+                        break;
+                    case "--max-batch":
+                        settings = settings.withMaxBatchSize(parseOption(arg, value(args, ++i, arg)));
+                        break;
+                    case "--scale":
+                        scale = parseOption(arg, value(args, ++i, arg));
+                        break;
+                    default:
+                        final int separator = arg.indexOf('=');
+                        final File file = new File(separator >= 0 ? arg.substring(separator + 1) : arg);
+                        final String name = separator >= 0
+                                ? arg.substring(0, separator)
+                                : file.getName().replaceFirst("\\.[^.]*$", "");
+                        boards.put(name, openBoard(file, scale));
+                        log.info("serving {} as {}", file, name);
+                        break;
+                }
+            }
+
+            if (boards.isEmpty())
+                throw new IllegalArgumentException("No boards to serve");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        new RouteServer(boards, settings).start();
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length)
+            throw new IllegalArgumentException("Missing value for " + option);
+
+        return args[index];
+    }
+
+    private static int parseOption(String option, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+        }
+    }
+
+    private static Board openBoard(File file, int scale) throws IOException {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".mfxb")
+                ? BoardFile.open(file)
+                : new ImageImporter(scale).importBoard(file);
+    }
+
+    @FunctionalInterface
+    private interface SyncHandler {
+        String handle(Map<String, String> parameters) throws IOException, RequestException;
+    }
+
+    @FunctionalInterface
+    private interface RouteHandler {
+        CompletableFuture<String> handle(Map<String, String> parameters) throws RequestException;
+    }
+
+    private void handleSync(HttpExchange exchange, SyncHandler handler) {
+        try {
+            respond(exchange, 200, handler.handle(parseParameters(exchange)));
+        } catch (RequestException e) {
+            respond(exchange, e.status, errorJson(e.getMessage()));
+        } catch (IOException | RuntimeException e) {
+            log.error("Error handling {}", exchange.getRequestURI(), e);
+            respond(exchange, 500, errorJson(e.getMessage()));
+        }
+    }
+
+    private void handleRoute(HttpExchange exchange, RouteHandler handler) {
+        final long startTime = System.nanoTime();
+
+        if (this.pendingPermits.tryAcquire() == false) {
+            this.metrics.requestRejected();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, errorJson("Too many pending requests"));
+            return;
+        }
+
+        final CompletableFuture<String> response;
+
+        try {
+            response = handler.handle(parseParameters(exchange));
+        } catch (RequestException e) {
+            complete(exchange, startTime, e.status, errorJson(e.getMessage()));
+            return;
+        } catch (RuntimeException e) {
+            log.error("Error handling {}", exchange.getRequestURI(), e);
+            complete(exchange, startTime, 500, errorJson(e.getMessage()));
+            return;
+        }
+
+        response.whenComplete((json, error) -> {
+            if (error == null) {
+                complete(exchange, startTime, 200, json);
+            } else {
+                final Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                log.error("Error handling {}", exchange.getRequestURI(), cause);
+                complete(exchange, startTime, 500, errorJson(cause.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Responds to an accepted route request and releases its permit.
+     */
+    private void complete(HttpExchange exchange, long startTime, int status, String json) {
+        try {
+            respond(exchange, status, json);
+        } finally {
+            this.pendingPermits.release();
+            this.metrics.requestCompleted(System.nanoTime() - startTime, status != 200);
+        }
+    }
+
+    private String listBoards(Map<String, String> parameters) {
+        final StringBuilder json = new StringBuilder("[");
+
+        for (final Map.Entry<String, BoardRouter> entry : this.routers.entrySet()) {
+            final Board board = entry.getValue().getBoard();
+            json.append(json.length() > 1 ? ",\n  " : "\n  ");
+            json.append(String.format(Locale.ROOT, "{\"name\": \"%s\", \"width\": %d, \"height\": %d}",
+                    escape(entry.getKey()), board.getWidth(), board.getHeight()));
+        }
+
+        return json.append(json.length() > 1 ? "\n]\n" : "]\n").toString();
+    }
+
+    private String writeMetrics(Map<String, String> parameters) throws IOException {
+        final StringBuilder json = new StringBuilder();
+        this.metrics.writeJson(json,
+                this.settings.getMaxPendingRequests() - this.pendingPermits.availablePermits());
+        return json.toString();
+    }
+
+    private CompletableFuture<String> findPath(Map<String, String> parameters) throws RequestException {
+        final BoardRouter router = getRouter(parameters);
+        final Cell origin = getCell(router.getBoard(), parameters, "from");
+        final Cell destination = getCell(router.getBoard(), parameters, "to");
+        final SearchMode mode;
+
+        try {
+            mode = SearchMode.valueOf(parameters.getOrDefault("mode", "ASTAR").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, "Unknown search mode: " + parameters.get("mode"));
+        }
+
+        if (mode == SearchMode.JUMP_POINT
+                && router.getBoard().getCostModel().getConnectivity() != CostModel.Connectivity.EIGHT)
+            throw new RequestException(400, "JUMP_POINT requires an 8-connected cost model");
+
+        return router.findPath(origin, destination, mode)
+                .thenApply(path -> pathJson(path) + "\n");
+    }
+
+    private CompletableFuture<String> findPaths(Map<String, String> parameters) throws RequestException {
+        final BoardRouter router = getRouter(parameters);
+        final Cell origin = getCell(router.getBoard(), parameters, "from");
+        final Cell destination = getCell(router.getBoard(), parameters, "to");
+        final int count = parseInt(parameters.getOrDefault("count", String.valueOf(DEFAULT_PATH_COUNT)), "count");
+
+        if (count < 1 || count > MAX_PATH_COUNT)
+            throw new RequestException(400, "Invalid count: " + count);
+
+        return router.findPaths(origin, destination, count).thenApply(paths -> {
+            final StringBuilder json = new StringBuilder("[");
+
+            for (final Path<Cell> path : paths) {
+                json.append(json.length() > 1 ? ",\n  " : "\n  ").append(pathJson(path));
+            }
+
+            return json.append(json.length() > 1 ? "\n]\n" : "]\n").toString();
+        });
+    }
+
+    private BoardRouter getRouter(Map<String, String> parameters) throws RequestException {
+        final String name = parameters.get("board");
+
+        if (name == null) {
+            if (this.routers.size() != 1)
+                throw new RequestException(400, "Missing parameter: board");
+
+            return this.routers.values().iterator().next();
+        }
+
+        final BoardRouter router = this.routers.get(name);
+
+        if (router == null)
+            throw new RequestException(404, "Unknown board: " + name);
+
+        return router;
+    }
+
+    private static Cell getCell(Board board, Map<String, String> parameters, String name) throws RequestException {
+        final String value = parameters.get(name);
+
+        if (value == null)
+            throw new RequestException(400, "Missing parameter: " + name);
+
+        final String[] coordinates = value.split(",");
+
+        if (coordinates.length != 2)
+            throw new RequestException(400, "Invalid cell: " + value);
+
+        final Cell cell = board.getCell(parseInt(coordinates[0].trim(), name), parseInt(coordinates[1].trim(), name));
+
+        if (cell == null)
+            throw new RequestException(400, "Cell outside of the board: " + value);
+
+        return cell;
+    }
+
+    private static int parseInt(String value, String name) throws RequestException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, "Invalid " + name + ": " + value);
+        }
+    }
+
+    private static Map<String, String> parseParameters(HttpExchange exchange) throws RequestException {
+        if ("GET".equals(exchange.getRequestMethod()) == false)
+            throw new RequestException(405, "Method not allowed: " + exchange.getRequestMethod());
+
+        final String query = exchange.getRequestURI().getRawQuery();
+        final Map<String, String> parameters = new HashMap<>();
+
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+
+        for (final String pair : query.split("&")) {
+            final int separator = pair.indexOf('=');
+
+            try {
+                parameters.put(
+                        URLDecoder.decode(separator >= 0 ? pair.substring(0, separator) : pair, "UTF-8"),
+                        separator >= 0 ? URLDecoder.decode(pair.substring(separator + 1), "UTF-8") : "");
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                throw new RequestException(400, "Invalid query: " + query);
+            }
+        }
+
+        return parameters;
+    }
+
+    /**
+     * @return the path as JSON object with its cost and cells, or an object
+     *      with cost {@code null} and no cells if {@code path} is {@code null}.
+     */
+    private static String pathJson(Path<Cell> path) {
+        if (path == null) {
+            return "{\"cost\": null, \"cells\": []}";
+        }
+
+        final StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT, "{\"cost\": %.6f, \"cells\": [", path.getTotalCost()));
+        final CellPath cells = CellPath.of(path);
+
+        for (int i = 0; i < cells.size(); i++) {
+            json.append('[').append(cells.getX(i)).append(", ").append(cells.getY(i)).append(']');
+
+            if (i < cells.size() - 1) {
+                json.append(", ");
+            }
+        }
+
+        return json.append("]}").toString();
+    }
+
+    private static String errorJson(String message) {
+        return "{\"error\": \"" + escape(String.valueOf(message)) + "\"}\n";
+    }
+
+    private static String escape(String text) {
+        final StringBuilder escaped = new StringBuilder(text.length());
+
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+
+        return escaped.toString();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) {
+        final byte[] body = json.getBytes(StandardCharsets.UTF_8);
+
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+
+            try (final OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            log.debug("Could not respond to {}", exchange.getRequestURI(), e);
+        } finally {
+            exchange.close();
+        }
+    }
+}
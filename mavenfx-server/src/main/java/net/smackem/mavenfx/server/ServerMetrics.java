@@ -0,0 +1,133 @@
+package net.smackem.mavenfx.server;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the requests and batches of a {@link RouteServer} and keeps the
+ * latencies of the most recent route requests.
+ * <p>
+ * Latencies are measured from the arrival of a request until its response
+ * has been written. Percentiles are nearest-rank percentiles of the last
+ * {@link #LATENCY_WINDOW_SIZE} latencies.
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @author pbo
+ */
+final class ServerMetrics {
+    static final int LATENCY_WINDOW_SIZE = 4096;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong batchedQueryCount = new AtomicLong();
+    private final long[] latencies = new long[LATENCY_WINDOW_SIZE];
+    private long latencyCount;
+
+    /**
+     * Counts a route request answered after {@code latencyNanos}.
+     */
+    void requestCompleted(long latencyNanos, boolean failed) {
+        this.requestCount.incrementAndGet();
+
+        if (failed) {
+            this.failedCount.incrementAndGet();
+        }
+
+        synchronized (this.latencies) {
+            this.latencies[(int) (this.latencyCount % LATENCY_WINDOW_SIZE)] = latencyNanos;
+            this.latencyCount++;
+        }
+    }
+
+    /**
+     * Counts a route request rejected because too many were pending.
+     */
+    void requestRejected() {
+        this.requestCount.incrementAndGet();
+        this.rejectedCount.incrementAndGet();
+    }
+
+    void batchStarted(int queryCount) {
+        this.batchCount.incrementAndGet();
+        this.batchedQueryCount.addAndGet(queryCount);
+    }
+
+    long getRequestCount() {
+        return this.requestCount.get();
+    }
+
+    long getRejectedCount() {
+        return this.rejectedCount.get();
+    }
+
+    long getFailedCount() {
+        return this.failedCount.get();
+    }
+
+    long getBatchCount() {
+        return this.batchCount.get();
+    }
+
+    long getBatchedQueryCount() {
+        return this.batchedQueryCount.get();
+    }
+
+    /**
+     * @return the latencies within the window, sorted ascending.
+     */
+    long[] getSortedLatencies() {
+        final long[] sorted;
+
+        synchronized (this.latencies) {
+            sorted = Arrays.copyOf(this.latencies, (int) Math.min(this.latencyCount, LATENCY_WINDOW_SIZE));
+        }
+
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Writes all counters and the latency percentiles in microseconds as
+     * one JSON object.
+     */
+    void writeJson(Appendable out, int pendingCount) throws IOException {
+        final long[] sorted = getSortedLatencies();
+        final long batchCount = getBatchCount();
+
+        out.append("{\n");
+        out.append(String.format(Locale.ROOT, "  \"requests\": %d,\n", getRequestCount()));
+        out.append(String.format(Locale.ROOT, "  \"rejected\": %d,\n", getRejectedCount()));
+        out.append(String.format(Locale.ROOT, "  \"failed\": %d,\n", getFailedCount()));
+        out.append(String.format(Locale.ROOT, "  \"pending\": %d,\n", pendingCount));
+        out.append(String.format(Locale.ROOT, "  \"batches\": %d,\n", batchCount));
+        out.append(String.format(Locale.ROOT, "  \"meanBatchSize\": %.3f,\n",
+                batchCount > 0 ? getBatchedQueryCount() / (double) batchCount : 0.0));
+        out.append(String.format(Locale.ROOT,
+                "  \"latencyMicros\": {\"count\": %d, \"p50\": %.3f, \"p90\": %.3f, \"p99\": %.3f, \"max\": %.3f}\n",
+                sorted.length,
+                percentile(sorted, 50) / 1e3,
+                percentile(sorted, 90) / 1e3,
+                percentile(sorted, 99) / 1e3,
+                percentile(sorted, 100) / 1e3));
+        out.append("}\n");
+    }
+
+    /**
+     * @return the smallest of the {@code sorted} values that is at least as
+     *      high as {@code percentile} percent of them, or {@code 0} if there
+     *      are none.
+     */
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+
+        final int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.min(Math.max(rank, 1), sorted.length) - 1];
+    }
+}
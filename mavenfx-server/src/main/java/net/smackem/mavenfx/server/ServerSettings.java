@@ -0,0 +1,127 @@
+package net.smackem.mavenfx.server;
+
+/**
+ * The limits and tuning parameters of a {@link RouteServer}.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author pbo
+ */
+public final class ServerSettings {
+    /**
+     * The settings used unless specified otherwise: port 8080, one search
+     * thread per processor, at most 1024 pending requests, batches of up to
+     * 256 queries collected for 2 ms.
+     */
+    public static final ServerSettings DEFAULT = new ServerSettings(
+            8080, Runtime.getRuntime().availableProcessors(), 1024, 2, 256);
+
+    private final int port;
+    private final int threadCount;
+    private final int maxPendingRequests;
+    private final long batchWindowMillis;
+    private final int maxBatchSize;
+
+    /**
+     * @param port
+     *      the port to listen on or {@code 0} for any free port.
+     * @param threadCount
+     *      the number of threads searching paths.
+     * @param maxPendingRequests
+     *      the number of route requests accepted but not yet answered above
+     *      which new requests are rejected.
+     * @param batchWindowMillis
+     *      the time requests for the same board are collected before they
+     *      are solved as one batch.
+     * @param maxBatchSize
+     *      the number of requests at which a batch is solved before its
+     *      window has passed.
+     */
+    public ServerSettings(int port, int threadCount, int maxPendingRequests, long batchWindowMillis,
+                          int maxBatchSize) {
+        if (port < 0 || port > 0xffff)
+            throw new IllegalArgumentException("Invalid port");
+        if (threadCount < 1)
+            throw new IllegalArgumentException("Invalid thread count");
+        if (maxPendingRequests < 0)
+            throw new IllegalArgumentException("Invalid maximum number of pending requests");
+        if (batchWindowMillis < 0)
+            throw new IllegalArgumentException("Invalid batch window");
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("Invalid maximum batch size");
+
+        this.port = port;
+        this.threadCount = threadCount;
+        this.maxPendingRequests = maxPendingRequests;
+        this.batchWindowMillis = batchWindowMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getPort() {
+        return this.port;
+    }
+
+    public int getThreadCount() {
+        return this.threadCount;
+    }
+
+    public int getMaxPendingRequests() {
+        return this.maxPendingRequests;
+    }
+
+    public long getBatchWindowMillis() {
+        return this.batchWindowMillis;
+    }
+
+    public int getMaxBatchSize() {
+        return this.maxBatchSize;
+    }
+
+    /**
+     * @return a copy of this instance with the specified port.
+     */
+    public ServerSettings withPort(int port) {
+        return new ServerSettings(port, this.threadCount, this.maxPendingRequests, this.batchWindowMillis,
+                this.maxBatchSize);
+    }
+
+    /**
+     * @return a copy of this instance with the specified thread count.
+     */
+    public ServerSettings withThreadCount(int threadCount) {
+        return new ServerSettings(this.port, threadCount, this.maxPendingRequests, this.batchWindowMillis,
+                this.maxBatchSize);
+    }
+
+    /**
+     * @return a copy of this instance with the specified maximum number of
+     *      pending requests.
+     */
+    public ServerSettings withMaxPendingRequests(int maxPendingRequests) {
+        return new ServerSettings(this.port, this.threadCount, maxPendingRequests, this.batchWindowMillis,
+                this.maxBatchSize);
+    }
+
+    /**
+     * @return a copy of this instance with the specified batch window.
+     */
+    public ServerSettings withBatchWindowMillis(long batchWindowMillis) {
+        return new ServerSettings(this.port, this.threadCount, this.maxPendingRequests, batchWindowMillis,
+                this.maxBatchSize);
+    }
+
+    /**
+     * @return a copy of this instance with the specified maximum batch size.
+     */
+    public ServerSettings withMaxBatchSize(int maxBatchSize) {
+        return new ServerSettings(this.port, this.threadCount, this.maxPendingRequests, this.batchWindowMillis,
+                maxBatchSize);
+    }
+
+    @Override
+    public String toString() {
+        return "ServerSettings[port " + this.port + ", " + this.threadCount + " threads, "
+                + this.maxPendingRequests + " pending, batches of " + this.maxBatchSize + " within "
+                + this.batchWindowMillis + " ms]";
+    }
+}
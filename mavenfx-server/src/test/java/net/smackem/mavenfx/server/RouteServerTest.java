@@ -0,0 +1,146 @@
+package net.smackem.mavenfx.server;
+
+import net.smackem.mavenfx.model.Board;
+import net.smackem.mavenfx.model.Path;
+import net.smackem.mavenfx.model.Cell;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author pbo
+ */
+public class RouteServerTest {
+    private static final Pattern COST_PATTERN = Pattern.compile("\"cost\": ([0-9.]+)");
+    private RouteServer server;
+
+    @After
+    public void tearDown() {
+        if (this.server != null) {
+            this.server.stop(0);
+        }
+    }
+
+    @Test
+    public void testConcurrentRequestsAreBatched() throws Exception {
+        final Board board = createBoard();
+        final Random random = new Random(29);
+        startServer(board, ServerSettings.DEFAULT.withPort(0).withThreadCount(2).withBatchWindowMillis(20));
+
+        final ExecutorService clients = Executors.newFixedThreadPool(8);
+        final List<Future<String>> responses = new ArrayList<>();
+        final List<Path<Cell>> expected = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 32; i++) {
+                final int originX = random.nextInt(100);
+                final int originY = random.nextInt(80);
+                final int destinationX = random.nextInt(100);
+                final int destinationY = random.nextInt(80);
+                expected.add(board.findPath(board.getCell(originX, originY), board.getCell(destinationX, destinationY)));
+                responses.add(clients.submit(() -> get(String.format(Locale.ROOT,
+                        "/path?board=test&from=%d,%d&to=%d,%d", originX, originY, destinationX, destinationY), 200)));
+            }
+
+            for (int i = 0; i < responses.size(); i++) {
+                final Matcher matcher = COST_PATTERN.matcher(responses.get(i).get());
+                assertThat(matcher.find(), is(true));
+                assertThat(Double.parseDouble(matcher.group(1)), closeTo(expected.get(i).getTotalCost(), 1e-5));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        final String metrics = get("/metrics", 200);
+        assertThat(metrics, containsString("\"requests\": 32"));
+        assertThat(metrics, containsString("\"rejected\": 0"));
+        assertThat(metrics, not(containsString("\"batches\": 32")));
+    }
+
+    @Test
+    public void testFindPaths() throws Exception {
+        startServer(createBoard(), ServerSettings.DEFAULT.withPort(0).withThreadCount(1));
+
+        final String response = get("/paths?from=1,1&to=90,70&count=2", 200);
+        final Matcher matcher = COST_PATTERN.matcher(response);
+        int count = 0;
+
+        while (matcher.find()) {
+            count++;
+        }
+
+        assertThat(count, is(2));
+        assertThat(get("/path?from=1,1&to=90,70&mode=landmark", 200), containsString("[90, 70]]"));
+    }
+
+    @Test
+    public void testInvalidRequests() throws Exception {
+        startServer(createBoard(), ServerSettings.DEFAULT.withPort(0).withThreadCount(1));
+
+        get("/path?board=other&from=1,1&to=2,2", 404);
+        get("/path?from=1,1&to=200,2", 400);
+        get("/path?from=1,1", 400);
+        get("/path?from=1,1&to=2,2&mode=fastest", 400);
+        get("/paths?from=1,1&to=2,2&count=17", 400);
+        assertThat(get("/boards", 200), containsString("\"width\": 100"));
+    }
+
+    @Test
+    public void testLoadShedding() throws Exception {
+        startServer(createBoard(), ServerSettings.DEFAULT.withPort(0).withMaxPendingRequests(0));
+
+        get("/path?from=1,1&to=2,2", 503);
+        assertThat(get("/metrics", 200), containsString("\"rejected\": 1"));
+    }
+
+    /////////////////////////////////////////////////////////////////
+
+    private static Board createBoard() {
+        final Random random = new Random(31);
+        final int[] weights = new int[100 * 80];
+
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextInt(10);
+        }
+
+        return Board.fromBuffer(weights, 100, 80, weight -> weight);
+    }
+
+    private void startServer(Board board, ServerSettings settings) throws IOException {
+        this.server = new RouteServer(Collections.singletonMap("test", board), settings);
+        this.server.start();
+    }
+
+    private String get(String path, int expectedStatus) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection)
+                new URL("http://localhost:" + this.server.getPort() + path).openConnection();
+
+        try {
+            assertThat(path, connection.getResponseCode(), is(expectedStatus));
+
+            try (final InputStream in = expectedStatus == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}